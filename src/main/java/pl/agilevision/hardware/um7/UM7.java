@@ -1,10 +1,17 @@
 package pl.agilevision.hardware.um7;
 
+import pl.agilevision.hardware.um7.data.SampleHistory;
+import pl.agilevision.hardware.um7.data.StateStore;
 import pl.agilevision.hardware.um7.data.UM7DataSample;
+import pl.agilevision.hardware.um7.data.UM7Profile;
+import pl.agilevision.hardware.um7.data.UM7RegisterMap;
 import pl.agilevision.hardware.um7.exceptions.DeviceConnectionException;
 import pl.agilevision.hardware.um7.exceptions.OperationTimeoutException;
+import pl.agilevision.hardware.um7.sync.ClockEstimator;
 
 import java.io.IOException;
+import java.util.SortedMap;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Interface to interact with the UM7 device
@@ -68,6 +75,43 @@ public interface UM7 {
    */
   String getFirmwareVersion()  throws DeviceConnectionException, OperationTimeoutException;
 
+  /**
+   * Reads all configuration registers, CREG_COM_SETTINGS to CREG_MAG_BIAS_Z
+   * @return register values
+   * @throws DeviceConnectionException in a case of the failure while communicating with the device
+   * @throws OperationTimeoutException if the timeout passed before the operation finished
+   */
+  UM7RegisterMap readConfiguration() throws DeviceConnectionException, OperationTimeoutException;
+
+  /**
+   * Reads the device configuration, including the hidden alignment and magnetometer reference
+   * registers, into a profile
+   * @return device profile
+   * @throws DeviceConnectionException in a case of the failure while communicating with the device
+   * @throws OperationTimeoutException if a register couldn't be read
+   */
+  UM7Profile captureProfile() throws DeviceConnectionException, OperationTimeoutException;
+
+  /**
+   * Compares a profile with the device configuration
+   * @param profile profile to compare with
+   * @return registers that would be written to apply the profile, by address
+   * @throws DeviceConnectionException in a case of the failure while communicating with the device
+   * @throws OperationTimeoutException if a register couldn't be read
+   */
+  SortedMap<Integer, Integer> diffProfile(UM7Profile profile) throws DeviceConnectionException, OperationTimeoutException;
+
+  /**
+   * Writes the registers that differ from the profile and commits them to flash. The baud rate
+   * isn't changed. The writes are pipelined through the reader thread, which is stopped again
+   * afterwards if it wasn't running before
+   * @param profile profile to apply
+   * @return true if the operation was successful,false in a case of a failure
+   * @throws DeviceConnectionException in a case of the failure while communicating with the device
+   * @throws OperationTimeoutException if a register couldn't be read
+   */
+  boolean applyProfile(UM7Profile profile) throws DeviceConnectionException, OperationTimeoutException;
+
   /**
    * Reads a data sample
    * @return data sample
@@ -77,7 +121,73 @@ public interface UM7 {
   UM7DataSample readState() throws DeviceConnectionException, OperationTimeoutException;
 
 
+  /**
+   * Returns a copy of the latest values, the values of each register group or NMEA sentence come
+   * from the same packet
+   * @return latest state
+   */
   UM7DataSample getState();
 
+  /**
+   * Returns the store of the latest values, to be read from any thread without copying
+   * @return state store
+   */
+  StateStore getStateStore();
+
+  /**
+   * Returns the history of the samples, groups are recorded once tracked, e.g.
+   * {@code getHistory().track(UM7Attributes.Accelerator.Processed, 500)}
+   * @return sample history
+   */
+  SampleHistory getHistory();
+
+  /**
+   * Returns the estimator mapping the device time of the samples to {@link System#nanoTime()},
+   * fed with every sample parsed by this instance
+   * @return clock estimator
+   */
+  ClockEstimator getClock();
+
+  /**
+   * Reads packets until all wanted values arrived, see {@link #awaitSamples(String[], float)} to
+   * wait without owning the read loop. While the reader thread dispatches the packets, see
+   * {@link UM7Client#startReader(boolean)}, only waits for them
+   * @param wantedState attribute keys
+   * @param timeout timeout in seconds
+   * @return true if all values arrived before the timeout
+   * @throws DeviceConnectionException in a case of the failure while communicating with the device
+   * @throws IOException in a case of the failure while communicating with the device
+   * @throws IllegalStateException if a register group is wanted while the client delivers
+   * broadcast data to a flyweight callback
+   */
   boolean catchAllSamples(final String [] wantedState, float timeout) throws DeviceConnectionException, IOException;
+
+  /**
+   * Waits for the register groups or NMEA sentences holding the wanted keys without reading
+   * from the device. The future completes as soon as every group passed through the data
+   * callbacks, so some thread has to read and parse packets: the reader thread started with
+   * {@link UM7Client#startReader(boolean)} in dispatching mode, {@link #readState()} or a loop over
+   * {@link UM7Client#readPacket()} and {@link UM7Client#parsePacket(pl.agilevision.hardware.um7.data.binary.UM7BinaryPacket)}.
+   * Broadcast frames handed to a flyweight callback bypass the data callbacks, so register groups
+   * can't be awaited while one is set; setting one during a wait leaves the wait to its timeout
+   * @param wantedState attribute keys
+   * @param timeout timeout in seconds, 0 to wait without a limit
+   * @return future completed with the values of the groups, or with an
+   * {@link OperationTimeoutException} if the timeout passed first
+   * @throws IllegalArgumentException if a key is unknown
+   * @throws IllegalStateException if a register group is wanted while the client delivers
+   * broadcast data to a flyweight callback, see {@link UM7Client#setFlyweightCallback}
+   */
+  CompletableFuture<UM7DataSample> awaitSamples(String[] wantedState, float timeout);
+
+  /**
+   * Waits for groups like {@link #awaitSamples(String[], float)}, with the mask computed once by
+   * {@link pl.agilevision.hardware.um7.data.AttributeRegistry#groupMask(String...)}
+   * @param groups mask of groups
+   * @param timeout timeout in seconds, 0 to wait without a limit
+   * @return future completed with the values of the groups
+   * @throws IllegalStateException if a register group is wanted while the client delivers
+   * broadcast data to a flyweight callback
+   */
+  CompletableFuture<UM7DataSample> awaitGroups(long groups, float timeout);
 }
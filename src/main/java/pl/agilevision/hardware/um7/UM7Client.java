@@ -1,12 +1,22 @@
 package pl.agilevision.hardware.um7;
 
+import pl.agilevision.hardware.um7.callback.CallbackRegistry;
 import pl.agilevision.hardware.um7.callback.DataCallback;
+import pl.agilevision.hardware.um7.callback.DeliveryPolicy;
+import pl.agilevision.hardware.um7.callback.PacketListener;
+import pl.agilevision.hardware.um7.callback.SampleCallback;
+import pl.agilevision.hardware.um7.callback.SampleFlyweightCallback;
+import pl.agilevision.hardware.um7.callback.Subscription;
+import pl.agilevision.hardware.um7.data.UM7Packet;
+import pl.agilevision.hardware.um7.data.UM7RegisterMap;
 import pl.agilevision.hardware.um7.data.attributes.ConfigurableRateAttribute;
 import pl.agilevision.hardware.um7.data.binary.UM7BinaryPacket;
 import pl.agilevision.hardware.um7.exceptions.DeviceConnectionException;
 import pl.agilevision.hardware.um7.exceptions.OperationTimeoutException;
 
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 /**
  * Low-level UM7 client for IO operations with the UM7 device
@@ -40,6 +50,39 @@ public interface UM7Client {
    */
   UM7BinaryPacket readPacket() throws DeviceConnectionException;
 
+  /**
+   * Starts a dedicated reader thread that blocks on the transport and queues incoming packets.
+   * {@link #readPacket()} then takes packets from the queue instead of reading the transport.
+   * Same as {@code startReader(false)}
+   */
+  void startReader();
+
+  /**
+   * Starts the reader thread like {@link #startReader()}, or switches the mode of a running one.
+   * While dispatching, the reader thread itself hands packets that aren't replies to the packet
+   * listener, or without one to {@link #parsePacket(UM7BinaryPacket)}, so the data and sample
+   * callbacks fire on the executor lanes set with {@link #setCallbackExecutor(Executor, int)}
+   * without any thread calling {@link #readPacket()}. Such packets aren't queued then
+   * @param dispatch true to parse and dispatch the packets on the reader thread
+   */
+  void startReader(boolean dispatch);
+
+  /**
+   * Stops the reader thread started by {@link #startReader()}. Does nothing if it is not running
+   */
+  void stopReader();
+
+  /**
+   * Returns true if the reader thread is running
+   * @return true if the reader thread is running
+   */
+  boolean isReaderRunning();
+
+  /**
+   * @return true if the reader thread is running and dispatches the packets, see {@link #startReader(boolean)}
+   */
+  boolean isReaderDispatching();
+
   /**
    * Reads the device registry
    * @param start start address
@@ -86,6 +129,47 @@ public interface UM7Client {
                                 final float timeout, final boolean noRead)
       throws OperationTimeoutException, DeviceConnectionException;
 
+  /**
+   * Reads a range of registers using as few batch requests as possible, each one reading up to
+   * {@link UM7Constants.Registers#MAX_BATCH_LENGTH} registers. Batches are pipelined when the
+   * reader thread is running
+   * @param first address of the first register
+   * @param last address of the last register, inclusive
+   * @return register values; registers of failed batches are missing
+   * @throws OperationTimeoutException if timeout happened
+   * @throws DeviceConnectionException if there was an issue with the connection
+   */
+  UM7RegisterMap readRegisters(int first, int last) throws OperationTimeoutException, DeviceConnectionException;
+
+  /**
+   * Sends a register read request without waiting for the reply. Several requests can be in
+   * flight at once; replies are matched to requests by register address in the order they were
+   * sent. Replies are read by the reader thread, which has to be started with {@link #startReader()}.
+   * The future is completed on the reader thread, so dependent actions should not block it
+   * @param start start address
+   * @param length batch length, 0 for a single register
+   * @param timeout timeout in seconds
+   * @return future completed with the reply or exceptionally with {@link OperationTimeoutException}
+   * @throws DeviceConnectionException if the request can't be sent
+   * @throws IllegalStateException if the reader thread isn't running
+   */
+  CompletableFuture<UM7BinaryPacket> readRegisterAsync(int start, int length, float timeout)
+      throws DeviceConnectionException;
+
+  /**
+   * Sends a register write request without waiting for the acknowledgement.
+   * See {@link #readRegisterAsync(int, int, float)} for the reply matching rules
+   * @param start start address
+   * @param length amount of data in registers
+   * @param data data
+   * @param timeout timeout in seconds
+   * @return future completed with the reply or exceptionally with {@link OperationTimeoutException}
+   * @throws DeviceConnectionException if the request can't be sent
+   * @throws IllegalStateException if the reader thread isn't running
+   */
+  CompletableFuture<UM7BinaryPacket> writeRegisterAsync(int start, int length, byte[] data, float timeout)
+      throws DeviceConnectionException;
+
   /**
    * Set data rate of certain attribute
    * @param attribute
@@ -98,6 +182,17 @@ public interface UM7Client {
    */
   boolean setDataRate(ConfigurableRateAttribute attribute, int rate) throws OperationTimeoutException, DeviceConnectionException;
 
+  /**
+   * Sets data rates of several attributes. Attributes sharing a rate register are merged, so each
+   * register is read and written once
+   * @param rates attribute to rate mapping, see {@link #setDataRate(ConfigurableRateAttribute, int)} for the values
+   * @return true if all registers were updated
+   * @throws OperationTimeoutException if timeout happened
+   * @throws DeviceConnectionException if there was an issue with the connection
+   */
+  boolean setDataRates(Map<ConfigurableRateAttribute, Integer> rates)
+      throws OperationTimeoutException, DeviceConnectionException;
+
 
   /**
    * Configures the baud rate of the device and sets the baud rate of the underlying transport
@@ -110,18 +205,151 @@ public interface UM7Client {
   boolean setBaudRate(int baudRate) throws DeviceConnectionException, OperationTimeoutException;
 
   /**
-   * Sets data callback for specified packet
+   * Drops the in-memory copy of the configuration registers. Configuration registers
+   * (CREG_COM_SETTINGS..CREG_MAG_BIAS_Z) are cached once read or written, so that
+   * {@link #setDataRate(ConfigurableRateAttribute, int)} and {@link #setBaudRate(int)} don't need
+   * to read them again. Call this after the device was reconfigured by someone else
+   */
+  void invalidateRegisterCache();
+
+  /**
+   * Reloads all configuration registers from the device
+   * @return true if all registers were read
+   * @throws OperationTimeoutException if timeout happened
+   * @throws DeviceConnectionException if there was an issue with the connection
+   */
+  boolean refreshRegisterCache() throws OperationTimeoutException, DeviceConnectionException;
+
+  /**
+   * Compares the cached configuration registers with the device and updates the cache with the
+   * actual values
+   * @return true if the cache matched the device
+   * @throws OperationTimeoutException if timeout happened
+   * @throws DeviceConnectionException if there was an issue with the connection
+   */
+  boolean verifyRegisterCache() throws OperationTimeoutException, DeviceConnectionException;
+
+  /**
+   * Adds data callback for specified packet. Several callbacks may be registered for a packet,
+   * from any thread
    * @param attribute - attribute of packet, e.g. UM7Attributes.Health
    * @param callback - callback with implemented onPacket method that will be triggered on new data
+   * @return subscription delivering every packet, with its counters
+   */
+  Subscription registerCallback(ConfigurableRateAttribute attribute, DataCallback callback);
+
+  /**
+   * Adds data callback for specified packet with a delivery policy, e.g. a UI needing
+   * {@code DeliveryPolicy.maxRate(30)} of a 255 Hz stream
+   * @param attribute - attribute of packet, e.g. UM7Attributes.Euler
+   * @param callback - callback with implemented onPacket method that will be triggered on new data
+   * @param policy - which packets reach the callback when it can't keep up
+   * @return subscription with its counters, also used to unsubscribe
+   */
+  Subscription registerCallback(ConfigurableRateAttribute attribute, DataCallback callback, DeliveryPolicy policy);
+
+  /**
+   * Registers a callback for typed samples, e.g. {@code EulerSample.class}. Samples are built
+   * from binary packets passed through {@link #parsePacket(UM7BinaryPacket)}, or from broadcast data
+   * while a flyweight callback is set. NMEA sentences are parsed into records of the
+   * {@code pl.agilevision.hardware.um7.data.nmea} package, which are reused by the next sentence of the
+   * same type. Several callbacks may be registered for a type
+   * @param type sample class from the {@code pl.agilevision.hardware.um7.data.sample} package or NMEA record class
+   * @param callback callback to call with every sample of the type
+   * @param <T> sample type
+   * @throws IllegalArgumentException if the type isn't a sample or record type
    */
-  void registerCallback(ConfigurableRateAttribute attribute, DataCallback callback);
+  <T> void registerCallback(Class<T> type, SampleCallback<? super T> callback);
 
   /**
-   * Unsets data callback for specified packet
+   * Removes a callback registered with {@link #registerCallback(Class, SampleCallback)}
+   * @param type sample class
+   * @param callback callback to remove
+   * @param <T> sample type
+   */
+  <T> void unregisterCallback(Class<T> type, SampleCallback<? super T> callback);
+
+  /**
+   * Switches broadcast data to allocation-free delivery. While a callback is set, binary data
+   * frames that aren't replies to register reads are decoded in place and handed to the callback
+   * instead of being returned by {@link #readPacket()} or passed to the data callbacks
+   * @param callback callback or null to restore packet delivery
+   */
+  void setFlyweightCallback(SampleFlyweightCallback callback);
+
+  /**
+   * @return callback set by {@link #setFlyweightCallback(SampleFlyweightCallback)} or null
+   */
+  SampleFlyweightCallback getFlyweightCallback();
+
+  /**
+   * Sets the listener for packets that arrive while the client waits for a command reply, or
+   * that a dispatching reader thread read, see {@link #startReader(boolean)}. Without a listener
+   * such packets are passed to {@link #parsePacket(UM7BinaryPacket)} so the registered callbacks
+   * still see them
+   * @param listener listener or null to restore the default
+   */
+  void setPacketListener(PacketListener listener);
+
+  /**
+   * Decodes the packet with the matching parser and triggers the registered callbacks
+   * @param packet packet read from the device
+   * @return decoded packet or null if the packet holds no decodable data
+   */
+  UM7Packet parsePacket(UM7BinaryPacket packet);
+
+  /**
+   * Enables decoding of only the binary packet groups having a consumer: a data callback, a typed
+   * sample callback or a key added by {@link #addWantedKeys(String...)}. Other registers are skipped,
+   * so packets returned by {@link #parsePacket(UM7BinaryPacket)} hold only the needed attributes
+   * @param lazyDecoding true to decode only the needed groups, false to decode everything
+   */
+  void setLazyDecoding(boolean lazyDecoding);
+
+  /**
+   * Delivers data callbacks through an executor instead of the thread parsing the packets, so a
+   * slow callback can't stall reading. Every callback gets its packets in order through its own
+   * queue, packets beyond the queue limit are dropped
+   * @param executor executor running the callbacks or null to run them while parsing
+   * @param queueLimit maximal number of packets waiting for one callback
+   */
+  void setCallbackExecutor(Executor executor, int queueLimit);
+
+  /**
+   * Adds attribute keys to decode in lazy mode regardless of the callbacks. Keys are counted, so
+   * several consumers may want the same key, each removing it when done
+   * @param keys attribute keys, e.g. state variables
+   */
+  void addWantedKeys(String... keys);
+
+  /**
+   * Removes keys added by {@link #addWantedKeys(String...)}, a key stays wanted while another
+   * consumer added it too
+   * @param keys attribute keys
+   */
+  void removeWantedKeys(String... keys);
+
+  /**
+   * Unsets all data callbacks for specified packet
    * @param attribute - attribute of packet, e.g. UM7Attributes.Health
    */
   void unregisterCallback(ConfigurableRateAttribute attribute);
 
+  /**
+   * Unsets one data callback for specified packet
+   * @param attribute - attribute of packet, e.g. UM7Attributes.Health
+   * @param callback - callback registered with {@link #registerCallback(ConfigurableRateAttribute, DataCallback)}
+   */
+  void unregisterCallback(ConfigurableRateAttribute attribute, DataCallback callback);
 
-  Map<ConfigurableRateAttribute,DataCallback> getCallbacks();
+  /**
+   * @return read-only view of the data callbacks, a value dispatches to all subscribers of its
+   * attribute, see {@link CallbackRegistry#asMap()}
+   */
+  Map<ConfigurableRateAttribute, DataCallback> getCallbacks();
+
+  /**
+   * @return registry of the data callbacks
+   */
+  CallbackRegistry getCallbackRegistry();
 }
@@ -109,6 +109,9 @@ public interface UM7Constants {
     int DREG_QUAT_TIME           = 0x6F; // (111) Time at which the sensor was at the specified quaternion rotation
     int DREG_EULER_PHI_THETA     = 0x70; // (112)  Roll and pitch angles
 
+    // Packet format limit, not a register: batch length is a 4-bit field of the packet type
+    int MAX_BATCH_LENGTH      = 15;
+
     // Hidden registers
     int REG_HIDDEN            = 0xF000;
     int H_CREG_GYRO_ALIGN1_1  = REG_HIDDEN | (byte)0x31;
@@ -136,5 +139,8 @@ public interface UM7Constants {
     int BAUD_RATE = 115200;
     float OPERATION_TIMEOUT_IN_SECONDS = 1.0f;
     long READ_DELAY_IN_NANOSECONDS = 10;
+    long READ_IDLE_DELAY_IN_MILLISECONDS = 10;
+    int READ_TIMEOUT_IN_MILLISECONDS = 100;
+    int READER_QUEUE_CAPACITY = 1024;
   }
 }
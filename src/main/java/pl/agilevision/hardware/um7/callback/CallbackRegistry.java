@@ -0,0 +1,289 @@
+package pl.agilevision.hardware.um7.callback;
+
+import pl.agilevision.hardware.um7.data.UM7Packet;
+import pl.agilevision.hardware.um7.data.attributes.ConfigurableRateAttribute;
+
+import java.util.AbstractMap;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+/**
+ * Data callbacks by attribute, any number of callbacks per attribute. Subscribers are kept in
+ * copy-on-write arrays indexed by {@link ConfigurableRateAttribute#getId()}, so callbacks may be
+ * (un)registered from any thread while packets are dispatched without locks or hashing.
+ * <p>
+ * Callbacks run on the dispatching thread unless an executor is set with
+ * {@link #setExecutor(Executor, int)}. Then every subscriber gets a serial lane with a bounded
+ * queue and the dispatching thread never waits for user code. Each subscriber has a
+ * {@link DeliveryPolicy} deciding which packets reach it when it falls behind.
+ */
+public class CallbackRegistry implements PacketDispatcher {
+
+  private static final Subscription[] NONE = new Subscription[0];
+
+  /**
+   * Executor and queue limit, swapped at once
+   */
+  private static final class Delivery {
+    private final Executor executor;
+    private final int queueLimit;
+
+    private Delivery(final Executor executor, final int queueLimit) {
+      this.executor = executor;
+      this.queueLimit = queueLimit;
+    }
+  }
+
+  private volatile Subscription[][] subscribers = new Subscription[0][];
+  private volatile ConfigurableRateAttribute[] attributes = new ConfigurableRateAttribute[0];
+  private volatile int version;
+  private volatile Delivery delivery;
+  private final View view = new View();
+
+  /**
+   * Adds a subscriber of an attribute receiving every packet
+   * @param attribute packet attribute, e.g. UM7Attributes.Euler
+   * @param callback callback
+   * @return subscription
+   */
+  public Subscription add(final ConfigurableRateAttribute attribute, final DataCallback callback) {
+    return add(attribute, callback, DeliveryPolicy.all());
+  }
+
+  /**
+   * Adds a subscriber of an attribute
+   * @param attribute packet attribute, e.g. UM7Attributes.Euler
+   * @param callback callback
+   * @param policy delivery policy of the subscriber
+   * @return subscription
+   */
+  public synchronized Subscription add(final ConfigurableRateAttribute attribute, final DataCallback callback,
+                                       final DeliveryPolicy policy) {
+    final int id = attribute.getId();
+    Subscription[][] next = subscribers;
+    if (id >= next.length) {
+      next = Arrays.copyOf(next, id + 1);
+      attributes = Arrays.copyOf(attributes, id + 1);
+    } else {
+      next = next.clone();
+    }
+    final Subscription[] current = next[id] != null ? next[id] : NONE;
+    final Subscription[] added = Arrays.copyOf(current, current.length + 1);
+    final Subscription subscription = new Subscription(this, attribute, callback, policy);
+    added[current.length] = subscription;
+    next[id] = added;
+    attributes[id] = attribute;
+    subscribers = next;
+    version++;
+    return subscription;
+  }
+
+  /**
+   * Removes one subscriber of an attribute
+   * @param attribute packet attribute
+   * @param callback callback
+   * @return true if the callback was registered
+   */
+  public synchronized boolean remove(final ConfigurableRateAttribute attribute, final DataCallback callback) {
+    final Subscription[] current = subscribersOf(attribute);
+    for (int i = 0; i < current.length; i++) {
+      if (current[i].getCallback() == callback) {
+        removeAt(current, i);
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Removes a subscriber
+   * @param subscription subscription returned by {@link #add(ConfigurableRateAttribute, DataCallback)}
+   * @return true if the subscription was registered
+   */
+  public synchronized boolean remove(final Subscription subscription) {
+    final Subscription[] current = subscribersOf(subscription.getAttribute());
+    for (int i = 0; i < current.length; i++) {
+      if (current[i] == subscription) {
+        removeAt(current, i);
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private void removeAt(final Subscription[] current, final int index) {
+    final Subscription[] removed = new Subscription[current.length - 1];
+    System.arraycopy(current, 0, removed, 0, index);
+    System.arraycopy(current, index + 1, removed, index, current.length - index - 1);
+    replace(current[index].getAttribute().getId(), removed.length > 0 ? removed : null);
+  }
+
+  /**
+   * @param attribute packet attribute
+   * @return current subscriptions of the attribute
+   */
+  public Subscription[] getSubscriptions(final ConfigurableRateAttribute attribute) {
+    return subscribersOf(attribute).clone();
+  }
+
+  /**
+   * Removes all subscribers of an attribute
+   * @param attribute packet attribute
+   * @return true if the attribute had subscribers
+   */
+  public synchronized boolean removeAll(final ConfigurableRateAttribute attribute) {
+    if (subscribersOf(attribute).length == 0) {
+      return false;
+    }
+    replace(attribute.getId(), null);
+    return true;
+  }
+
+  /**
+   * Removes all subscribers
+   */
+  public synchronized void clear() {
+    subscribers = new Subscription[0][];
+    attributes = new ConfigurableRateAttribute[0];
+    version++;
+  }
+
+  private void replace(final int id, final Subscription[] lanes) {
+    final Subscription[][] next = subscribers.clone();
+    next[id] = lanes;
+    subscribers = next;
+    version++;
+  }
+
+  /**
+   * @return number changing with every change of the subscribers
+   */
+  public int getVersion() {
+    return version;
+  }
+
+  /**
+   * Hands packets to the subscribers through an executor. Every subscriber receives its packets
+   * in order, at most queueLimit packets wait per subscriber of the ALL and MAX_RATE policies and
+   * newer packets are dropped
+   * @param executor executor running the callbacks or null to call them on the dispatching thread
+   * @param queueLimit maximal number of packets waiting for one subscriber
+   */
+  public void setExecutor(final Executor executor, final int queueLimit) {
+    if (executor != null && queueLimit < 1) {
+      throw new IllegalArgumentException("Queue limit must be positive");
+    }
+    delivery = executor != null ? new Delivery(executor, queueLimit) : null;
+  }
+
+  /**
+   * @return executor running the callbacks or null if they run on the dispatching thread
+   */
+  public Executor getExecutor() {
+    final Delivery current = delivery;
+    return current != null ? current.executor : null;
+  }
+
+  /**
+   * @return number of packets dropped by the current subscribers because their queues were full
+   */
+  public long getDroppedPackets() {
+    long dropped = 0;
+    for (final Subscription[] lanes : subscribers) {
+      if (lanes != null) {
+        for (final Subscription lane : lanes) {
+          dropped += lane.getDropped();
+        }
+      }
+    }
+    return dropped;
+  }
+
+  /**
+   * Calls or queues all subscribers of an attribute
+   * @param attribute packet attribute
+   * @param packet decoded packet
+   * @return true if the attribute has subscribers
+   */
+  @Override
+  public boolean dispatch(final ConfigurableRateAttribute attribute, final UM7Packet packet) {
+    final Subscription[][] all = subscribers;
+    final int id = attribute.getId();
+    final Subscription[] lanes = id < all.length ? all[id] : null;
+    if (lanes == null) {
+      return false;
+    }
+    final Delivery current = delivery;
+    for (final Subscription lane : lanes) {
+      if (current != null) {
+        lane.offer(packet, current.executor, current.queueLimit);
+      } else {
+        lane.offer(packet, null, 0);
+      }
+    }
+    return true;
+  }
+
+  /**
+   * @param attribute packet attribute
+   * @return true if the attribute has subscribers
+   */
+  @Override
+  public boolean hasSubscribers(final ConfigurableRateAttribute attribute) {
+    final Subscription[][] all = subscribers;
+    final int id = attribute.getId();
+    return id < all.length && all[id] != null;
+  }
+
+  private Subscription[] subscribersOf(final Object attribute) {
+    if (!(attribute instanceof ConfigurableRateAttribute)) {
+      return NONE;
+    }
+    final Subscription[][] all = subscribers;
+    final int id = ((ConfigurableRateAttribute) attribute).getId();
+    return id < all.length && all[id] != null ? all[id] : NONE;
+  }
+
+  /**
+   * Read-only view of the attributes having subscribers. The value of an attribute dispatches
+   * through this registry, so it respects the delivery policies and the executor
+   * @return map view, changes of the subscribers show through
+   */
+  public Map<ConfigurableRateAttribute, DataCallback> asMap() {
+    return view;
+  }
+
+  private final class View extends AbstractMap<ConfigurableRateAttribute, DataCallback> {
+
+    @Override
+    public DataCallback get(final Object attribute) {
+      return containsKey(attribute) ? dispatcherOf((ConfigurableRateAttribute) attribute) : null;
+    }
+
+    @Override
+    public boolean containsKey(final Object attribute) {
+      return subscribersOf(attribute).length > 0;
+    }
+
+    @Override
+    public Set<Entry<ConfigurableRateAttribute, DataCallback>> entrySet() {
+      final Subscription[][] all = subscribers;
+      final ConfigurableRateAttribute[] keys = attributes;
+      final Set<Entry<ConfigurableRateAttribute, DataCallback>> entries = new LinkedHashSet<>();
+      for (int id = 0; id < all.length; id++) {
+        if (all[id] != null) {
+          entries.add(new SimpleImmutableEntry<>(keys[id], dispatcherOf(keys[id])));
+        }
+      }
+      return Collections.unmodifiableSet(entries);
+    }
+
+    private DataCallback dispatcherOf(final ConfigurableRateAttribute attribute) {
+      return packet -> dispatch(attribute, packet);
+    }
+  }
+}
@@ -0,0 +1,110 @@
+package pl.agilevision.hardware.um7.callback;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * How packets reach a subscriber that can't keep up, see {@link Subscription}
+ */
+public final class DeliveryPolicy {
+
+  /**
+   * Policy kinds
+   */
+  public enum Kind {
+    /**
+     * Every packet, up to the queue limit of the executor delivery
+     */
+    ALL,
+    /**
+     * Only the newest packet, a pending packet is replaced by a newer one
+     */
+    LATEST,
+    /**
+     * At most N pending packets, the oldest one is dropped for a new one
+     */
+    DROP_OLDEST,
+    /**
+     * At most one packet per interval, packets arriving sooner are skipped
+     */
+    MAX_RATE
+  }
+
+  private static final DeliveryPolicy ALL = new DeliveryPolicy(Kind.ALL, 0, 0);
+  private static final DeliveryPolicy LATEST = new DeliveryPolicy(Kind.LATEST, 1, 0);
+
+  private final Kind kind;
+  private final int capacity;
+  private final long intervalNanos;
+
+  private DeliveryPolicy(final Kind kind, final int capacity, final long intervalNanos) {
+    this.kind = kind;
+    this.capacity = capacity;
+    this.intervalNanos = intervalNanos;
+  }
+
+  /**
+   * @return policy delivering every packet
+   */
+  public static DeliveryPolicy all() {
+    return ALL;
+  }
+
+  /**
+   * @return policy conflating pending packets into the newest one
+   */
+  public static DeliveryPolicy latest() {
+    return LATEST;
+  }
+
+  /**
+   * @param capacity maximal number of pending packets
+   * @return policy dropping the oldest pending packet when full
+   */
+  public static DeliveryPolicy dropOldest(final int capacity) {
+    if (capacity < 1) {
+      throw new IllegalArgumentException("Capacity must be positive");
+    }
+    return new DeliveryPolicy(Kind.DROP_OLDEST, capacity, 0);
+  }
+
+  /**
+   * @param hertz maximal number of packets per second
+   * @return policy skipping packets arriving sooner than 1/hertz after the last delivered one
+   */
+  public static DeliveryPolicy maxRate(final double hertz) {
+    if (!(hertz > 0)) {
+      throw new IllegalArgumentException("Rate must be positive");
+    }
+    return new DeliveryPolicy(Kind.MAX_RATE, 0, (long) (TimeUnit.SECONDS.toNanos(1) / hertz));
+  }
+
+  public Kind getKind() {
+    return kind;
+  }
+
+  /**
+   * @return maximal number of pending packets of LATEST and DROP_OLDEST, 0 otherwise
+   */
+  public int getCapacity() {
+    return capacity;
+  }
+
+  /**
+   * @return minimal interval between packets of MAX_RATE, 0 otherwise
+   */
+  public long getIntervalNanos() {
+    return intervalNanos;
+  }
+
+  @Override
+  public String toString() {
+    switch (kind) {
+      case DROP_OLDEST:
+        return "DROP_OLDEST(" + capacity + ")";
+      case MAX_RATE:
+        return String.format("MAX_RATE(%.1f Hz)", 1e9 / intervalNanos);
+      default:
+        return kind.name();
+    }
+  }
+}
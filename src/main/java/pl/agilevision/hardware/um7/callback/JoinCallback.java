@@ -0,0 +1,16 @@
+package pl.agilevision.hardware.um7.callback;
+
+import pl.agilevision.hardware.um7.data.join.JoinedRecord;
+
+/**
+ * Receives the aligned records of a {@link pl.agilevision.hardware.um7.data.join.StreamJoin}
+ */
+public interface JoinCallback {
+
+  /**
+   * Called once per tick of the leading stream. The record is reused, it must be copied to be
+   * kept after the call
+   * @param record values of all joined streams at the tick
+   */
+  void onRecord(JoinedRecord record);
+}
@@ -0,0 +1,50 @@
+package pl.agilevision.hardware.um7.callback;
+
+import pl.agilevision.hardware.um7.data.UM7Packet;
+import pl.agilevision.hardware.um7.data.attributes.ConfigurableRateAttribute;
+
+import java.util.Map;
+
+/**
+ * Hands parsed packets to the consumers of their attribute, see {@link CallbackRegistry}
+ */
+public interface PacketDispatcher {
+
+  /**
+   * Calls or queues the consumers of an attribute
+   * @param attribute packet attribute
+   * @param packet decoded packet
+   * @return true if the attribute has consumers
+   */
+  boolean dispatch(ConfigurableRateAttribute attribute, UM7Packet packet);
+
+  /**
+   * @param attribute packet attribute
+   * @return true if the attribute has consumers, so its packets are worth decoding
+   */
+  boolean hasSubscribers(ConfigurableRateAttribute attribute);
+
+  /**
+   * Dispatches to a plain map holding one callback per attribute
+   * @param callbacks callbacks by attribute
+   * @return dispatcher calling the callbacks on the dispatching thread
+   */
+  static PacketDispatcher of(final Map<ConfigurableRateAttribute, DataCallback> callbacks) {
+    return new PacketDispatcher() {
+      @Override
+      public boolean dispatch(final ConfigurableRateAttribute attribute, final UM7Packet packet) {
+        final DataCallback callback = callbacks.get(attribute);
+        if (callback == null) {
+          return false;
+        }
+        callback.onPacket(packet);
+        return true;
+      }
+
+      @Override
+      public boolean hasSubscribers(final ConfigurableRateAttribute attribute) {
+        return callbacks.containsKey(attribute);
+      }
+    };
+  }
+}
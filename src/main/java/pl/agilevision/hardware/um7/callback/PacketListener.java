@@ -0,0 +1,16 @@
+package pl.agilevision.hardware.um7.callback;
+
+import pl.agilevision.hardware.um7.data.binary.UM7BinaryPacket;
+
+/**
+ * Receives raw packets the client read on its own, e.g. broadcast data that arrived while
+ * the client was waiting for a command reply
+ */
+public interface PacketListener {
+
+  /**
+   * Called for every packet that is not the awaited reply
+   * @param packet packet
+   */
+  void onPacket(UM7BinaryPacket packet);
+}
@@ -0,0 +1,14 @@
+package pl.agilevision.hardware.um7.callback;
+
+/**
+ * Callback receiving typed data samples, see the {@code pl.agilevision.hardware.um7.data.sample} package
+ * @param <T> sample type
+ */
+public interface SampleCallback<T> {
+
+  /**
+   * Implement this method to catch data samples
+   * @param sample decoded sample
+   */
+  void onSample(T sample);
+}
@@ -0,0 +1,16 @@
+package pl.agilevision.hardware.um7.callback;
+
+import pl.agilevision.hardware.um7.data.UM7SampleFlyweight;
+
+/**
+ * Callback receiving broadcast data without any per-packet allocation
+ */
+public interface SampleFlyweightCallback {
+
+  /**
+   * Implement this method to catch data samples. The sample is reused for the next packet, so
+   * values must be read during the call and the sample must not be kept
+   * @param sample decoded view over the packet bytes
+   */
+  void onSample(UM7SampleFlyweight sample);
+}
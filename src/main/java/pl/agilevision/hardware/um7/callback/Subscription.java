@@ -0,0 +1,200 @@
+package pl.agilevision.hardware.um7.callback;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import pl.agilevision.hardware.um7.data.UM7Packet;
+import pl.agilevision.hardware.um7.data.attributes.ConfigurableRateAttribute;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Data callback registered for an attribute, with its delivery policy and counters. With executor
+ * delivery the subscription is a serial lane: at most one task of it runs at a time, so the callback
+ * sees packets in order, and a full lane drops packets instead of blocking the reader
+ */
+public final class Subscription implements Runnable {
+
+  private static final Logger LOG = LoggerFactory.getLogger(Subscription.class);
+
+  // packets delivered by one task before yielding the thread to other lanes
+  private static final int BATCH_SIZE = 64;
+
+  private final CallbackRegistry registry;
+  private final ConfigurableRateAttribute attribute;
+  private final DataCallback callback;
+  private final DeliveryPolicy policy;
+  private final Queue<UM7Packet> queue = new ConcurrentLinkedQueue<>();
+  private final AtomicReference<UM7Packet> latest = new AtomicReference<>();
+  private final AtomicInteger depth = new AtomicInteger();
+  private final AtomicBoolean scheduled = new AtomicBoolean();
+  private final AtomicLong delivered = new AtomicLong();
+  private final AtomicLong dropped = new AtomicLong();
+  private final AtomicLong conflated = new AtomicLong();
+  private final AtomicLong lastAccepted = new AtomicLong();
+  private volatile Executor executor;
+
+  Subscription(final CallbackRegistry registry, final ConfigurableRateAttribute attribute,
+               final DataCallback callback, final DeliveryPolicy policy) {
+    this.registry = registry;
+    this.attribute = attribute;
+    this.callback = callback;
+    this.policy = policy;
+  }
+
+  public ConfigurableRateAttribute getAttribute() {
+    return attribute;
+  }
+
+  public DataCallback getCallback() {
+    return callback;
+  }
+
+  public DeliveryPolicy getPolicy() {
+    return policy;
+  }
+
+  /**
+   * @return number of packets passed to the callback
+   */
+  public long getDelivered() {
+    return delivered.get();
+  }
+
+  /**
+   * @return number of packets dropped because the queue was full
+   */
+  public long getDropped() {
+    return dropped.get();
+  }
+
+  /**
+   * @return number of packets replaced by a newer one or skipped by the rate limit
+   */
+  public long getConflated() {
+    return conflated.get();
+  }
+
+  /**
+   * @return number of packets waiting for delivery
+   */
+  public int getQueueDepth() {
+    return depth.get();
+  }
+
+  /**
+   * Removes the callback from the registry, packets already queued are still delivered
+   */
+  public void unsubscribe() {
+    registry.remove(this);
+  }
+
+  /**
+   * Passes a packet according to the policy, either directly or through the executor
+   * @param packet packet
+   * @param executor executor running the deliveries or null to call the callback now
+   * @param limit maximal number of queued packets of the ALL and MAX_RATE policies
+   */
+  void offer(final UM7Packet packet, final Executor executor, final int limit) {
+    if (policy.getKind() == DeliveryPolicy.Kind.MAX_RATE && !acceptRate()) {
+      conflated.incrementAndGet();
+      return;
+    }
+    if (executor == null) {
+      deliver(packet);
+      return;
+    }
+    switch (policy.getKind()) {
+      case LATEST:
+        if (latest.getAndSet(packet) != null) {
+          conflated.incrementAndGet();
+        } else {
+          depth.incrementAndGet();
+        }
+        break;
+      case DROP_OLDEST:
+        queue.add(packet);
+        if (depth.incrementAndGet() > policy.getCapacity() && queue.poll() != null) {
+          depth.decrementAndGet();
+          dropped.incrementAndGet();
+        }
+        break;
+      default:
+        if (depth.incrementAndGet() > limit) {
+          depth.decrementAndGet();
+          if (dropped.getAndIncrement() == 0) {
+            LOG.warn("Callback of {} can't keep up, dropping packets", attribute.getRateConfName());
+          }
+          return;
+        }
+        queue.add(packet);
+    }
+    this.executor = executor;
+    schedule();
+  }
+
+  private boolean acceptRate() {
+    final long now = System.nanoTime();
+    final long last = lastAccepted.get();
+    return (last == 0 || now - last >= policy.getIntervalNanos()) && lastAccepted.compareAndSet(last, now);
+  }
+
+  private void deliver(final UM7Packet packet) {
+    callback.onPacket(packet);
+    delivered.incrementAndGet();
+  }
+
+  private void schedule() {
+    if (scheduled.compareAndSet(false, true)) {
+      try {
+        executor.execute(this);
+      } catch (final RejectedExecutionException e) {
+        scheduled.set(false);
+        LOG.warn("Callback executor rejected delivery", e);
+      }
+    }
+  }
+
+  private UM7Packet poll() {
+    final UM7Packet packet = policy.getKind() == DeliveryPolicy.Kind.LATEST ? latest.getAndSet(null) : queue.poll();
+    if (packet != null) {
+      depth.decrementAndGet();
+    }
+    return packet;
+  }
+
+  @Override
+  public void run() {
+    try {
+      for (int i = 0; i < BATCH_SIZE; i++) {
+        final UM7Packet packet = poll();
+        if (packet == null) {
+          break;
+        }
+        try {
+          deliver(packet);
+        } catch (final RuntimeException e) {
+          LOG.warn("Data callback failed", e);
+        }
+      }
+    } finally {
+      scheduled.set(false);
+      // packets queued while the flag was still set
+      if (depth.get() > 0) {
+        schedule();
+      }
+    }
+  }
+
+  @Override
+  public String toString() {
+    return String.format("Subscription{%s, %s, delivered=%d, dropped=%d, conflated=%d, depth=%d}",
+        attribute.getRateConfName(), policy, getDelivered(), getDropped(), getConflated(), getQueueDepth());
+  }
+}
@@ -0,0 +1,192 @@
+package pl.agilevision.hardware.um7.data;
+
+import pl.agilevision.hardware.um7.UM7Attributes;
+import pl.agilevision.hardware.um7.data.attributes.ConfigurableRateAttribute;
+import pl.agilevision.hardware.um7.data.attributes.Gps;
+import pl.agilevision.hardware.um7.data.attributes.nmea.NmeaAttitude;
+import pl.agilevision.hardware.um7.data.attributes.nmea.NmeaGpsPose;
+import pl.agilevision.hardware.um7.data.attributes.nmea.NmeaHealth;
+import pl.agilevision.hardware.um7.data.attributes.nmea.NmeaPose;
+import pl.agilevision.hardware.um7.data.attributes.nmea.NmeaQuaternion;
+import pl.agilevision.hardware.um7.data.attributes.nmea.NmeaRate;
+import pl.agilevision.hardware.um7.data.attributes.nmea.NmeaSensor;
+import pl.agilevision.hardware.um7.data.parser.RegisterLayout;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Assigns every attribute key of the binary and NMEA packets a dense integer id, so samples can
+ * keep values in arrays and sets of keys can be compared as bitmasks
+ */
+public final class AttributeRegistry {
+
+  private static final Map<String, Integer> IDS = new HashMap<>();
+  private static final List<String> KEYS = new ArrayList<>();
+  private static final List<Integer> GROUPS = new ArrayList<>();
+  private static final List<ConfigurableRateAttribute> ATTRIBUTES = new ArrayList<>();
+  private static final List<Integer> TIME_IDS = new ArrayList<>();
+  private static final String TIME_SUFFIX = "_time";
+  private static int groupCount;
+
+  static {
+    for (final RegisterLayout.Group group : RegisterLayout.groups()) {
+      register(group.getAttribute(), group.getKeys().toArray(new String[0]));
+    }
+    register(UM7Attributes.NMEA.Health, NmeaHealth.parseFormat);
+    register(UM7Attributes.NMEA.Pose, NmeaPose.parseFormat);
+    register(UM7Attributes.NMEA.Attitude, NmeaAttitude.parseFormat);
+    register(UM7Attributes.NMEA.Sensor, NmeaSensor.parseFormat);
+    register(UM7Attributes.NMEA.Rates, NmeaRate.parseFormat);
+    register(UM7Attributes.NMEA.GpsPose, NmeaGpsPose.parseFormat);
+    register(UM7Attributes.NMEA.Quaternion, NmeaQuaternion.parseFormat);
+  }
+
+  private AttributeRegistry() {
+  }
+
+  // keys registered together form a group and get consecutive ids
+  private static void register(final ConfigurableRateAttribute attribute, final String... keys) {
+    int timeId = -1;
+    for (final String key : keys) {
+      if (!IDS.containsKey(key)) {
+        IDS.put(key, KEYS.size());
+        KEYS.add(key);
+        GROUPS.add(groupCount);
+      }
+      // the GPS time is the UTC time of day reported by the receiver, not the device clock
+      if (key.endsWith(TIME_SUFFIX) && !key.equals(Gps.Time)) {
+        timeId = IDS.get(key);
+      }
+    }
+    ATTRIBUTES.add(attribute);
+    TIME_IDS.add(timeId);
+    groupCount++;
+  }
+
+  /**
+   * @param key attribute key
+   * @return id of the key or -1 if the key is unknown
+   */
+  public static int id(final String key) {
+    final Integer id = IDS.get(key);
+    return id != null ? id : -1;
+  }
+
+  /**
+   * @param id attribute id
+   * @return key with the given id
+   */
+  public static String key(final int id) {
+    return KEYS.get(id);
+  }
+
+  /**
+   * Returns the group of a key: a register group, in the order of
+   * {@link pl.agilevision.hardware.um7.data.parser.RegisterLayout#groups()}, or an NMEA sentence
+   * @param id attribute id
+   * @return group index
+   */
+  public static int group(final int id) {
+    return GROUPS.get(id);
+  }
+
+  /**
+   * @param group group index
+   * @return ids of the keys of a group in ascending order
+   */
+  public static int[] ids(final int group) {
+    final int first = GROUPS.indexOf(group);
+    if (first < 0) {
+      return new int[0];
+    }
+    final int last = GROUPS.lastIndexOf(group);
+    final int[] ids = new int[last - first + 1];
+    for (int i = 0; i < ids.length; i++) {
+      ids[i] = first + i;
+    }
+    return ids;
+  }
+
+  /**
+   * @param group group index
+   * @return attribute whose callbacks receive the packets of a group
+   */
+  public static ConfigurableRateAttribute attribute(final int group) {
+    return ATTRIBUTES.get(group);
+  }
+
+  /**
+   * @param group group index
+   * @return id of the device time key of a group or -1 if the group carries no device time, e.g.
+   * health, or GPS whose time is the UTC time of day
+   */
+  public static int timeId(final int group) {
+    return TIME_IDS.get(group);
+  }
+
+  /**
+   * @return mask of the register groups, the groups registered before the NMEA sentences
+   */
+  public static long registerGroups() {
+    return (1L << RegisterLayout.groups().size()) - 1;
+  }
+
+  /**
+   * Builds a mask of the groups holding the keys, there are less than 64 groups
+   * @param keys attribute keys
+   * @return mask with bit n set for group n
+   * @throws IllegalArgumentException if a key is unknown
+   */
+  public static long groupMask(final String... keys) {
+    long mask = 0;
+    for (final String key : keys) {
+      final int id = id(key);
+      if (id < 0) {
+        throw new IllegalArgumentException("Unknown attribute " + key);
+      }
+      mask |= 1L << group(id);
+    }
+    return mask;
+  }
+
+  /**
+   * @return number of groups, group indexes are in range [0, groupCount)
+   */
+  public static int groupCount() {
+    return groupCount;
+  }
+
+  /**
+   * @return number of known keys, ids are in range [0, size)
+   */
+  public static int size() {
+    return KEYS.size();
+  }
+
+  /**
+   * Builds a bitmask of keys to be checked with {@link UM7DataSample#containsAll(long[])}. Unknown
+   * keys are skipped
+   * @param keys attribute keys
+   * @return bitmask with one bit per id
+   */
+  public static long[] mask(final String... keys) {
+    final long[] mask = new long[words()];
+    for (final String key : keys) {
+      final int id = id(key);
+      if (id >= 0) {
+        mask[id >>> 6] |= 1L << id;
+      }
+    }
+    return mask;
+  }
+
+  /**
+   * @return number of longs in a bitmask covering all ids
+   */
+  static int words() {
+    return (KEYS.size() + 63) >>> 6;
+  }
+}
@@ -0,0 +1,146 @@
+package pl.agilevision.hardware.um7.data;
+
+import pl.agilevision.hardware.um7.UM7Client;
+import pl.agilevision.hardware.um7.data.attributes.ConfigurableRateAttribute;
+import pl.agilevision.hardware.um7.data.parser.RegisterLayout;
+
+/**
+ * Bounded history of the samples, one {@link TimeSeries} per tracked attribute group (a register
+ * group or an NMEA sentence). Groups are tracked on request, each with a fixed capacity, so the
+ * memory use doesn't grow with the session length
+ */
+public class SampleHistory {
+
+  // id of the time key of every group or -1
+  private static final int[] TIME_IDS = new int[AttributeRegistry.groupCount()];
+  // id following the last key of every group, the ids of a group are consecutive
+  private static final int[] GROUP_END = new int[AttributeRegistry.groupCount()];
+
+  static {
+    for (int group = 0; group < TIME_IDS.length; group++) {
+      TIME_IDS[group] = AttributeRegistry.timeId(group);
+    }
+    for (int id = 0; id < AttributeRegistry.size(); id++) {
+      GROUP_END[AttributeRegistry.group(id)] = id + 1;
+    }
+  }
+
+  private final UM7Client client;
+  private volatile TimeSeries[] series = new TimeSeries[AttributeRegistry.groupCount()];
+  // device time of the latest timed sample, used for the groups without a time register
+  private double lastTime = Double.NaN;
+
+  /**
+   * Creates a history fed only through {@link #record(UM7DataSample)}
+   */
+  public SampleHistory() {
+    this(null);
+  }
+
+  /**
+   * Creates a history whose tracked groups are decoded by a client in lazy mode, see
+   * {@link UM7Client#addWantedKeys(String...)}
+   * @param client client decoding the samples or null
+   */
+  public SampleHistory(final UM7Client client) {
+    this.client = client;
+  }
+
+  /**
+   * Starts keeping the history of the group of a key on the heap
+   * @param key attribute key, e.g. accel_proc_x for all processed accelerometer values
+   * @param capacity number of rows kept
+   * @return series of the group, the existing one if the group is already tracked
+   */
+  public TimeSeries track(final String key, final int capacity) {
+    return track(key, capacity, false);
+  }
+
+  /**
+   * Starts keeping the history of the group of a key
+   * @param key attribute key, e.g. accel_proc_x for all processed accelerometer values
+   * @param capacity number of rows kept
+   * @param direct true to keep the rows in an off-heap buffer
+   * @return series of the group, the existing one if the group is already tracked
+   * @throws IllegalArgumentException if the key is unknown
+   */
+  public synchronized TimeSeries track(final String key, final int capacity, final boolean direct) {
+    final int group = groupOf(key);
+    if (series[group] == null) {
+      final TimeSeries[] next = series.clone();
+      next[group] = new TimeSeries(group, TIME_IDS[group], capacity, direct);
+      series = next;
+      if (client != null) {
+        client.addWantedKeys(next[group].getKeys());
+      }
+    }
+    return series[group];
+  }
+
+  /**
+   * Starts keeping the history of a register group on the heap
+   * @param attribute attribute of the group, e.g. UM7Attributes.Accelerator.Processed
+   * @param capacity number of rows kept
+   * @return series of the group
+   * @throws IllegalArgumentException if no register group belongs to the attribute
+   */
+  public TimeSeries track(final ConfigurableRateAttribute attribute, final int capacity) {
+    for (final RegisterLayout.Group group : RegisterLayout.groups()) {
+      if (group.getAttribute() == attribute) {
+        return track(group.getKeys().get(0), capacity);
+      }
+    }
+    throw new IllegalArgumentException("No registers of " + attribute.getRateConfName());
+  }
+
+  /**
+   * Stops keeping the history of the group of a key and releases its buffer
+   * @param key attribute key
+   */
+  public synchronized void untrack(final String key) {
+    final int group = groupOf(key);
+    if (series[group] != null) {
+      final TimeSeries[] next = series.clone();
+      if (client != null) {
+        client.removeWantedKeys(series[group].getKeys());
+      }
+      next[group] = null;
+      series = next;
+    }
+  }
+
+  /**
+   * @param key attribute key
+   * @return series of the group of the key or null if the group isn't tracked
+   */
+  public TimeSeries get(final String key) {
+    final int id = AttributeRegistry.id(key);
+    return id >= 0 ? series[AttributeRegistry.group(id)] : null;
+  }
+
+  /**
+   * Appends a row to the series of every tracked group present in a sample
+   * @param sample new sample
+   */
+  public synchronized void record(final UM7DataSample sample) {
+    final TimeSeries[] current = series;
+    for (int id = sample.nextPresent(0); id >= 0; ) {
+      final int group = AttributeRegistry.group(id);
+      if (TIME_IDS[group] >= 0 && sample.has(TIME_IDS[group])) {
+        lastTime = sample.getDouble(TIME_IDS[group]);
+      }
+      if (current[group] != null) {
+        current[group].append(sample, lastTime);
+      }
+      id = sample.nextPresent(GROUP_END[group]);
+    }
+  }
+
+  private static int groupOf(final String key) {
+    final int id = AttributeRegistry.id(key);
+    if (id < 0) {
+      throw new IllegalArgumentException("Unknown attribute " + key);
+    }
+    return AttributeRegistry.group(id);
+  }
+}
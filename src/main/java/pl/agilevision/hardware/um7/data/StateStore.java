@@ -0,0 +1,175 @@
+package pl.agilevision.hardware.um7.data;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Latest value of every attribute known to {@link AttributeRegistry}, safe to read from any thread
+ * while samples are written. Every attribute group (a register group or an NMEA sentence) has a
+ * sequence number that is odd while the group is written, so readers get the values of a group
+ * from one sample without locks: they retry when the sequence changed under them
+ */
+public class StateStore {
+
+  private static final int[] GROUP_OF = new int[AttributeRegistry.size()];
+  private static final int[][] GROUP_IDS = new int[AttributeRegistry.groupCount()][];
+
+  static {
+    for (int id = 0; id < GROUP_OF.length; id++) {
+      GROUP_OF[id] = AttributeRegistry.group(id);
+    }
+    for (int group = 0; group < GROUP_IDS.length; group++) {
+      GROUP_IDS[group] = AttributeRegistry.ids(group);
+    }
+  }
+
+  private final AtomicLongArray values = new AtomicLongArray(AttributeRegistry.size());
+  private final AtomicLongArray present = new AtomicLongArray(AttributeRegistry.words());
+  private final AtomicLongArray sequences = new AtomicLongArray(AttributeRegistry.groupCount());
+  // boxed types of the values, written and read inside the sequence of their group; atomic like the
+  // values so a read can't be reordered past the validating sequence read
+  private final AtomicIntegerArray types = new AtomicIntegerArray(AttributeRegistry.size());
+
+  public StateStore() {
+    final long nan = Double.doubleToRawLongBits(Double.NaN);
+    for (int id = 0; id < values.length(); id++) {
+      values.set(id, nan);
+    }
+  }
+
+  /**
+   * Stores all values of a sample. Writers are serialized, readers are never blocked
+   * @param sample newer values
+   */
+  public synchronized void update(final UM7DataSample sample) {
+    int group = -1;
+    for (int id = sample.nextPresent(0); id >= 0; id = sample.nextPresent(id + 1)) {
+      if (GROUP_OF[id] != group) {
+        if (group >= 0) {
+          sequences.incrementAndGet(group);
+        }
+        group = GROUP_OF[id];
+        sequences.incrementAndGet(group);
+      }
+      types.set(id, sample.typeAt(id));
+      values.set(id, Double.doubleToRawLongBits(sample.valueAt(id)));
+      present.set(id >>> 6, present.get(id >>> 6) | 1L << id);
+    }
+    if (group >= 0) {
+      sequences.incrementAndGet(group);
+    }
+  }
+
+  /**
+   * @param id attribute id, see {@link AttributeRegistry#id(String)}
+   * @return latest value, booleans are 1 or 0, or NaN if none was stored
+   */
+  public double get(final int id) {
+    return Double.longBitsToDouble(values.get(id));
+  }
+
+  /**
+   * @param key attribute key
+   * @return latest value or NaN if none was stored or the key is unknown
+   */
+  public double get(final String key) {
+    final int id = AttributeRegistry.id(key);
+    return id >= 0 ? get(id) : Double.NaN;
+  }
+
+  /**
+   * Reads several values consistently: all values of one group come from the same sample, also
+   * when the ids belong to several groups. Doesn't allocate
+   * @param ids attribute ids, see {@link AttributeRegistry#id(String)}
+   * @param into array receiving the values in the order of the ids, NaN for values never stored
+   */
+  public void read(final int[] ids, final double[] into) {
+    while (true) {
+      // sequences only grow, so equal sums before and after mean no group was written meanwhile
+      final long before = sequenceSum(ids);
+      if (before < 0) {
+        continue;
+      }
+      for (int i = 0; i < ids.length; i++) {
+        into[i] = Double.longBitsToDouble(values.get(ids[i]));
+      }
+      if (sequenceSum(ids) == before) {
+        return;
+      }
+    }
+  }
+
+  /**
+   * Reads several values consistently, see {@link #read(int[], double[])}
+   * @param keys attribute keys, e.g. roll, pitch and yaw
+   * @return values in the order of the keys
+   * @throws IllegalArgumentException if a key is unknown
+   */
+  public double[] read(final String... keys) {
+    final int[] ids = new int[keys.length];
+    for (int i = 0; i < keys.length; i++) {
+      ids[i] = AttributeRegistry.id(keys[i]);
+      if (ids[i] < 0) {
+        throw new IllegalArgumentException("Unknown attribute " + keys[i]);
+      }
+    }
+    final double[] values = new double[ids.length];
+    read(ids, values);
+    return values;
+  }
+
+  /**
+   * @param id attribute id
+   * @return number of samples written to the group of an attribute
+   */
+  public long getUpdateCount(final int id) {
+    return sequences.get(GROUP_OF[id]) >>> 1;
+  }
+
+  /**
+   * Copies the latest values, each group consistent, with the types they were stored with
+   * @return new sample
+   */
+  public UM7DataSample snapshot() {
+    final UM7DataSample sample = new UM7DataSample();
+    for (int group = 0; group < GROUP_IDS.length; group++) {
+      final int[] groupIds = GROUP_IDS[group];
+      while (true) {
+        final long before = sequences.get(group);
+        if ((before & 1) != 0) {
+          continue;
+        }
+        for (final int id : groupIds) {
+          if ((present.get(id >>> 6) & 1L << id) != 0) {
+            sample.store(id, Double.longBitsToDouble(values.get(id)), (byte) types.get(id));
+          }
+        }
+        if (sequences.get(group) == before) {
+          break;
+        }
+      }
+    }
+    return sample;
+  }
+
+  /**
+   * @return sum of the sequences of the groups of the ids or -1 if one of them is being written
+   */
+  private long sequenceSum(final int[] ids) {
+    long sum = 0;
+    int last = -1;
+    for (final int id : ids) {
+      final int group = GROUP_OF[id];
+      if (group == last) {
+        continue;
+      }
+      final long sequence = sequences.get(group);
+      if ((sequence & 1) != 0) {
+        return -1;
+      }
+      sum += sequence;
+      last = group;
+    }
+    return sum;
+  }
+}
@@ -0,0 +1,231 @@
+package pl.agilevision.hardware.um7.data;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Ring buffer of the recent samples of one attribute group. The rows live in one preallocated
+ * buffer, column by column, so the memory use is fixed by the capacity. Rows are written by one
+ * thread and read from any thread through {@link Window}s, which index the ring without copying
+ */
+public final class TimeSeries {
+
+  private final int group;
+  private final String[] keys;
+  private final int[] ids;
+  private final int timeColumn;
+  private final int capacity;
+  private final DoubleBuffer data;
+  // number of rows ever written, row n is stored in slot n % capacity
+  private volatile long count;
+  // number of rows whose writing started, a slot is overwritten while claimed is ahead of count
+  private final AtomicLong claimed = new AtomicLong();
+
+  TimeSeries(final int group, final int timeId, final int capacity, final boolean direct) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("Capacity must be positive");
+    }
+    this.group = group;
+    this.ids = AttributeRegistry.ids(group);
+    this.keys = new String[ids.length];
+    int time = ids.length;
+    for (int i = 0; i < ids.length; i++) {
+      keys[i] = AttributeRegistry.key(ids[i]);
+      if (ids[i] == timeId) {
+        time = i;
+      }
+    }
+    // groups without a time register get an extra column
+    this.timeColumn = time;
+    this.capacity = capacity;
+    final int columns = time == ids.length ? ids.length + 1 : ids.length;
+    this.data = direct
+        ? ByteBuffer.allocateDirect(columns * capacity * 8).order(ByteOrder.nativeOrder()).asDoubleBuffer()
+        : DoubleBuffer.allocate(columns * capacity);
+  }
+
+  /**
+   * @return group index, see {@link AttributeRegistry#group(int)}
+   */
+  public int getGroup() {
+    return group;
+  }
+
+  /**
+   * @return keys of the columns
+   */
+  public String[] getKeys() {
+    return keys.clone();
+  }
+
+  /**
+   * @param key attribute key
+   * @return column of the key or -1 if the key isn't in the group
+   */
+  public int column(final String key) {
+    for (int i = 0; i < keys.length; i++) {
+      if (keys[i].equals(key)) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  public int getCapacity() {
+    return capacity;
+  }
+
+  /**
+   * @return true if the rows are stored off-heap
+   */
+  public boolean isDirect() {
+    return data.isDirect();
+  }
+
+  /**
+   * @return number of rows written since the series was created, including overwritten ones
+   */
+  public long getCount() {
+    return count;
+  }
+
+  /**
+   * @return number of rows held
+   */
+  public int size() {
+    return (int) Math.min(count, capacity);
+  }
+
+  /**
+   * Appends a row, values of the group missing from the sample are stored as NaN. Must not be
+   * called from several threads at once
+   * @param sample sample holding values of the group
+   * @param time device time of the row, used when the group has no time register
+   */
+  void append(final UM7DataSample sample, final double time) {
+    final long row = count;
+    final int slot = (int) (row % capacity);
+    // getAndSet is a full fence, the values below aren't visible before the claim
+    claimed.getAndSet(row + 1);
+    for (int i = 0; i < ids.length; i++) {
+      data.put(i * capacity + slot, sample.getDouble(ids[i]));
+    }
+    if (timeColumn == ids.length) {
+      data.put(timeColumn * capacity + slot, time);
+    }
+    count = row + 1;
+  }
+
+  /**
+   * @param n maximal number of rows
+   * @return view of the latest n rows, oldest first
+   */
+  public Window last(final int n) {
+    final long end = count;
+    final long start = Math.max(end - Math.min(n, capacity), Math.max(0, end - capacity));
+    return new Window(start, (int) (end - start));
+  }
+
+  /**
+   * Finds the rows with a device time in a range, assuming the device time doesn't go back
+   * @param from earliest device time in seconds, inclusive
+   * @param to latest device time in seconds, inclusive
+   * @return view of the rows, oldest first
+   */
+  public Window between(final double from, final double to) {
+    final long end = count;
+    final long oldest = Math.max(0, end - capacity);
+    final long start = firstNotBefore(oldest, end, from);
+    final long stop = firstNotBefore(start, end, Math.nextUp(to));
+    return new Window(start, (int) (stop - start));
+  }
+
+  // first row in [low, high) with a time not before the given one, or high
+  private long firstNotBefore(long low, long high, final double time) {
+    while (low < high) {
+      final long middle = (low + high) >>> 1;
+      if (timeAt(middle) < time) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    return low;
+  }
+
+  private double timeAt(final long row) {
+    return data.get(timeColumn * capacity + (int) (row % capacity));
+  }
+
+  /**
+   * Range of rows of the ring. Values are read from the ring on every call, so a window of a busy
+   * series is valid only until its oldest row is overwritten, see {@link #isValid()}
+   */
+  public final class Window {
+    private final long start;
+    private final int size;
+
+    private Window(final long start, final int size) {
+      this.start = start;
+      this.size = size;
+    }
+
+    public int size() {
+      return size;
+    }
+
+    /**
+     * @return position of the first row among all rows written to the series
+     */
+    public long getStart() {
+      return start;
+    }
+
+    /**
+     * @param row row of the window, 0 is the oldest
+     * @return device time of the row in seconds
+     */
+    public double getTime(final int row) {
+      return get(timeColumn, row);
+    }
+
+    /**
+     * @param column column, see {@link TimeSeries#column(String)}
+     * @param row row of the window, 0 is the oldest
+     * @return value, NaN if the sample of the row didn't hold it
+     */
+    public double get(final int column, final int row) {
+      if (row < 0 || row >= size) {
+        throw new IndexOutOfBoundsException("Row " + row + " of " + size);
+      }
+      return data.get(column * capacity + (int) ((start + row) % capacity));
+    }
+
+    /**
+     * Copies a column of the window
+     * @param column column, see {@link TimeSeries#column(String)}
+     * @param into array receiving at least {@link #size()} values
+     */
+    public void copy(final int column, final double[] into) {
+      final int offset = column * capacity;
+      final int first = (int) (start % capacity);
+      final int head = Math.min(size, capacity - first);
+      final DoubleBuffer source = data.duplicate();
+      source.position(offset + first);
+      source.get(into, 0, head);
+      source.position(offset);
+      source.get(into, head, size - head);
+    }
+
+    /**
+     * Checks whether the rows of the window were overwritten. Values read before a successful
+     * check are those of the window
+     * @return true while all rows of the window are held by the series
+     */
+    public boolean isValid() {
+      return claimed.get() - start <= capacity;
+    }
+  }
+}
@@ -1,28 +1,114 @@
 package pl.agilevision.hardware.um7.data;
 
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
 
 /**
- * Describes a data sample of the UM7
+ * Describes a data sample of the UM7. Values of the keys known to {@link AttributeRegistry} are
+ * kept in an array indexed by the key id together with a presence bitmask, any other key is kept
+ * in a map
  * @author Volodymyr Rudyi (volodymyr@agilevision.pl)
  */
 public class UM7DataSample {
-  private Map<String, Object> data;
 
+  /**
+   * Boxed type a value was stored with, so the map view returns the same type as was put
+   */
+  private enum Type {
+    DOUBLE, FLOAT, INT, SHORT, BYTE, BOOLEAN;
+
+    private static final Type[] VALUES = values();
+
+    private static Type of(final Object value) {
+      if (value instanceof Double) {
+        return DOUBLE;
+      } else if (value instanceof Float) {
+        return FLOAT;
+      } else if (value instanceof Integer) {
+        return INT;
+      } else if (value instanceof Short) {
+        return SHORT;
+      } else if (value instanceof Byte) {
+        return BYTE;
+      } else if (value instanceof Boolean) {
+        return BOOLEAN;
+      }
+      return null;
+    }
+
+    private Object box(final double value) {
+      switch (this) {
+        case FLOAT:
+          return (float) value;
+        case INT:
+          return (int) value;
+        case SHORT:
+          return (short) value;
+        case BYTE:
+          return (byte) value;
+        case BOOLEAN:
+          return value != 0;
+        default:
+          return value;
+      }
+    }
+  }
+
+  private final double[] values = new double[AttributeRegistry.size()];
+  private final byte[] types = new byte[AttributeRegistry.size()];
+  private final long[] present = new long[AttributeRegistry.words()];
+  private Map<String, Object> other;
+  private final Map<String, Object> view = new RawData();
+
+  /**
+   * Creates an empty sample
+   */
+  public UM7DataSample() {
+  }
+
+  /**
+   * Creates a sample holding a copy of the given values
+   * @param data attribute values
+   */
   public UM7DataSample(Map<String, Object> data) {
-    this.data = data;
+    if (data != null) {
+      for (final Map.Entry<String, Object> entry : data.entrySet()) {
+        put(entry.getKey(), entry.getValue());
+      }
+    }
   }
 
+  /**
+   * Overwrites the values of this sample with all values present in another one
+   * @param sample newer values
+   */
   public void update(UM7DataSample sample) {
-    this.data.putAll(sample.getRawData());
+    for (int word = 0; word < present.length; word++) {
+      long bits = sample.present[word];
+      present[word] |= bits;
+      while (bits != 0) {
+        final int id = word << 6 | Long.numberOfTrailingZeros(bits);
+        values[id] = sample.values[id];
+        types[id] = sample.types[id];
+        bits &= bits - 1;
+      }
+    }
+    if (sample.other != null && !sample.other.isEmpty()) {
+      others().putAll(sample.other);
+    }
   }
 
   /**
-   * Returns raw data
+   * Returns raw data as a map view backed by the sample
    * @return raw data
    */
   public Map<String, Object> getRawData() {
-    return data;
+    return view;
   }
 
   /**
@@ -33,7 +119,7 @@ public class UM7DataSample {
    * @return property value casted to T or null
    */
   public <T> T getValue(final String property, Class<T> type){
-    return (T)data.get(property);
+    return (T) getValue(property);
   }
 
   /**
@@ -42,12 +128,244 @@ public class UM7DataSample {
    */
 
   public Object getValue(final String property) {
-    return data.get(property);
+    final int id = AttributeRegistry.id(property);
+    if (id >= 0) {
+      return has(id) ? Type.VALUES[types[id]].box(values[id]) : null;
+    }
+    return other != null ? other.get(property) : null;
   }
 
 
   public boolean hasValue(final String property){
-    return data.containsKey(property);
+    final int id = AttributeRegistry.id(property);
+    if (id >= 0) {
+      return has(id);
+    }
+    return other != null && other.containsKey(property);
   }
 
+  /**
+   * @param id attribute id, see {@link AttributeRegistry#id(String)}
+   * @return true if the sample holds a value of the attribute
+   */
+  public boolean has(final int id) {
+    return (present[id >>> 6] & 1L << id) != 0;
+  }
+
+  /**
+   * Reads a value without boxing it
+   * @param id attribute id, see {@link AttributeRegistry#id(String)}
+   * @return value, booleans are 1 or 0, or NaN if the sample doesn't hold the attribute
+   */
+  public double getDouble(final int id) {
+    return has(id) ? values[id] : Double.NaN;
+  }
+
+  /**
+   * Stores a value without boxing it, the value is returned as a Double by the map view
+   * @param id attribute id, see {@link AttributeRegistry#id(String)}
+   * @param value attribute value
+   */
+  public void setDouble(final int id, final double value) {
+    values[id] = value;
+    types[id] = (byte) Type.DOUBLE.ordinal();
+    present[id >>> 6] |= 1L << id;
+  }
+
+  /**
+   * Checks at once whether the sample holds all attributes of a mask
+   * @param mask mask built by {@link AttributeRegistry#mask(String...)}
+   * @return true if all attributes of the mask are present
+   */
+  public boolean containsAll(final long[] mask) {
+    for (int word = 0; word < mask.length; word++) {
+      if ((present[word] & mask[word]) != mask[word]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * @param from first id to check
+   * @return smallest id not lower than from holding a value, or -1
+   */
+  int nextPresent(final int from) {
+    int word = from >>> 6;
+    if (word >= present.length) {
+      return -1;
+    }
+    long bits = present[word] & -1L << from;
+    while (bits == 0) {
+      if (++word == present.length) {
+        return -1;
+      }
+      bits = present[word];
+    }
+    return word << 6 | Long.numberOfTrailingZeros(bits);
+  }
+
+  double valueAt(final int id) {
+    return values[id];
+  }
+
+  byte typeAt(final int id) {
+    return types[id];
+  }
+
+  /**
+   * Stores a value with the type of another sample, see {@link #typeAt(int)}
+   */
+  void store(final int id, final double value, final byte type) {
+    values[id] = value;
+    types[id] = type;
+    present[id >>> 6] |= 1L << id;
+  }
+
+  private Object put(final String key, final Object value) {
+    final Object previous = getValue(key);
+    final int id = AttributeRegistry.id(key);
+    final Type type = Type.of(value);
+    if (id >= 0 && type != null) {
+      values[id] = type == Type.BOOLEAN ? ((Boolean) value ? 1 : 0) : ((Number) value).doubleValue();
+      types[id] = (byte) type.ordinal();
+      present[id >>> 6] |= 1L << id;
+      if (other != null) {
+        other.remove(key);
+      }
+    } else {
+      if (id >= 0) {
+        present[id >>> 6] &= ~(1L << id);
+      }
+      others().put(key, value);
+    }
+    return previous;
+  }
+
+  private Object remove(final String key) {
+    final Object previous = getValue(key);
+    final int id = AttributeRegistry.id(key);
+    if (id >= 0) {
+      present[id >>> 6] &= ~(1L << id);
+    }
+    if (other != null) {
+      other.remove(key);
+    }
+    return previous;
+  }
+
+  private Map<String, Object> others() {
+    if (other == null) {
+      other = new HashMap<>();
+    }
+    return other;
+  }
+
+  /**
+   * Map view of the sample, writes go through to the arrays
+   */
+  private final class RawData extends AbstractMap<String, Object> {
+
+    private final Set<Entry<String, Object>> entries = new AbstractSet<Entry<String, Object>>() {
+      @Override
+      public Iterator<Entry<String, Object>> iterator() {
+        return new Entries();
+      }
+
+      @Override
+      public int size() {
+        return RawData.this.size();
+      }
+    };
+
+    @Override
+    public Object get(final Object key) {
+      return key instanceof String ? getValue((String) key) : null;
+    }
+
+    @Override
+    public boolean containsKey(final Object key) {
+      return key instanceof String && hasValue((String) key);
+    }
+
+    @Override
+    public Object put(final String key, final Object value) {
+      return UM7DataSample.this.put(key, value);
+    }
+
+    @Override
+    public Object remove(final Object key) {
+      return key instanceof String ? UM7DataSample.this.remove((String) key) : null;
+    }
+
+    @Override
+    public int size() {
+      int size = other != null ? other.size() : 0;
+      for (final long bits : present) {
+        size += Long.bitCount(bits);
+      }
+      return size;
+    }
+
+    @Override
+    public Set<Entry<String, Object>> entrySet() {
+      return entries;
+    }
+  }
+
+  /**
+   * Iterates over the present array values first and the other keys after them
+   */
+  private final class Entries implements Iterator<Map.Entry<String, Object>> {
+    private int next = nextPresent(0);
+    private int last = -1;
+    private Iterator<Map.Entry<String, Object>> rest;
+
+    private int nextPresent(final int from) {
+      for (int id = from; id < values.length; id++) {
+        if (has(id)) {
+          return id;
+        }
+      }
+      return -1;
+    }
+
+    @Override
+    public boolean hasNext() {
+      if (next >= 0) {
+        return true;
+      }
+      if (rest == null) {
+        rest = other != null ? other.entrySet().iterator() : null;
+      }
+      return rest != null && rest.hasNext();
+    }
+
+    @Override
+    public Map.Entry<String, Object> next() {
+      if (next >= 0) {
+        last = next;
+        next = nextPresent(next + 1);
+        return new AbstractMap.SimpleImmutableEntry<>(AttributeRegistry.key(last),
+            Type.VALUES[types[last]].box(values[last]));
+      }
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      last = -1;
+      return rest.next();
+    }
+
+    @Override
+    public void remove() {
+      if (last >= 0) {
+        present[last >>> 6] &= ~(1L << last);
+        last = -1;
+      } else if (rest != null) {
+        rest.remove();
+      } else {
+        throw new IllegalStateException();
+      }
+    }
+  }
 }
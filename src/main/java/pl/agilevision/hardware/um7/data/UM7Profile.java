@@ -0,0 +1,131 @@
+package pl.agilevision.hardware.um7.data;
+
+import pl.agilevision.hardware.um7.UM7Constants;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Properties;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Device configuration profile: the configuration registers together with the hidden alignment and
+ * magnetometer reference registers. Profiles are serializable and can also be stored as properties
+ * files, one "0xADDRESS=0xVALUE" line per register
+ */
+public class UM7Profile implements Serializable {
+
+  private static final long serialVersionUID = 1L;
+
+  /**
+   * Baud rate bits of CREG_COM_SETTINGS. They are never applied from a profile, changing them
+   * would break the connection the profile is applied over
+   */
+  public static final int BAUD_RATE_MASK = 0xF0000000;
+
+  /**
+   * Register ranges making up a profile, pairs of first and last (inclusive) addresses
+   */
+  public static final int[][] RANGES = {
+      {UM7Constants.Registers.CREG_COM_SETTINGS, UM7Constants.Registers.CREG_MAG_BIAS_Z},
+      {UM7Constants.Registers.H_CREG_GYRO_ALIGN1_1, UM7Constants.Registers.H_CREG_GYRO_ALIGN1_1 + 8},
+      {UM7Constants.Registers.H_CREG_ACCEL_ALIGN1_1, UM7Constants.Registers.H_CREG_ACCEL_ALIGN1_1 + 8},
+      {UM7Constants.Registers.H_CREG_MAG_ALIGN1_1, UM7Constants.Registers.H_CREG_MAG_ALIGN1_1 + 8},
+      {UM7Constants.Registers.H_CREG_MAG_REF, UM7Constants.Registers.H_CREG_MAG_REF + 2},
+  };
+
+  private final SortedMap<Integer, Integer> registers = new TreeMap<>();
+
+  public UM7Profile() {
+  }
+
+  public UM7Profile(final Map<Integer, Integer> registers) {
+    this.registers.putAll(registers);
+  }
+
+  public void put(final int address, final int value) {
+    registers.put(address, value);
+  }
+
+  /**
+   * @return register value or null if the profile doesn't contain the register
+   */
+  public Integer get(final int address) {
+    return registers.get(address);
+  }
+
+  /**
+   * @return read-only view of the registers sorted by address
+   */
+  public SortedMap<Integer, Integer> getRegisters() {
+    return Collections.unmodifiableSortedMap(registers);
+  }
+
+  /**
+   * Computes the registers to write to turn a device configured as {@code current} into this profile.
+   * The baud rate bits of CREG_COM_SETTINGS are kept as they are on the device
+   * @param current profile captured from the device
+   * @return registers to write sorted by address
+   */
+  public SortedMap<Integer, Integer> diff(final UM7Profile current) {
+    final SortedMap<Integer, Integer> changes = new TreeMap<>();
+    for (final Map.Entry<Integer, Integer> register : registers.entrySet()) {
+      final Integer actual = current.get(register.getKey());
+      int wanted = register.getValue();
+      if (register.getKey() == UM7Constants.Registers.CREG_COM_SETTINGS && actual != null) {
+        wanted = (wanted & ~BAUD_RATE_MASK) | (actual & BAUD_RATE_MASK);
+      }
+      if (actual == null || actual != wanted) {
+        changes.put(register.getKey(), wanted);
+      }
+    }
+    return changes;
+  }
+
+  /**
+   * Writes the profile in the properties format
+   * @param out stream to write to
+   * @throws IOException if writing failed
+   */
+  public void store(final OutputStream out) throws IOException {
+    final Properties properties = new Properties();
+    for (final Map.Entry<Integer, Integer> register : registers.entrySet()) {
+      properties.setProperty(String.format("0x%04X", register.getKey()), String.format("0x%08X", register.getValue()));
+    }
+    properties.store(out, "UM7 profile");
+  }
+
+  /**
+   * Reads a profile written by {@link #store(OutputStream)}
+   * @param in stream to read from
+   * @return profile
+   * @throws IOException if reading failed or the stream is malformed
+   */
+  public static UM7Profile load(final InputStream in) throws IOException {
+    final Properties properties = new Properties();
+    properties.load(in);
+    final UM7Profile profile = new UM7Profile();
+    try {
+      for (final String address : properties.stringPropertyNames()) {
+        profile.put(Integer.decode(address), Long.decode(properties.getProperty(address)).intValue());
+      }
+    } catch (final NumberFormatException e) {
+      throw new IOException("Malformed profile", e);
+    }
+    return profile;
+  }
+
+  @Override
+  public boolean equals(final Object o) {
+    return o instanceof UM7Profile && registers.equals(((UM7Profile) o).registers);
+  }
+
+  @Override
+  public int hashCode() {
+    return registers.hashCode();
+  }
+}
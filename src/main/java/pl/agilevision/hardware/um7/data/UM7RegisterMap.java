@@ -0,0 +1,69 @@
+package pl.agilevision.hardware.um7.data;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Register values read from the UM7, keyed by register address
+ */
+public class UM7RegisterMap {
+  private final SortedMap<Integer, Integer> registers = new TreeMap<>();
+
+  public void put(final int address, final int value) {
+    registers.put(address, value);
+  }
+
+  public boolean contains(final int address) {
+    return registers.containsKey(address);
+  }
+
+  /**
+   * Returns a register value as an integer
+   * @param address register address
+   * @return register value
+   * @throws IllegalArgumentException if the register wasn't read
+   */
+  public int getInt(final int address) {
+    final Integer value = registers.get(address);
+    if (value == null) {
+      throw new IllegalArgumentException(String.format("Register 0x%X wasn't read", address));
+    }
+    return value;
+  }
+
+  /**
+   * Returns a register value as an IEEE 754 float, used by the trim, calibration and home registers
+   * @param address register address
+   * @return register value
+   * @throws IllegalArgumentException if the register wasn't read
+   */
+  public float getFloat(final int address) {
+    return Float.intBitsToFloat(getInt(address));
+  }
+
+  /**
+   * Returns all register values
+   * @return read-only view of the registers sorted by address
+   */
+  public SortedMap<Integer, Integer> getRegisters() {
+    return Collections.unmodifiableSortedMap(registers);
+  }
+
+  public int size() {
+    return registers.size();
+  }
+
+  @Override
+  public String toString() {
+    final StringBuilder sb = new StringBuilder("{");
+    for (final Map.Entry<Integer, Integer> register : registers.entrySet()) {
+      if (sb.length() > 1) {
+        sb.append(", ");
+      }
+      sb.append(String.format("0x%X=0x%08X", register.getKey(), register.getValue()));
+    }
+    return sb.append('}').toString();
+  }
+}
@@ -0,0 +1,204 @@
+package pl.agilevision.hardware.um7.data;
+
+import pl.agilevision.hardware.um7.data.attributes.ConfigurableRateAttribute;
+import pl.agilevision.hardware.um7.data.parser.RegisterLayout;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Reusable view decoding primitives straight from the bytes of a data register batch. Wrapping a
+ * packet and reading values doesn't allocate, so one instance can decode a whole stream
+ */
+public class UM7SampleFlyweight {
+
+  private static final Map<String, Location> LOCATIONS = new HashMap<>();
+  private static final Map<ConfigurableRateAttribute, RegisterLayout.Group> GROUPS = new IdentityHashMap<>();
+
+  static {
+    for (final RegisterLayout.Group group : RegisterLayout.groups()) {
+      GROUPS.put(group.getAttribute(), group);
+      for (int address = group.getFirst(); address <= group.getLast(); address++) {
+        for (final RegisterLayout.Field field : RegisterLayout.fields(address)) {
+          LOCATIONS.put(field.getKey(), new Location(address, field));
+        }
+      }
+    }
+  }
+
+  /**
+   * Register address and field of an attribute key
+   */
+  private static final class Location {
+    private final int address;
+    private final RegisterLayout.Field field;
+
+    private Location(final int address, final RegisterLayout.Field field) {
+      this.address = address;
+      this.field = field;
+    }
+  }
+
+  private ByteBuffer buffer;
+  private byte[] array;
+  private int base;
+  private int startAddress;
+  private int registerCount;
+
+  /**
+   * Points the view at a packet held in a buffer, from its position to its limit
+   * @param startAddress address of the first register
+   * @param buffer packet data, not copied
+   * @return this view
+   */
+  public UM7SampleFlyweight wrap(final int startAddress, final ByteBuffer buffer) {
+    this.buffer = buffer;
+    this.array = null;
+    this.base = buffer.position();
+    this.startAddress = startAddress;
+    this.registerCount = buffer.remaining() / RegisterLayout.REGISTER_SIZE;
+    return this;
+  }
+
+  /**
+   * Points the view at a packet held in an array. Wrapping the same array again doesn't allocate
+   * @param startAddress address of the first register
+   * @param data array holding the packet data, not copied
+   * @param offset data offset in the array
+   * @param length data length
+   * @return this view
+   */
+  public UM7SampleFlyweight wrap(final int startAddress, final byte[] data, final int offset, final int length) {
+    if (data != array) {
+      buffer = ByteBuffer.wrap(data);
+      array = data;
+    }
+    this.base = offset;
+    this.startAddress = startAddress;
+    this.registerCount = length / RegisterLayout.REGISTER_SIZE;
+    return this;
+  }
+
+  public int getStartAddress() {
+    return startAddress;
+  }
+
+  public int getRegisterCount() {
+    return registerCount;
+  }
+
+  /**
+   * @param key attribute key, e.g. {@link pl.agilevision.hardware.um7.data.attributes.Euler#Roll}
+   * @return true if the sample holds the key
+   */
+  public boolean has(final String key) {
+    final Location location = LOCATIONS.get(key);
+    return location != null && covers(location.address);
+  }
+
+  /**
+   * @param attribute rate attribute, e.g. {@link pl.agilevision.hardware.um7.UM7Attributes#Euler}
+   * @return true if the sample holds all registers of the attribute
+   */
+  public boolean contains(final ConfigurableRateAttribute attribute) {
+    final RegisterLayout.Group group = GROUPS.get(attribute);
+    return group != null && covers(group.getFirst()) && covers(group.getLast());
+  }
+
+  /**
+   * Returns a value scaled the same way as in {@link UM7Packet} attributes
+   * @param key attribute key
+   * @return value, or NaN if the sample doesn't hold the key
+   * @throws IllegalArgumentException if the key isn't a binary data key
+   */
+  public double getDouble(final String key) {
+    final Location location = locate(key);
+    if (!covers(location.address)) {
+      return Double.NaN;
+    }
+    final int at = offsetOf(location);
+    final RegisterLayout.Field field = location.field;
+    switch (field.getType()) {
+      case INT:
+        return readInt(at);
+      case FLOAT:
+        return Float.intBitsToFloat(readInt(at));
+      case SHORT:
+        return field.getDivider() != 0 ? readShort(at) / field.getDivider() : readShort(at);
+      default:
+        return buffer.get(at);
+    }
+  }
+
+  /**
+   * @param key attribute key
+   * @return value as a float, or NaN if the sample doesn't hold the key
+   * @throws IllegalArgumentException if the key isn't a binary data key
+   */
+  public float getFloat(final String key) {
+    return (float) getDouble(key);
+  }
+
+  /**
+   * Returns the unscaled integer value of an int, short or byte field, e.g. health flags or a
+   * satellite id
+   * @param key attribute key
+   * @return raw value, or 0 if the sample doesn't hold the key
+   * @throws IllegalArgumentException if the key isn't a binary data key
+   */
+  public int getInt(final String key) {
+    final Location location = locate(key);
+    if (!covers(location.address)) {
+      return 0;
+    }
+    final int at = offsetOf(location);
+    switch (location.field.getType()) {
+      case INT:
+        return readInt(at);
+      case FLOAT:
+        return (int) Float.intBitsToFloat(readInt(at));
+      case SHORT:
+        return readShort(at);
+      default:
+        return buffer.get(at);
+    }
+  }
+
+  /**
+   * @param address register address
+   * @return raw 32-bit register value, or 0 if the sample doesn't hold the register
+   */
+  public int getRegister(final int address) {
+    if (!covers(address)) {
+      return 0;
+    }
+    return readInt(base + (address - startAddress) * RegisterLayout.REGISTER_SIZE);
+  }
+
+  private static Location locate(final String key) {
+    final Location location = LOCATIONS.get(key);
+    if (location == null) {
+      throw new IllegalArgumentException("Unknown attribute " + key);
+    }
+    return location;
+  }
+
+  private boolean covers(final int address) {
+    return address >= startAddress && address < startAddress + registerCount;
+  }
+
+  private int offsetOf(final Location location) {
+    return base + (location.address - startAddress) * RegisterLayout.REGISTER_SIZE + location.field.getOffset();
+  }
+
+  private int readInt(final int at) {
+    return (buffer.get(at) & 0xFF) << 24 | (buffer.get(at + 1) & 0xFF) << 16
+        | (buffer.get(at + 2) & 0xFF) << 8 | (buffer.get(at + 3) & 0xFF);
+  }
+
+  private short readShort(final int at) {
+    return (short) ((buffer.get(at) & 0xFF) << 8 | (buffer.get(at + 1) & 0xFF));
+  }
+}
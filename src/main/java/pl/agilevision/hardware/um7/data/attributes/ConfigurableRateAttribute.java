@@ -1,11 +1,16 @@
 package pl.agilevision.hardware.um7.data.attributes;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
 /**
  * Rate configuration
  * @author Ivan Borschov (iborschov@agilevision.pl)
  * @author Volodymyr Rudyi (volodymyr@agilevision.pl)
  */
 public class ConfigurableRateAttribute {
+  private static final AtomicInteger NEXT_ID = new AtomicInteger();
+
+  private final int id = NEXT_ID.getAndIncrement();
   private int rateConfRegisterAddress;
   private int rateConfBitOffset;
   private int rateConfWidth;
@@ -36,4 +41,11 @@ public class ConfigurableRateAttribute {
 
   public String getRateConfName() { return rateConfName; }
 
+  /**
+   * @return small unique number of the attribute instance, used to index callbacks
+   */
+  public int getId() {
+    return id;
+  }
+
 }
@@ -15,6 +15,11 @@ public class UM7BinaryPacket extends UM7Packet {
     public boolean commandfailed;
     public boolean timeout;
     public boolean isNmeaPacket;
+    /**
+     * {@link System#nanoTime()} when the chunk holding the end of the frame was read, 0 for packets
+     * that weren't read from the device
+     */
+    public long receivedNanos;
 
     public UM7BinaryPacket(boolean foundpacket, boolean hasdata, int startaddress, byte[] data, boolean commandfailed, boolean timeout) {
         this.foundpacket = foundpacket;
@@ -0,0 +1,85 @@
+package pl.agilevision.hardware.um7.data.join;
+
+import java.util.Arrays;
+
+/**
+ * Values of several attribute groups aligned to one device time
+ */
+public final class JoinedRecord {
+
+  private final String[] keys;
+  private final double[] values;
+  private double time;
+
+  JoinedRecord(final String[] keys) {
+    this.keys = keys;
+    this.values = new double[keys.length];
+  }
+
+  /**
+   * @return device time of the tick in seconds
+   */
+  public double getTime() {
+    return time;
+  }
+
+  /**
+   * @return keys of the columns, the leading group first
+   */
+  public String[] getKeys() {
+    return keys.clone();
+  }
+
+  /**
+   * @param key attribute key
+   * @return column of the key or -1 if the key isn't joined
+   */
+  public int column(final String key) {
+    for (int i = 0; i < keys.length; i++) {
+      if (keys[i].equals(key)) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * @param column column, see {@link #column(String)}
+   * @return value aligned to the tick
+   */
+  public double get(final int column) {
+    return values[column];
+  }
+
+  /**
+   * @param key attribute key
+   * @return value aligned to the tick or NaN if the key isn't joined
+   */
+  public double get(final String key) {
+    final int column = column(key);
+    return column >= 0 ? values[column] : Double.NaN;
+  }
+
+  /**
+   * @return copy that can be kept after the callback returned
+   */
+  public JoinedRecord copy() {
+    final JoinedRecord copy = new JoinedRecord(keys);
+    copy.time = time;
+    System.arraycopy(values, 0, copy.values, 0, values.length);
+    return copy;
+  }
+
+  void setTime(final double time) {
+    this.time = time;
+  }
+
+  double[] values() {
+    return values;
+  }
+
+  @Override
+  public String toString() {
+    return "JoinedRecord{time=" + time + ", keys=" + Arrays.toString(keys) + ", values=" + Arrays.toString(values) + "}";
+  }
+}
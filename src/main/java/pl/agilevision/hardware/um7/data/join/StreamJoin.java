@@ -0,0 +1,401 @@
+package pl.agilevision.hardware.um7.data.join;
+
+import pl.agilevision.hardware.um7.UM7Client;
+import pl.agilevision.hardware.um7.callback.JoinCallback;
+import pl.agilevision.hardware.um7.callback.Subscription;
+import pl.agilevision.hardware.um7.data.AttributeRegistry;
+import pl.agilevision.hardware.um7.data.UM7DataSample;
+import pl.agilevision.hardware.um7.data.UM7Packet;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Aligns attribute groups arriving in separate packets by their device time. Every sample of the
+ * leading group is a tick, the joined groups are resampled to the time of the tick and one record
+ * per tick is passed to the callback. Each group keeps a fixed number of rows, a tick is emitted
+ * as soon as every joined group has a row at or after it, or once the device time moved past the
+ * tolerance
+ */
+public class StreamJoin {
+
+  /**
+   * How a joined group is resampled to the time of a tick. Every row used must be within the
+   * tolerance of the tick
+   */
+  public enum Mode {
+    /** row closest to the tick */
+    NEAREST,
+    /** latest row not after the tick */
+    SAMPLE_AND_HOLD,
+    /** linear interpolation of the rows around the tick */
+    LINEAR,
+    /** spherical interpolation of the rows around the tick, for quaternion groups */
+    SLERP
+  }
+
+  private static final int DEFAULT_CAPACITY = 32;
+  // above this cosine the quaternions are interpolated linearly
+  private static final double SLERP_THRESHOLD = 0.9995;
+
+  private final Stream leader;
+  private final List<Stream> joined = new ArrayList<>();
+  private final double tolerance;
+  private final int capacity;
+  private final JoinCallback callback;
+  private JoinedRecord record;
+  // leader row of the oldest tick not emitted yet
+  private long nextTick;
+  private double latestTime = Double.NEGATIVE_INFINITY;
+  private long emitted;
+  private long dropped;
+
+  /**
+   * @param leadingKey key of the group whose samples are the ticks, e.g. gyro_proc_x
+   * @param tolerance maximal distance in seconds between a tick and the rows aligned to it
+   * @param callback callback receiving the records
+   */
+  public StreamJoin(final String leadingKey, final double tolerance, final JoinCallback callback) {
+    this(leadingKey, tolerance, DEFAULT_CAPACITY, callback);
+  }
+
+  /**
+   * @param leadingKey key of the group whose samples are the ticks, e.g. gyro_proc_x
+   * @param tolerance maximal distance in seconds between a tick and the rows aligned to it
+   * @param capacity number of rows kept per group, also the maximal number of pending ticks
+   * @param callback callback receiving the records
+   * @throws IllegalArgumentException if the key is unknown or its group carries no device time
+   */
+  public StreamJoin(final String leadingKey, final double tolerance, final int capacity,
+                    final JoinCallback callback) {
+    if (capacity < 2) {
+      throw new IllegalArgumentException("Capacity must be at least 2");
+    }
+    this.tolerance = tolerance;
+    this.capacity = capacity;
+    this.callback = callback;
+    this.leader = new Stream(groupOf(leadingKey), Mode.SAMPLE_AND_HOLD, capacity);
+  }
+
+  /**
+   * Adds a group aligned to the ticks
+   * @param key key of the group, e.g. accel_proc_x
+   * @param mode resampling mode
+   * @return this join
+   * @throws IllegalArgumentException if the group is already joined, carries no device time, or
+   * isn't a quaternion for {@link Mode#SLERP}
+   * @throws IllegalStateException if samples were already offered
+   */
+  public synchronized StreamJoin join(final String key, final Mode mode) {
+    if (record != null) {
+      throw new IllegalStateException("Groups can't be joined after the first sample");
+    }
+    final int group = groupOf(key);
+    if (group == leader.group) {
+      throw new IllegalArgumentException("Group of " + key + " is the leading group");
+    }
+    for (final Stream stream : joined) {
+      if (stream.group == group) {
+        throw new IllegalArgumentException("Group of " + key + " is already joined");
+      }
+    }
+    final Stream stream = new Stream(group, mode, capacity);
+    if (mode == Mode.SLERP && stream.ids.length != 4) {
+      throw new IllegalArgumentException("Group of " + key + " isn't a quaternion");
+    }
+    joined.add(stream);
+    return this;
+  }
+
+  /**
+   * Registers data callbacks feeding the join with the packets of all its groups. The callbacks
+   * fire where the packets are parsed, e.g. on the reader thread started with
+   * {@link UM7Client#startReader(boolean)} in dispatching mode
+   * @param client client dispatching the packets
+   * @return subscriptions, to be removed to stop the join
+   */
+  public List<Subscription> subscribe(final UM7Client client) {
+    final List<Subscription> subscriptions = new ArrayList<>();
+    subscriptions.add(client.registerCallback(AttributeRegistry.attribute(leader.group), this::offer));
+    for (final Stream stream : joined) {
+      subscriptions.add(client.registerCallback(AttributeRegistry.attribute(stream.group), this::offer));
+    }
+    return subscriptions;
+  }
+
+  /**
+   * Feeds the groups present in a sample, records of the ticks that can be aligned are emitted
+   * @param sample new sample
+   */
+  public synchronized void offer(final UM7DataSample sample) {
+    start();
+    for (final Stream stream : joined) {
+      if (sample.has(stream.timeId)) {
+        for (int i = 0; i < stream.ids.length; i++) {
+          stream.scratch[i] = sample.getDouble(stream.ids[i]);
+        }
+        push(stream, sample.getDouble(stream.timeId));
+      }
+    }
+    if (sample.has(leader.timeId)) {
+      for (int i = 0; i < leader.ids.length; i++) {
+        leader.scratch[i] = sample.getDouble(leader.ids[i]);
+      }
+      push(leader, sample.getDouble(leader.timeId));
+    }
+    drain(false);
+  }
+
+  /**
+   * Feeds the groups present in a packet, see {@link #offer(UM7DataSample)}
+   * @param packet decoded packet
+   */
+  public synchronized void offer(final UM7Packet packet) {
+    start();
+    final Map<String, Object> attributes = packet.getAttributes();
+    for (final Stream stream : joined) {
+      offer(stream, attributes);
+    }
+    offer(leader, attributes);
+    drain(false);
+  }
+
+  /**
+   * Emits all pending ticks with the rows received so far, e.g. at the end of a recording
+   */
+  public synchronized void flush() {
+    drain(true);
+  }
+
+  /**
+   * @return number of records passed to the callback
+   */
+  public synchronized long getEmitted() {
+    return emitted;
+  }
+
+  /**
+   * @return number of ticks dropped because a joined group had no rows within the tolerance
+   */
+  public synchronized long getDropped() {
+    return dropped;
+  }
+
+  private void start() {
+    if (record == null) {
+      final List<String> keys = new ArrayList<>();
+      leader.addKeys(keys);
+      for (final Stream stream : joined) {
+        stream.addKeys(keys);
+      }
+      record = new JoinedRecord(keys.toArray(new String[0]));
+    }
+  }
+
+  private void offer(final Stream stream, final Map<String, Object> attributes) {
+    final Object time = attributes.get(AttributeRegistry.key(stream.timeId));
+    if (!(time instanceof Number)) {
+      return;
+    }
+    for (int i = 0; i < stream.ids.length; i++) {
+      final Object value = attributes.get(AttributeRegistry.key(stream.ids[i]));
+      stream.scratch[i] = value instanceof Number ? ((Number) value).doubleValue()
+          : value instanceof Boolean ? ((Boolean) value ? 1 : 0) : Double.NaN;
+    }
+    push(stream, ((Number) time).doubleValue());
+  }
+
+  private void push(final Stream stream, final double time) {
+    if (stream == leader && leader.count - nextTick >= capacity) {
+      // the oldest tick would be overwritten, it is emitted with the rows received so far
+      emit(leader.times[leader.slot(nextTick)], leader.slot(nextTick));
+      nextTick++;
+    }
+    stream.push(time);
+    latestTime = Math.max(latestTime, time);
+  }
+
+  private void drain(final boolean force) {
+    while (nextTick < leader.count) {
+      final int slot = leader.slot(nextTick);
+      final double tick = leader.times[slot];
+      if (!force && latestTime <= tick + tolerance) {
+        for (final Stream stream : joined) {
+          if (stream.count == 0 || stream.times[stream.slot(stream.count - 1)] < tick) {
+            return;
+          }
+        }
+      }
+      nextTick++;
+      emit(tick, slot);
+    }
+  }
+
+  private void emit(final double tick, final int slot) {
+    final double[] values = record.values();
+    System.arraycopy(leader.rows, slot * leader.ids.length, values, 0, leader.ids.length);
+    int at = leader.ids.length;
+    for (final Stream stream : joined) {
+      if (!stream.resample(tick, tolerance, values, at)) {
+        dropped++;
+        return;
+      }
+      at += stream.ids.length;
+    }
+    record.setTime(tick);
+    emitted++;
+    callback.onRecord(record);
+  }
+
+  private static int groupOf(final String key) {
+    final int id = AttributeRegistry.id(key);
+    if (id < 0) {
+      throw new IllegalArgumentException("Unknown attribute " + key);
+    }
+    final int group = AttributeRegistry.group(id);
+    if (AttributeRegistry.timeId(group) < 0) {
+      throw new IllegalArgumentException("Group of " + key + " carries no device time");
+    }
+    return group;
+  }
+
+  /**
+   * Ring of the latest rows of one group, rows are expected in device time order
+   */
+  private static final class Stream {
+    private final int group;
+    private final int timeId;
+    // ids of the values of the group, without the time
+    private final int[] ids;
+    private final Mode mode;
+    private final double[] times;
+    private final double[] rows;
+    private final double[] scratch;
+    private long count;
+
+    private Stream(final int group, final Mode mode, final int capacity) {
+      this.group = group;
+      this.timeId = AttributeRegistry.timeId(group);
+      final int[] all = AttributeRegistry.ids(group);
+      this.ids = new int[all.length - 1];
+      int i = 0;
+      for (final int id : all) {
+        if (id != timeId) {
+          ids[i++] = id;
+        }
+      }
+      this.mode = mode;
+      this.times = new double[capacity];
+      this.rows = new double[capacity * ids.length];
+      this.scratch = new double[ids.length];
+    }
+
+    private void addKeys(final List<String> keys) {
+      for (final int id : ids) {
+        keys.add(AttributeRegistry.key(id));
+      }
+    }
+
+    private int slot(final long row) {
+      return (int) (row % times.length);
+    }
+
+    private void push(final double time) {
+      final int slot = slot(count);
+      times[slot] = time;
+      System.arraycopy(scratch, 0, rows, slot * ids.length, ids.length);
+      count++;
+    }
+
+    /**
+     * Writes the values of the group at a tick
+     * @return false if the rows needed by the mode aren't within the tolerance
+     */
+    private boolean resample(final double tick, final double tolerance, final double[] into, final int at) {
+      // latest row not after the tick and oldest row not before it
+      int before = -1;
+      int after = -1;
+      for (long row = count - 1; row >= Math.max(0, count - times.length); row--) {
+        final int slot = slot(row);
+        if (times[slot] >= tick) {
+          after = slot;
+        }
+        if (times[slot] <= tick) {
+          before = slot;
+          break;
+        }
+      }
+      if (before >= 0 && tick - times[before] > tolerance) {
+        before = -1;
+      }
+      if (after >= 0 && times[after] - tick > tolerance) {
+        after = -1;
+      }
+      switch (mode) {
+        case SAMPLE_AND_HOLD:
+          return before >= 0 && copy(before, into, at);
+        case NEAREST:
+          if (before >= 0 && (after < 0 || tick - times[before] <= times[after] - tick)) {
+            return copy(before, into, at);
+          }
+          return after >= 0 && copy(after, into, at);
+        default:
+          if (before >= 0 && times[before] == tick) {
+            return copy(before, into, at);
+          }
+          if (before < 0 || after < 0) {
+            return false;
+          }
+          final double weight = (tick - times[before]) / (times[after] - times[before]);
+          if (mode == Mode.SLERP) {
+            slerp(before, after, weight, into, at);
+          } else {
+            for (int i = 0; i < ids.length; i++) {
+              final double from = rows[before * ids.length + i];
+              into[at + i] = from + (rows[after * ids.length + i] - from) * weight;
+            }
+          }
+          return true;
+      }
+    }
+
+    private boolean copy(final int slot, final double[] into, final int at) {
+      System.arraycopy(rows, slot * ids.length, into, at, ids.length);
+      return true;
+    }
+
+    private void slerp(final int before, final int after, final double weight, final double[] into, final int at) {
+      final int from = before * 4;
+      final int to = after * 4;
+      double dot = 0;
+      double fromNorm = 0;
+      double toNorm = 0;
+      for (int i = 0; i < 4; i++) {
+        dot += rows[from + i] * rows[to + i];
+        fromNorm += rows[from + i] * rows[from + i];
+        toNorm += rows[to + i] * rows[to + i];
+      }
+      // q and -q are the same rotation, take the shorter arc
+      final double sign = dot < 0 ? -1 : 1;
+      final double cos = Math.min(1, Math.abs(dot) / Math.sqrt(fromNorm * toNorm));
+      double fromWeight = 1 - weight;
+      double toWeight = weight;
+      if (cos < SLERP_THRESHOLD) {
+        final double angle = Math.acos(cos);
+        final double sin = Math.sin(angle);
+        fromWeight = Math.sin((1 - weight) * angle) / sin;
+        toWeight = Math.sin(weight * angle) / sin;
+      }
+      double norm = 0;
+      for (int i = 0; i < 4; i++) {
+        into[at + i] = fromWeight * rows[from + i] + sign * toWeight * rows[to + i];
+        norm += into[at + i] * into[at + i];
+      }
+      norm = Math.sqrt(norm);
+      for (int i = 0; i < 4; i++) {
+        into[at + i] /= norm;
+      }
+    }
+  }
+}
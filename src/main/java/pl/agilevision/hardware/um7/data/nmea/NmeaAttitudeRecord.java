@@ -0,0 +1,58 @@
+package pl.agilevision.hardware.um7.data.nmea;
+
+import pl.agilevision.hardware.um7.UM7Attributes;
+import pl.agilevision.hardware.um7.data.attributes.nmea.NmeaAttitude;
+
+/**
+ * NMEA attitude, sentence $PCHRA
+ */
+public class NmeaAttitudeRecord extends NmeaRecord {
+
+  private static final Column[] COLUMNS = {
+    Column.DOUBLE, Column.DOUBLE, Column.DOUBLE, Column.DOUBLE, Column.DOUBLE
+  };
+
+  public NmeaAttitudeRecord() {
+    super(UM7Attributes.NMEA.Attitude, NmeaAttitude.parseFormat, COLUMNS, 4);
+  }
+
+  @Override
+  public char getSentenceType() {
+    return 'A';
+  }
+
+  /**
+   * @return time of the sentence
+   */
+  public double getTime() {
+    return get(0);
+  }
+
+  /**
+   * @return roll, degrees
+   */
+  public double getRoll() {
+    return get(1);
+  }
+
+  /**
+   * @return pitch, degrees
+   */
+  public double getPitch() {
+    return get(2);
+  }
+
+  /**
+   * @return yaw, degrees
+   */
+  public double getYaw() {
+    return get(3);
+  }
+
+  /**
+   * @return GPS heading, degrees, NaN if the firmware doesn't send it
+   */
+  public double getHeading() {
+    return get(4);
+  }
+}
@@ -0,0 +1,80 @@
+package pl.agilevision.hardware.um7.data.nmea;
+
+import pl.agilevision.hardware.um7.UM7Attributes;
+import pl.agilevision.hardware.um7.data.attributes.nmea.NmeaGpsPose;
+
+/**
+ * NMEA GPS position and attitude, sentence $PCHRG
+ */
+public class NmeaGpsPoseRecord extends NmeaRecord {
+
+  private static final Column[] COLUMNS = {
+    Column.DOUBLE, Column.DOUBLE, Column.DOUBLE, Column.DOUBLE, Column.DOUBLE, Column.DOUBLE,
+    Column.DOUBLE, Column.DOUBLE
+  };
+
+  public NmeaGpsPoseRecord() {
+    super(UM7Attributes.NMEA.GpsPose, NmeaGpsPose.parseFormat, COLUMNS, 7);
+  }
+
+  @Override
+  public char getSentenceType() {
+    return 'G';
+  }
+
+  /**
+   * @return time of the sentence
+   */
+  public double getTime() {
+    return get(0);
+  }
+
+  /**
+   * @return latitude, degrees
+   */
+  public double getLatitude() {
+    return get(1);
+  }
+
+  /**
+   * @return longitude, degrees
+   */
+  public double getLongitude() {
+    return get(2);
+  }
+
+  /**
+   * @return altitude, m
+   */
+  public double getAltitude() {
+    return get(3);
+  }
+
+  /**
+   * @return roll, degrees
+   */
+  public double getRoll() {
+    return get(4);
+  }
+
+  /**
+   * @return pitch, degrees
+   */
+  public double getPitch() {
+    return get(5);
+  }
+
+  /**
+   * @return yaw, degrees
+   */
+  public double getYaw() {
+    return get(6);
+  }
+
+  /**
+   * @return GPS heading, degrees, NaN if the firmware doesn't send it
+   */
+  public double getHeading() {
+    return get(7);
+  }
+}
@@ -0,0 +1,95 @@
+package pl.agilevision.hardware.um7.data.nmea;
+
+import pl.agilevision.hardware.um7.UM7Attributes;
+import pl.agilevision.hardware.um7.data.attributes.nmea.NmeaHealth;
+
+/**
+ * NMEA health, sentence $PCHRH
+ */
+public class NmeaHealthRecord extends NmeaRecord {
+
+  private static final Column[] COLUMNS = {
+    Column.DOUBLE, Column.INT, Column.INT, Column.DOUBLE, Column.INT, Column.BOOLEAN,
+    Column.BOOLEAN, Column.BOOLEAN, Column.BOOLEAN, Column.BOOLEAN, Column.INT, Column.INT,
+    Column.INT
+  };
+
+  public NmeaHealthRecord() {
+    super(UM7Attributes.NMEA.Health, NmeaHealth.parseFormat, COLUMNS, 13);
+  }
+
+  @Override
+  public char getSentenceType() {
+    return 'H';
+  }
+
+  /**
+   * @return time of the sentence
+   */
+  public double getTime() {
+    return get(0);
+  }
+
+  /**
+   * @return number of satellites used
+   */
+  public int getSatsUsed() {
+    return (int) get(1);
+  }
+
+  /**
+   * @return number of satellites in view
+   */
+  public int getSatsInView() {
+    return (int) get(2);
+  }
+
+  /**
+   * @return horizontal dilution of precision
+   */
+  public double getHdop() {
+    return get(3);
+  }
+
+  /**
+   * @return GPS mode
+   */
+  public int getMode() {
+    return (int) get(4);
+  }
+
+  /**
+   * @return true if the communication buffer overflowed
+   */
+  public boolean isComOverflow() {
+    return get(5) != 0;
+  }
+
+  /**
+   * @return true if the accelerometer rate is faulty
+   */
+  public boolean isAcceleratorRateFault() {
+    return get(6) != 0;
+  }
+
+  /**
+   * @return true if the gyro rate is faulty
+   */
+  public boolean isGyroRateFault() {
+    return get(7) != 0;
+  }
+
+  /**
+   * @return true if the magnetometer rate is faulty
+   */
+  public boolean isMagnetometerRateFault() {
+    return get(8) != 0;
+  }
+
+  /**
+   * @return true if the GPS is offline
+   */
+  public boolean isGpsOffline() {
+    return get(9) != 0;
+  }
+}
@@ -0,0 +1,80 @@
+package pl.agilevision.hardware.um7.data.nmea;
+
+import pl.agilevision.hardware.um7.UM7Attributes;
+import pl.agilevision.hardware.um7.data.attributes.nmea.NmeaPose;
+
+/**
+ * NMEA position relative to home and attitude, sentence $PCHRP
+ */
+public class NmeaPoseRecord extends NmeaRecord {
+
+  private static final Column[] COLUMNS = {
+    Column.DOUBLE, Column.DOUBLE, Column.DOUBLE, Column.DOUBLE, Column.DOUBLE, Column.DOUBLE,
+    Column.DOUBLE, Column.DOUBLE
+  };
+
+  public NmeaPoseRecord() {
+    super(UM7Attributes.NMEA.Pose, NmeaPose.parseFormat, COLUMNS, 7);
+  }
+
+  @Override
+  public char getSentenceType() {
+    return 'P';
+  }
+
+  /**
+   * @return time of the sentence
+   */
+  public double getTime() {
+    return get(0);
+  }
+
+  /**
+   * @return north position relative to home, m
+   */
+  public double getHomeNorth() {
+    return get(1);
+  }
+
+  /**
+   * @return east position relative to home, m
+   */
+  public double getHomeEast() {
+    return get(2);
+  }
+
+  /**
+   * @return altitude, m
+   */
+  public double getHomeAltitude() {
+    return get(3);
+  }
+
+  /**
+   * @return roll, degrees
+   */
+  public double getRoll() {
+    return get(4);
+  }
+
+  /**
+   * @return pitch, degrees
+   */
+  public double getPitch() {
+    return get(5);
+  }
+
+  /**
+   * @return yaw, degrees
+   */
+  public double getYaw() {
+    return get(6);
+  }
+
+  /**
+   * @return GPS heading, degrees, NaN if the firmware doesn't send it
+   */
+  public double getHeading() {
+    return get(7);
+  }
+}
@@ -0,0 +1,58 @@
+package pl.agilevision.hardware.um7.data.nmea;
+
+import pl.agilevision.hardware.um7.UM7Attributes;
+import pl.agilevision.hardware.um7.data.attributes.nmea.NmeaQuaternion;
+
+/**
+ * NMEA attitude quaternion, sentence $PCHRQ
+ */
+public class NmeaQuaternionRecord extends NmeaRecord {
+
+  private static final Column[] COLUMNS = {
+    Column.DOUBLE, Column.DOUBLE, Column.DOUBLE, Column.DOUBLE, Column.DOUBLE
+  };
+
+  public NmeaQuaternionRecord() {
+    super(UM7Attributes.NMEA.Quaternion, NmeaQuaternion.parseFormat, COLUMNS, 5);
+  }
+
+  @Override
+  public char getSentenceType() {
+    return 'Q';
+  }
+
+  /**
+   * @return time of the sentence
+   */
+  public double getTime() {
+    return get(0);
+  }
+
+  /**
+   * @return quaternion component a
+   */
+  public double getA() {
+    return get(1);
+  }
+
+  /**
+   * @return quaternion component b
+   */
+  public double getB() {
+    return get(2);
+  }
+
+  /**
+   * @return quaternion component c
+   */
+  public double getC() {
+    return get(3);
+  }
+
+  /**
+   * @return quaternion component d
+   */
+  public double getD() {
+    return get(4);
+  }
+}
@@ -0,0 +1,73 @@
+package pl.agilevision.hardware.um7.data.nmea;
+
+import pl.agilevision.hardware.um7.UM7Attributes;
+import pl.agilevision.hardware.um7.data.attributes.nmea.NmeaRate;
+
+/**
+ * NMEA velocities and angular rates, sentence $PCHRR
+ */
+public class NmeaRateRecord extends NmeaRecord {
+
+  private static final Column[] COLUMNS = {
+    Column.DOUBLE, Column.DOUBLE, Column.DOUBLE, Column.DOUBLE, Column.DOUBLE, Column.DOUBLE,
+    Column.DOUBLE
+  };
+
+  public NmeaRateRecord() {
+    super(UM7Attributes.NMEA.Rates, NmeaRate.parseFormat, COLUMNS, 7);
+  }
+
+  @Override
+  public char getSentenceType() {
+    return 'R';
+  }
+
+  /**
+   * @return time of the sentence
+   */
+  public double getTime() {
+    return get(0);
+  }
+
+  /**
+   * @return north velocity, m/s
+   */
+  public double getVelocityNorth() {
+    return get(1);
+  }
+
+  /**
+   * @return east velocity, m/s
+   */
+  public double getVelocityEast() {
+    return get(2);
+  }
+
+  /**
+   * @return upward velocity, m/s
+   */
+  public double getVelocityUpward() {
+    return get(3);
+  }
+
+  /**
+   * @return roll rate, degrees/s
+   */
+  public double getRollRate() {
+    return get(4);
+  }
+
+  /**
+   * @return pitch rate, degrees/s
+   */
+  public double getPitchRate() {
+    return get(5);
+  }
+
+  /**
+   * @return yaw rate, degrees/s
+   */
+  public double getYawRate() {
+    return get(6);
+  }
+}
@@ -0,0 +1,143 @@
+package pl.agilevision.hardware.um7.data.nmea;
+
+import pl.agilevision.hardware.um7.data.attributes.ConfigurableRateAttribute;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Values of one NMEA sentence. A parser reuses one record per sentence type, so a record is only
+ * valid until the parser reads the next sentence of the same type
+ */
+public abstract class NmeaRecord {
+
+  /**
+   * Type of a sentence column
+   */
+  public enum Column {
+    DOUBLE, INT, BOOLEAN
+  }
+
+  private final ConfigurableRateAttribute attribute;
+  private final String[] keys;
+  private final Column[] columns;
+  private final int minFields;
+  private final double[] values;
+  private int fieldCount;
+
+  protected NmeaRecord(final ConfigurableRateAttribute attribute, final String[] keys, final Column[] columns,
+                       final int minFields) {
+    this.attribute = attribute;
+    this.keys = keys.clone();
+    this.columns = columns;
+    this.minFields = minFields;
+    this.values = new double[columns.length];
+  }
+
+  /**
+   * @return letter following the $PCHR prefix of the sentence
+   */
+  public abstract char getSentenceType();
+
+  /**
+   * @return rate attribute of the sentence
+   */
+  public ConfigurableRateAttribute getAttribute() {
+    return attribute;
+  }
+
+  /**
+   * @return number of columns of the full layout
+   */
+  public int getColumnCount() {
+    return columns.length;
+  }
+
+  /**
+   * @return smallest number of fields sent by any firmware version
+   */
+  public int getMinFields() {
+    return minFields;
+  }
+
+  /**
+   * @param column column index
+   * @return column type
+   */
+  public Column getColumn(final int column) {
+    return columns[column];
+  }
+
+  /**
+   * @return number of fields of the last sentence
+   */
+  public int getFieldCount() {
+    return fieldCount;
+  }
+
+  /**
+   * @param column column index
+   * @return true if the last sentence held the column
+   */
+  public boolean has(final int column) {
+    return column < fieldCount;
+  }
+
+  /**
+   * @param column column index
+   * @return value of the column, booleans are 1 or 0, or NaN if the last sentence didn't hold it
+   */
+  public double get(final int column) {
+    return column < fieldCount ? values[column] : Double.NaN;
+  }
+
+  /**
+   * Stores a parsed value
+   * @param column column index
+   * @param value value
+   */
+  public void set(final int column, final double value) {
+    values[column] = value;
+  }
+
+  /**
+   * Sets the number of fields of the sentence just parsed
+   * @param fieldCount number of fields
+   */
+  public void setFieldCount(final int fieldCount) {
+    this.fieldCount = fieldCount;
+  }
+
+  /**
+   * Builds the attribute map of {@link UM7NMEAPacket}, values boxed as Integer, Double or Boolean
+   * @return new attribute map
+   */
+  public Map<String, Object> toAttributes() {
+    final Map<String, Object> attributes = new HashMap<>();
+    for (int i = 0; i < fieldCount; i++) {
+      switch (columns[i]) {
+        case INT:
+          attributes.put(keys[i], (int) values[i]);
+          break;
+        case BOOLEAN:
+          attributes.put(keys[i], values[i] != 0);
+          break;
+        default:
+          attributes.put(keys[i], values[i]);
+      }
+    }
+    return attributes;
+  }
+
+  @Override
+  public String toString() {
+    final StringBuilder sb = new StringBuilder(getClass().getSimpleName()).append('{');
+    for (int i = 0; i < fieldCount; i++) {
+      if (i > 0) {
+        sb.append(", ");
+      }
+      sb.append(keys[i]).append('=').append(values[i]);
+    }
+    return sb.append('}').toString();
+  }
+}
@@ -0,0 +1,58 @@
+package pl.agilevision.hardware.um7.data.nmea;
+
+import pl.agilevision.hardware.um7.UM7Attributes;
+import pl.agilevision.hardware.um7.data.attributes.nmea.NmeaSensor;
+
+/**
+ * NMEA processed sensor data, sentence $PCHRS
+ */
+public class NmeaSensorRecord extends NmeaRecord {
+
+  private static final Column[] COLUMNS = {
+    Column.INT, Column.DOUBLE, Column.DOUBLE, Column.DOUBLE, Column.DOUBLE
+  };
+
+  public NmeaSensorRecord() {
+    super(UM7Attributes.NMEA.Sensor, NmeaSensor.parseFormat, COLUMNS, 5);
+  }
+
+  @Override
+  public char getSentenceType() {
+    return 'S';
+  }
+
+  /**
+   * @return sensor index, see {@link SensorType}
+   */
+  public int getSensorType() {
+    return (int) get(0);
+  }
+
+  /**
+   * @return time of the sentence
+   */
+  public double getTime() {
+    return get(1);
+  }
+
+  /**
+   * @return x axis value
+   */
+  public double getX() {
+    return get(2);
+  }
+
+  /**
+   * @return y axis value
+   */
+  public double getY() {
+    return get(3);
+  }
+
+  /**
+   * @return z axis value
+   */
+  public double getZ() {
+    return get(4);
+  }
+}
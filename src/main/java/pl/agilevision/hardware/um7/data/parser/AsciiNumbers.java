@@ -0,0 +1,136 @@
+package pl.agilevision.hardware.um7.data.parser;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Parses decimal numbers straight from ASCII bytes
+ */
+final class AsciiNumbers {
+
+  /**
+   * Returned by {@link #parseLong(byte[], int, int)} for malformed input
+   */
+  static final long INVALID = Long.MIN_VALUE;
+
+  private static final double[] POWERS_OF_TEN = {
+    1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+    1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+  };
+
+  // mantissas up to 2^53 and powers of ten up to 1e22 are exact doubles, so one division rounds correctly
+  private static final long MAX_EXACT_MANTISSA = 1L << 53;
+
+  private AsciiNumbers() {
+  }
+
+  /**
+   * @param data ASCII bytes
+   * @param from first byte
+   * @param to byte after the last one
+   * @return parsed value or NaN if the bytes aren't a decimal number
+   */
+  static double parseDouble(final byte[] data, final int from, final int to) {
+    int i = from;
+    boolean negative = false;
+    if (i < to && (data[i] == '-' || data[i] == '+')) {
+      negative = data[i] == '-';
+      i++;
+    }
+    long mantissa = 0;
+    int scale = 0;
+    int digits = 0;
+    boolean point = false;
+    for (; i < to; i++) {
+      final byte b = data[i];
+      if (b >= '0' && b <= '9') {
+        mantissa = mantissa * 10 + (b - '0');
+        digits++;
+        if (point) {
+          scale++;
+        }
+        if (mantissa > MAX_EXACT_MANTISSA) {
+          return parseSlow(data, from, to);
+        }
+      } else if (b == '.' && !point) {
+        point = true;
+      } else if (b == 'e' || b == 'E') {
+        return parseSlow(data, from, to);
+      } else {
+        return Double.NaN;
+      }
+    }
+    if (digits == 0 || scale >= POWERS_OF_TEN.length) {
+      return digits == 0 ? Double.NaN : parseSlow(data, from, to);
+    }
+    final double value = mantissa / POWERS_OF_TEN[scale];
+    return negative ? -value : value;
+  }
+
+  /**
+   * @param data ASCII bytes
+   * @param from first byte
+   * @param to byte after the last one
+   * @return parsed value or {@link #INVALID} if the bytes aren't a decimal integer
+   */
+  static long parseLong(final byte[] data, final int from, final int to) {
+    int i = from;
+    boolean negative = false;
+    if (i < to && (data[i] == '-' || data[i] == '+')) {
+      negative = data[i] == '-';
+      i++;
+    }
+    if (i == to || to - i > 18) {
+      return INVALID;
+    }
+    long value = 0;
+    for (; i < to; i++) {
+      final byte b = data[i];
+      if (b < '0' || b > '9') {
+        return INVALID;
+      }
+      value = value * 10 + (b - '0');
+    }
+    return negative ? -value : value;
+  }
+
+  /**
+   * Parses a boolean from the whole token, ignoring case: 1, t, true, y and yes are true, 0, f,
+   * false, n and no are false
+   * @param data ASCII bytes
+   * @param from first byte
+   * @param to byte after the last one
+   * @return 1 for true, 0 for false or -1 if the bytes aren't a boolean
+   */
+  static int parseBoolean(final byte[] data, final int from, final int to) {
+    if (matches(data, from, to, "1") || matches(data, from, to, "t") || matches(data, from, to, "true")
+        || matches(data, from, to, "y") || matches(data, from, to, "yes")) {
+      return 1;
+    }
+    if (matches(data, from, to, "0") || matches(data, from, to, "f") || matches(data, from, to, "false")
+        || matches(data, from, to, "n") || matches(data, from, to, "no")) {
+      return 0;
+    }
+    return -1;
+  }
+
+  // compares the bytes with a lower case word, ignoring the case of the letters
+  private static boolean matches(final byte[] data, final int from, final int to, final String word) {
+    if (to - from != word.length()) {
+      return false;
+    }
+    for (int i = 0; i < word.length(); i++) {
+      if ((data[from + i] | 0x20) != word.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static double parseSlow(final byte[] data, final int from, final int to) {
+    try {
+      return Double.parseDouble(new String(data, from, to - from, StandardCharsets.US_ASCII));
+    } catch (final NumberFormatException e) {
+      return Double.NaN;
+    }
+  }
+}
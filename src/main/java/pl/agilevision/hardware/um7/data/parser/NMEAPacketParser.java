@@ -2,31 +2,32 @@ package pl.agilevision.hardware.um7.data.parser;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.supercsv.cellprocessor.ParseDouble;
-import org.supercsv.cellprocessor.ParseInt;
-import org.supercsv.cellprocessor.constraint.NotNull;
-import org.supercsv.cellprocessor.ift.CellProcessor;
-import org.supercsv.exception.SuperCsvException;
-import org.supercsv.io.CsvMapReader;
-import org.supercsv.io.ICsvMapReader;
-import org.supercsv.prefs.CsvPreference;
-import pl.agilevision.hardware.um7.UM7Attributes;
-import pl.agilevision.hardware.um7.callback.DataCallback;
+import pl.agilevision.hardware.um7.callback.PacketDispatcher;
+import pl.agilevision.hardware.um7.callback.SampleCallback;
 import pl.agilevision.hardware.um7.data.UM7Packet;
-import pl.agilevision.hardware.um7.data.attributes.ConfigurableRateAttribute;
-import pl.agilevision.hardware.um7.data.attributes.nmea.*;
+import pl.agilevision.hardware.um7.data.nmea.NmeaAttitudeRecord;
+import pl.agilevision.hardware.um7.data.nmea.NmeaGpsPoseRecord;
+import pl.agilevision.hardware.um7.data.nmea.NmeaHealthRecord;
+import pl.agilevision.hardware.um7.data.nmea.NmeaPoseRecord;
+import pl.agilevision.hardware.um7.data.nmea.NmeaQuaternionRecord;
+import pl.agilevision.hardware.um7.data.nmea.NmeaRateRecord;
+import pl.agilevision.hardware.um7.data.nmea.NmeaRecord;
+import pl.agilevision.hardware.um7.data.nmea.NmeaSensorRecord;
 import pl.agilevision.hardware.um7.data.nmea.UM7NMEAPacket;
 import pl.agilevision.hardware.um7.impl.DefaultUM7Client;
 
-import java.io.ByteArrayInputStream;
-import java.io.IOException;
-import java.io.InputStreamReader;
 import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
-import java.util.HashMap;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 
 /**
+ * Parses NMEA sentences byte by byte into reusable {@link NmeaRecord}s, one per sentence type.
+ * The checksum is verified before any field is parsed and the layout is selected by the number of
+ * fields, detected once per firmware. Records are overwritten by the next sentence of the same
+ * type, so a parser instance belongs to one device and must not be shared between threads
  * Created by volodymyr on 02.12.16.
  */
 public class NMEAPacketParser extends PacketParser {
@@ -35,59 +36,52 @@ public class NMEAPacketParser extends PacketParser {
   private static final byte[] PACKET_PREFIX = "$PCHR".getBytes(StandardCharsets.US_ASCII);
   private static final int PACKET_HEADER_LENGTH = PACKET_PREFIX.length + 2;
 
-  private static final int CHECKSUM_BLOCK_SIZE = 4;
-  private static final int RADIX_HEX = 16;
-
-  private static final Map<String, String[]> PACKET_COLUMNS_MAPPING;
-  private static final Map<String, CellProcessor[]> PACKET_PROCESSOR_MAPPING;
-  private static final Map<String, ConfigurableRateAttribute> PACKET_ATTRIBUTE_MAPPING;
-
-  static {
-    PACKET_COLUMNS_MAPPING = new HashMap<>();
-    PACKET_COLUMNS_MAPPING.put(NmeaHealth.NMEA_HEADER, NmeaHealth.parseFormat);
-    PACKET_COLUMNS_MAPPING.put(NmeaPose.NMEA_HEADER, NmeaPose.parseFormat);
-    PACKET_COLUMNS_MAPPING.put(NmeaAttitude.NMEA_HEADER, NmeaAttitude.parseFormat);
-    PACKET_COLUMNS_MAPPING.put(NmeaSensor.NMEA_HEADER, NmeaSensor.parseFormat);
-    PACKET_COLUMNS_MAPPING.put(NmeaRate.NMEA_HEADER, NmeaRate.parseFormat);
-    PACKET_COLUMNS_MAPPING.put(NmeaGpsPose.NMEA_HEADER, NmeaGpsPose.parseFormat);
-    PACKET_COLUMNS_MAPPING.put(NmeaQuaternion.NMEA_HEADER, NmeaQuaternion.parseFormat);
-
-    PACKET_PROCESSOR_MAPPING = new HashMap<>();
-    PACKET_PROCESSOR_MAPPING.put(NmeaHealth.NMEA_HEADER, NmeaHealth.parseCellProcessor);
-    PACKET_PROCESSOR_MAPPING.put(NmeaPose.NMEA_HEADER, NmeaPose.parseCellProcessor);
-    PACKET_PROCESSOR_MAPPING.put(NmeaAttitude.NMEA_HEADER, NmeaAttitude.parseCellProcessor);
-    PACKET_PROCESSOR_MAPPING.put(NmeaSensor.NMEA_HEADER, NmeaSensor.parseCellProcessor);
-    PACKET_PROCESSOR_MAPPING.put(NmeaRate.NMEA_HEADER, NmeaRate.parseCellProcessor);
-    PACKET_PROCESSOR_MAPPING.put(NmeaGpsPose.NMEA_HEADER, NmeaGpsPose.parseCellProcessor);
-    PACKET_PROCESSOR_MAPPING.put(NmeaQuaternion.NMEA_HEADER, NmeaQuaternion.parseCellProcessor);
-
-    PACKET_ATTRIBUTE_MAPPING = new HashMap<>();
-    PACKET_ATTRIBUTE_MAPPING.put(NmeaHealth.NMEA_HEADER, UM7Attributes.NMEA.Health);
-    PACKET_ATTRIBUTE_MAPPING.put(NmeaPose.NMEA_HEADER, UM7Attributes.NMEA.Pose);
-    PACKET_ATTRIBUTE_MAPPING.put(NmeaAttitude.NMEA_HEADER, UM7Attributes.NMEA.Attitude);
-    PACKET_ATTRIBUTE_MAPPING.put(NmeaSensor.NMEA_HEADER, UM7Attributes.NMEA.Sensor);
-    PACKET_ATTRIBUTE_MAPPING.put(NmeaRate.NMEA_HEADER, UM7Attributes.NMEA.Rates);
-    PACKET_ATTRIBUTE_MAPPING.put(NmeaGpsPose.NMEA_HEADER, UM7Attributes.NMEA.GpsPose);
-    PACKET_ATTRIBUTE_MAPPING.put(NmeaQuaternion.NMEA_HEADER, UM7Attributes.NMEA.Quaternion);
-  }
+  private static final Set<Class<?>> RECORD_TYPES = new HashSet<>(Arrays.<Class<?>>asList(
+      NmeaHealthRecord.class, NmeaPoseRecord.class, NmeaAttitudeRecord.class, NmeaSensorRecord.class,
+      NmeaRateRecord.class, NmeaGpsPoseRecord.class, NmeaQuaternionRecord.class));
 
-  public NMEAPacketParser(){
+  private final NmeaRecord[] records = new NmeaRecord[128];
+  // number of fields the connected firmware sends, by sentence type, 0 until detected
+  private final int[] layouts = new int[128];
 
+  public NMEAPacketParser(){
+    for (final NmeaRecord record : new NmeaRecord[] {new NmeaHealthRecord(), new NmeaPoseRecord(),
+        new NmeaAttitudeRecord(), new NmeaSensorRecord(), new NmeaRateRecord(), new NmeaGpsPoseRecord(),
+        new NmeaQuaternionRecord()}) {
+      records[record.getSentenceType()] = record;
+    }
   }
 
+  /**
+   * @deprecated layouts are selected by the number of fields, the shared column arrays are never modified
+   */
+  @Deprecated
   public void removeElementFromArray(Object[] a, int del) {
     System.arraycopy(a,del+1,a,del,a.length-1-del);
   }
 
   private static NMEAPacketParser single;
 
-  public static NMEAPacketParser getParser() {
+  /**
+   * @return shared parser
+   * @deprecated records and detected layouts belong to one device and thread, create a parser per client
+   */
+  @Deprecated
+  public static synchronized NMEAPacketParser getParser() {
     if (single == null) {
       single = new NMEAPacketParser();
     }
     return single;
   }
 
+  /**
+   * @param type record class
+   * @return true if NMEA sentences are parsed into records of the class
+   */
+  public static boolean isRecordType(final Class<?> type) {
+    return RECORD_TYPES.contains(type);
+  }
+
   @Override
   public boolean canParse(byte[] data, Integer... startAddress) {
     return ParserUtils.beginsWith(data, PACKET_PREFIX);
@@ -95,75 +89,161 @@ public class NMEAPacketParser extends PacketParser {
 
 
   @Override
-  public UM7Packet parse(byte[] data, Map<ConfigurableRateAttribute, DataCallback> callbacks, Integer... startAddress) {
-    final String header = new String(Arrays.copyOf(data, PACKET_HEADER_LENGTH - 1),
-        StandardCharsets.US_ASCII);
-
-    if (PACKET_COLUMNS_MAPPING.containsKey(header)) {
-      final String checksumStr =  new String(Arrays.copyOfRange(data, data.length - CHECKSUM_BLOCK_SIZE + 2, data.length));
-      final int checksum = Integer.parseInt(checksumStr, RADIX_HEX);
-
-      final byte[] csvData = Arrays.copyOfRange(data, PACKET_HEADER_LENGTH, data.length - CHECKSUM_BLOCK_SIZE);
-
-      final ICsvMapReader mapReader  = new CsvMapReader(new InputStreamReader(new ByteArrayInputStream(csvData)),
-        CsvPreference.STANDARD_PREFERENCE);
-
-      String[] mappings = PACKET_COLUMNS_MAPPING.get(header);
-      CellProcessor[] processors = PACKET_PROCESSOR_MAPPING.get(header);
-
-      Map<String, Object> attributesMap;
-      try {
-        attributesMap = mapReader.read(mappings, processors);
-      } catch (IOException|SuperCsvException e) {
-        try {
-          // according to some firmware versions we should try to parse without last element (GPS Heading angle)
-          removeElementFromArray(mappings, mappings.length-1);
-          removeElementFromArray(processors, processors.length-1);
-          attributesMap = mapReader.read(mappings, processors);
-
-        } catch (IOException|SuperCsvException e1) {
-          e1.printStackTrace();
-          LOG.warn("exception when parsing NMEA {}, {}", header, data);
-          return null;
+  public UM7Packet parse(byte[] data, PacketDispatcher callbacks, Integer... startAddress) {
+    final NmeaRecord record = parseRecord(data, 0, data.length);
+    return record != null ? toPacket(record, callbacks) : null;
+  }
+
+  /**
+   * Parses a sentence into a packet and hands its record to the callbacks registered for the record class
+   * @param data sentence
+   * @param callbacks packet callbacks, may be null
+   * @param recordCallbacks record callbacks by record class, may be null
+   * @return packet or null if the sentence is invalid
+   */
+  public UM7Packet parse(final byte[] data, final PacketDispatcher callbacks,
+                         final Map<Class<?>, ? extends Collection<SampleCallback<Object>>> recordCallbacks) {
+    final NmeaRecord record = parseRecord(data, 0, data.length);
+    if (record == null) {
+      return null;
+    }
+    final UM7Packet p = toPacket(record, callbacks);
+    if (recordCallbacks != null) {
+      final Collection<SampleCallback<Object>> typeCallbacks = recordCallbacks.get(record.getClass());
+      if (typeCallbacks != null) {
+        for (final SampleCallback<Object> callback : typeCallbacks) {
+          callback.onSample(record);
         }
+      }
+    }
+    return p;
+  }
 
+  private UM7Packet toPacket(final NmeaRecord record, final PacketDispatcher callbacks) {
+    final UM7NMEAPacket p = new UM7NMEAPacket();
+    p.setAttributes(record.toAttributes());
+    this.callBack(callbacks, record.getAttribute(), p);
+    return p;
+  }
 
+  /**
+   * Parses a sentence without allocating. The returned record is reused by the next sentence
+   * of the same type
+   * @param data buffer holding the sentence
+   * @param offset offset of the '$'
+   * @param length sentence length
+   * @return record of the sentence type or null if the sentence is invalid
+   */
+  public NmeaRecord parseRecord(final byte[] data, final int offset, final int length) {
+    final int end = offset + length;
+    if (length < PACKET_HEADER_LENGTH) {
+      return null;
+    }
+    for (int i = 0; i < PACKET_PREFIX.length; i++) {
+      if (data[offset + i] != PACKET_PREFIX[i]) {
+        return null;
       }
+    }
+    final byte type = data[offset + PACKET_PREFIX.length];
+    final NmeaRecord record = type >= 0 ? records[type] : null;
+    if (record == null || data[offset + PACKET_HEADER_LENGTH - 1] != ',') {
+      LOG.warn("Unknown packet header {}", new String(data, offset, PACKET_HEADER_LENGTH - 1, StandardCharsets.US_ASCII));
+      return null;
+    }
 
-      UM7NMEAPacket p = new UM7NMEAPacket();
-      p.setAttributes(attributesMap);
-
+    // first pass: checksum of everything between '$' and '*' and the number of fields
+    int checksum = 0;
+    for (int i = offset + 1; i < offset + PACKET_HEADER_LENGTH; i++) {
+      checksum ^= data[i];
+    }
+    int separators = 0;
+    int star = offset + PACKET_HEADER_LENGTH;
+    for (; star < end && data[star] != '*'; star++) {
+      checksum ^= data[star];
+      if (data[star] == ',') {
+        separators++;
+      }
+    }
+    final int expected = star + 2 < end ? hex(data[star + 1]) << 4 | hex(data[star + 2]) : -1;
+    if (checksum != expected) {
+      LOG.warn("NMEA checksum mismatch real: 0x{}, dest: 0x{}",
+        String.format("%2x", checksum),
+        String.format("%2x", expected));
+      return null;
+    }
 
-      int realChecksum = 0;
-      boolean calc = false;
-      for (byte b: data) {
-        if (!calc && b == '$') {
-          calc = true;
-          continue;
-        }
-        if (calc && b == '*') {
-          calc = false;
-        }
+    // sentences end either with a field or with a comma before the '*'
+    final int fieldCount = data[star - 1] == ',' ? separators : separators + 1;
+    if (!selectLayout(record, fieldCount)) {
+      LOG.warn("Unexpected number of fields {} in NMEA {}", fieldCount,
+          new String(data, offset, PACKET_HEADER_LENGTH - 1, StandardCharsets.US_ASCII));
+      return null;
+    }
 
-        if (calc) {
-          realChecksum = realChecksum ^ b;
+    // second pass: values of a sentence with a valid checksum and a known layout
+    int column = 0;
+    int fieldStart = offset + PACKET_HEADER_LENGTH;
+    for (int i = fieldStart; column < fieldCount; i++) {
+      if (i == star || data[i] == ',') {
+        if (!parseField(record, column++, data, fieldStart, i)) {
+          LOG.warn("exception when parsing NMEA {}", new String(data, offset, length, StandardCharsets.US_ASCII));
+          return null;
         }
+        fieldStart = i + 1;
       }
+    }
+    record.setFieldCount(fieldCount);
+    return record;
+  }
 
-      if (realChecksum != checksum) {
-        LOG.warn("NMEA checksum mismatch real: 0x{}, dest: 0x{}",
-          String.format("%2x", realChecksum),
-          String.format("%2x", checksum));
-        return null;
-      }
-      this.callBack(callbacks, PACKET_ATTRIBUTE_MAPPING.get(header), p);
+  /**
+   * Forgets the layouts detected for the connected firmware, e.g. when connecting to another device
+   */
+  public void reset() {
+    Arrays.fill(layouts, 0);
+  }
 
-      return p;
+  /**
+   * Checks the field count against the layout detected for the sentence type, detecting it on
+   * the first sentence. Firmware versions differ by optional trailing columns, e.g. GPS heading;
+   * once a layout is detected, sentences with another field count are rejected until {@link #reset()}
+   */
+  private boolean selectLayout(final NmeaRecord record, final int fieldCount) {
+    final int type = record.getSentenceType();
+    if (layouts[type] != 0) {
+      return layouts[type] == fieldCount;
+    }
+    if (fieldCount < record.getMinFields() || fieldCount > record.getColumnCount()) {
+      return false;
+    }
+    LOG.debug("Detected {} fields in NMEA sentences $PCHR{}", fieldCount, record.getSentenceType());
+    layouts[type] = fieldCount;
+    return true;
+  }
 
+  private static boolean parseField(final NmeaRecord record, final int column, final byte[] data,
+                                    final int from, final int to) {
+    switch (record.getColumn(column)) {
+      case INT:
+        final long integer = AsciiNumbers.parseLong(data, from, to);
+        record.set(column, integer);
+        return integer != AsciiNumbers.INVALID;
+      case BOOLEAN:
+        final int bool = AsciiNumbers.parseBoolean(data, from, to);
+        record.set(column, bool);
+        return bool >= 0;
+      default:
+        final double value = AsciiNumbers.parseDouble(data, from, to);
+        record.set(column, value);
+        return !Double.isNaN(value);
+    }
+  }
 
-    } else {
-      LOG.warn("Unknown packet header {}", header);
-      return null;
+  private static int hex(final byte b) {
+    if (b >= '0' && b <= '9') {
+      return b - '0';
     }
+    final int lower = b | 0x20;
+    return lower >= 'a' && lower <= 'f' ? lower - 'a' + 10 : -0x100;
   }
 }
@@ -1,22 +1,19 @@
 package pl.agilevision.hardware.um7.data.parser;
 
-import pl.agilevision.hardware.um7.callback.DataCallback;
+import pl.agilevision.hardware.um7.callback.PacketDispatcher;
 import pl.agilevision.hardware.um7.data.UM7Packet;
 import pl.agilevision.hardware.um7.data.attributes.ConfigurableRateAttribute;
 
-import java.util.Map;
-
 /**
  * Interface for all packet parsers
  * @author Volodymyr Rudyi (volodymyr@agilevision.pl)
  */
 public abstract class PacketParser {
 
-  void callBack(Map<ConfigurableRateAttribute, DataCallback> callbacks, ConfigurableRateAttribute attribute,
-                UM7Packet packet) {
+  void callBack(PacketDispatcher callbacks, ConfigurableRateAttribute attribute, UM7Packet packet) {
 
-    if (null != callbacks && callbacks.containsKey(attribute)) {
-      callbacks.get(attribute).onPacket(packet);
+    if (null != callbacks) {
+      callbacks.dispatch(attribute, packet);
     }
   }
 
@@ -31,7 +28,8 @@ public abstract class PacketParser {
   /**
    * Parses data and returns the packet
    * @param data data to parse
+   * @param callbacks consumers of the packet, may be null, see {@link PacketDispatcher#of(java.util.Map)}
    * @return packet
    */
-  abstract public UM7Packet parse(final byte[] data, Map<ConfigurableRateAttribute, DataCallback> callbacks, Integer... startAddress);
+  abstract public UM7Packet parse(final byte[] data, PacketDispatcher callbacks, Integer... startAddress);
 }
@@ -0,0 +1,329 @@
+package pl.agilevision.hardware.um7.data.parser;
+
+import pl.agilevision.hardware.um7.UM7Attributes;
+import pl.agilevision.hardware.um7.UM7Constants;
+import pl.agilevision.hardware.um7.data.attributes.ConfigurableRateAttribute;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Layout of the UM7 data registers. Every data register is described by the fields it holds, and
+ * consecutive registers are joined into groups, one per configurable rate attribute. Registers are
+ * indexed by address, so any batch decodes by walking the table from its start address
+ */
+public final class RegisterLayout {
+
+  public static final double DEGREES_DIVIDER = 91.02222; // divider for degrees
+  public static final double RATE_DIVIDER = 16.0;     // divider for rate
+  public static final double QUAT_DIVIDER = 29789.09091; //divider for Quat
+
+  public static final int REGISTER_SIZE = 4;
+
+  /**
+   * Mask holding every group, see {@link Group#getMask()}
+   */
+  public static final long ALL_GROUPS = -1L;
+
+  /**
+   * Field value types, all big endian. Bytes of a register not covered by a field are padding
+   */
+  public enum Type {
+    INT(4), FLOAT(4), SHORT(2), BYTE(1);
+
+    private final int size;
+
+    Type(final int size) {
+      this.size = size;
+    }
+
+    public int getSize() {
+      return size;
+    }
+  }
+
+  /**
+   * Field of a data register
+   */
+  public static final class Field {
+    private final String key;
+    private final Type type;
+    private final double divider;
+    private int offset;
+
+    private Field(final String key, final Type type, final double divider) {
+      this.key = key;
+      this.type = type;
+      this.divider = divider;
+    }
+
+    public String getKey() {
+      return key;
+    }
+
+    public Type getType() {
+      return type;
+    }
+
+    /**
+     * @return divider the raw value is scaled with, 0 if the value isn't scaled
+     */
+    public double getDivider() {
+      return divider;
+    }
+
+    /**
+     * @return byte offset of the field in its register
+     */
+    public int getOffset() {
+      return offset;
+    }
+
+    /**
+     * Decodes the field into the value type used by {@link pl.agilevision.hardware.um7.data.UM7Packet}:
+     * Integer, Float, Byte, Short, or Double for scaled shorts
+     * @param data packet data
+     * @param register offset of the register in the data
+     * @return decoded value
+     */
+    public Object decode(final byte[] data, final int register) {
+      final int at = register + offset;
+      switch (type) {
+        case INT:
+          return readInt(data, at);
+        case FLOAT:
+          return Float.intBitsToFloat(readInt(data, at));
+        case SHORT:
+          final short value = readShort(data, at);
+          return divider != 0 ? (Object) (value / divider) : (Object) value;
+        default:
+          return data[at];
+      }
+    }
+
+    /**
+     * Decodes the field as a double without boxing
+     * @param data packet data
+     * @param register offset of the register in the data
+     * @return decoded value
+     */
+    public double decodeDouble(final byte[] data, final int register) {
+      final int at = register + offset;
+      switch (type) {
+        case INT:
+          return readInt(data, at);
+        case FLOAT:
+          return Float.intBitsToFloat(readInt(data, at));
+        case SHORT:
+          return divider != 0 ? readShort(data, at) / divider : readShort(data, at);
+        default:
+          return data[at];
+      }
+    }
+  }
+
+  /**
+   * Consecutive registers delivered to one attribute callback
+   */
+  public static final class Group {
+    private final ConfigurableRateAttribute attribute;
+    private final int first;
+    private final int last;
+    private final List<String> keys;
+    private final int index;
+
+    private Group(final ConfigurableRateAttribute attribute, final int first, final int last, final List<String> keys,
+                  final int index) {
+      this.index = index;
+      this.attribute = attribute;
+      this.first = first;
+      this.last = last;
+      this.keys = Collections.unmodifiableList(keys);
+    }
+
+    public ConfigurableRateAttribute getAttribute() {
+      return attribute;
+    }
+
+    public int getFirst() {
+      return first;
+    }
+
+    public int getLast() {
+      return last;
+    }
+
+    public List<String> getKeys() {
+      return keys;
+    }
+
+    /**
+     * @return position of the group in {@link #groups()}
+     */
+    public int getIndex() {
+      return index;
+    }
+
+    /**
+     * @return bit of the group in a mask of groups, see {@link #ALL_GROUPS}
+     */
+    public long getMask() {
+      return 1L << index;
+    }
+  }
+
+  private static final Field[][] FIELDS = new Field[256][];
+  private static final Group[] GROUPS = new Group[256];
+  private static final List<Group> GROUP_LIST = new ArrayList<>();
+
+  static {
+    group(UM7Attributes.Health, UM7Constants.Registers.DREG_HEALTH,
+        register(field(UM7Attributes.Health.Value, Type.INT)));
+
+    group(UM7Attributes.Gyro.Raw, UM7Constants.Registers.DREG_GYRO_RAW_XY,
+        register(field(UM7Attributes.Gyro.Raw.X, DEGREES_DIVIDER), field(UM7Attributes.Gyro.Raw.Y, DEGREES_DIVIDER)),
+        register(field(UM7Attributes.Gyro.Raw.Z, DEGREES_DIVIDER)),
+        register(field(UM7Attributes.Gyro.Raw.Time, Type.FLOAT)));
+    group(UM7Attributes.Accelerator.Raw, UM7Constants.Registers.DREG_ACCEL_RAW_XY,
+        register(field(UM7Attributes.Accelerator.Raw.X, DEGREES_DIVIDER),
+            field(UM7Attributes.Accelerator.Raw.Y, DEGREES_DIVIDER)),
+        register(field(UM7Attributes.Accelerator.Raw.Z, DEGREES_DIVIDER)),
+        register(field(UM7Attributes.Accelerator.Raw.Time, Type.FLOAT)));
+    group(UM7Attributes.Magnetometer.Raw, UM7Constants.Registers.DREG_MAG_RAW_XY,
+        register(field(UM7Attributes.Magnetometer.Raw.X, Type.SHORT), field(UM7Attributes.Magnetometer.Raw.Y, Type.SHORT)),
+        register(field(UM7Attributes.Magnetometer.Raw.Z, Type.SHORT)),
+        register(field(UM7Attributes.Magnetometer.Raw.Time, Type.FLOAT)));
+    group(UM7Attributes.Temperature, UM7Constants.Registers.DREG_TEMPERATURE,
+        register(field(UM7Attributes.Temperature.Value, Type.FLOAT)),
+        register(field(UM7Attributes.Temperature.Time, Type.FLOAT)));
+
+    group(UM7Attributes.Gyro.Processed, UM7Constants.Registers.DREG_GYRO_PROC_X,
+        floats(UM7Attributes.Gyro.Processed.X, UM7Attributes.Gyro.Processed.Y, UM7Attributes.Gyro.Processed.Z,
+            UM7Attributes.Gyro.Processed.Time));
+    group(UM7Attributes.Accelerator.Processed, UM7Constants.Registers.DREG_ACCEL_PROC_X,
+        floats(UM7Attributes.Accelerator.Processed.X, UM7Attributes.Accelerator.Processed.Y,
+            UM7Attributes.Accelerator.Processed.Z, UM7Attributes.Accelerator.Processed.Time));
+    group(UM7Attributes.Magnetometer.Processed, UM7Constants.Registers.DREG_MAG_PROC_X,
+        floats(UM7Attributes.Magnetometer.Processed.X, UM7Attributes.Magnetometer.Processed.Y,
+            UM7Attributes.Magnetometer.Processed.Z, UM7Attributes.Magnetometer.Processed.Time));
+
+    group(UM7Attributes.Quat, UM7Constants.Registers.DREG_QUAT_AB,
+        register(field(UM7Attributes.Quat.A, QUAT_DIVIDER), field(UM7Attributes.Quat.B, QUAT_DIVIDER)),
+        register(field(UM7Attributes.Quat.C, QUAT_DIVIDER), field(UM7Attributes.Quat.D, QUAT_DIVIDER)),
+        register(field(UM7Attributes.Quat.Time, Type.FLOAT)));
+    group(UM7Attributes.Euler, UM7Constants.Registers.DREG_EULER_PHI_THETA,
+        register(field(UM7Attributes.Euler.Roll, DEGREES_DIVIDER), field(UM7Attributes.Euler.Pitch, DEGREES_DIVIDER)),
+        register(field(UM7Attributes.Euler.Yaw, DEGREES_DIVIDER)),
+        register(field(UM7Attributes.Euler.RollRate, RATE_DIVIDER), field(UM7Attributes.Euler.PitchRate, RATE_DIVIDER)),
+        register(field(UM7Attributes.Euler.YawRate, RATE_DIVIDER)),
+        register(field(UM7Attributes.Euler.Time, Type.FLOAT)));
+    group(UM7Attributes.Position, UM7Constants.Registers.DREG_POSITION_NORTH,
+        floats(UM7Attributes.Position.North, UM7Attributes.Position.East, UM7Attributes.Position.Up,
+            UM7Attributes.Position.Time));
+    group(UM7Attributes.Velocity, UM7Constants.Registers.DREG_VELOCITY_NORTH,
+        floats(UM7Attributes.Velocity.North, UM7Attributes.Velocity.East, UM7Attributes.Velocity.Up,
+            UM7Attributes.Velocity.Time));
+
+    group(UM7Attributes.Gps, UM7Constants.Registers.DREG_GPS_LATITUDE,
+        floats(UM7Attributes.Gps.Latitude, UM7Attributes.Gps.Longitude, UM7Attributes.Gps.Altitude,
+            UM7Attributes.Gps.Course, UM7Attributes.Gps.Speed, UM7Attributes.Gps.Time));
+    group(UM7Attributes.GpsSateliteDetails, UM7Constants.Registers.DREG_GPS_SAT_1_2,
+        satellites(UM7Attributes.GpsSateliteDetails.Sat1Id, UM7Attributes.GpsSateliteDetails.Sat1Snr,
+            UM7Attributes.GpsSateliteDetails.Sat2Id, UM7Attributes.GpsSateliteDetails.Sat2Snr),
+        satellites(UM7Attributes.GpsSateliteDetails.Sat3Id, UM7Attributes.GpsSateliteDetails.Sat3Snr,
+            UM7Attributes.GpsSateliteDetails.Sat4Id, UM7Attributes.GpsSateliteDetails.Sat4Snr),
+        satellites(UM7Attributes.GpsSateliteDetails.Sat5Id, UM7Attributes.GpsSateliteDetails.Sat5Snr,
+            UM7Attributes.GpsSateliteDetails.Sat6Id, UM7Attributes.GpsSateliteDetails.Sat6Snr),
+        satellites(UM7Attributes.GpsSateliteDetails.Sat7Id, UM7Attributes.GpsSateliteDetails.Sat7Snr,
+            UM7Attributes.GpsSateliteDetails.Sat8Id, UM7Attributes.GpsSateliteDetails.Sat8Snr),
+        satellites(UM7Attributes.GpsSateliteDetails.Sat9Id, UM7Attributes.GpsSateliteDetails.Sat9Snr,
+            UM7Attributes.GpsSateliteDetails.Sat10Id, UM7Attributes.GpsSateliteDetails.Sat10Snr),
+        satellites(UM7Attributes.GpsSateliteDetails.Sat11Id, UM7Attributes.GpsSateliteDetails.Sat11Snr,
+            UM7Attributes.GpsSateliteDetails.Sat12Id, UM7Attributes.GpsSateliteDetails.Sat12Snr));
+    group(UM7Attributes.GyroBias, UM7Constants.Registers.DREG_GYRO_BIAS_X,
+        floats(UM7Attributes.GyroBias.X, UM7Attributes.GyroBias.Y, UM7Attributes.GyroBias.Z));
+  }
+
+  private RegisterLayout() {
+  }
+
+  /**
+   * @param address register address
+   * @return fields of a data register or null if the address isn't a data register
+   */
+  public static Field[] fields(final int address) {
+    return address >= 0 && address < FIELDS.length ? FIELDS[address] : null;
+  }
+
+  /**
+   * @param address register address
+   * @return group the data register belongs to or null if the address isn't a data register
+   */
+  public static Group group(final int address) {
+    return address >= 0 && address < GROUPS.length ? GROUPS[address] : null;
+  }
+
+  /**
+   * @return all groups ordered by address
+   */
+  public static List<Group> groups() {
+    return Collections.unmodifiableList(GROUP_LIST);
+  }
+
+  static int readInt(final byte[] data, final int at) {
+    return (data[at] & 0xFF) << 24 | (data[at + 1] & 0xFF) << 16 | (data[at + 2] & 0xFF) << 8 | (data[at + 3] & 0xFF);
+  }
+
+  static short readShort(final byte[] data, final int at) {
+    return (short) ((data[at] & 0xFF) << 8 | (data[at + 1] & 0xFF));
+  }
+
+  private static Field field(final String key, final Type type) {
+    return new Field(key, type, 0);
+  }
+
+  private static Field field(final String key, final double divider) {
+    return new Field(key, Type.SHORT, divider);
+  }
+
+  private static Field[] register(final Field... fields) {
+    int offset = 0;
+    for (final Field field : fields) {
+      field.offset = offset;
+      offset += field.type.getSize();
+    }
+    return fields;
+  }
+
+  private static Field[][] floats(final String... keys) {
+    final Field[][] registers = new Field[keys.length][];
+    for (int i = 0; i < keys.length; i++) {
+      registers[i] = register(field(keys[i], Type.FLOAT));
+    }
+    return registers;
+  }
+
+  private static Field[] satellites(final String... keys) {
+    final Field[] fields = new Field[keys.length];
+    for (int i = 0; i < keys.length; i++) {
+      fields[i] = field(keys[i], Type.BYTE);
+    }
+    return register(fields);
+  }
+
+  private static void group(final ConfigurableRateAttribute attribute, final int first, final Field[]... registers) {
+    final List<String> keys = new ArrayList<>();
+    for (final Field[] register : registers) {
+      for (final Field field : register) {
+        keys.add(field.key);
+      }
+    }
+    final Group group = new Group(attribute, first, first + registers.length - 1, keys, GROUP_LIST.size());
+    for (int i = 0; i < registers.length; i++) {
+      FIELDS[first + i] = registers[i];
+      GROUPS[first + i] = group;
+    }
+    GROUP_LIST.add(group);
+  }
+}
@@ -0,0 +1,103 @@
+package pl.agilevision.hardware.um7.data.sample;
+
+import pl.agilevision.hardware.um7.UM7Attributes;
+import pl.agilevision.hardware.um7.data.UM7SampleFlyweight;
+
+/**
+ * Euler angles and rates, registers DREG_EULER_PHI_THETA to DREG_EULER_TIME
+ */
+public class EulerSample {
+  private final double roll;
+  private final double pitch;
+  private final double yaw;
+  private final double rollRate;
+  private final double pitchRate;
+  private final double yawRate;
+  private final float time;
+
+  public EulerSample(final double roll,
+                     final double pitch,
+                     final double yaw,
+                     final double rollRate,
+                     final double pitchRate,
+                     final double yawRate,
+                     final float time) {
+    this.roll = roll;
+    this.pitch = pitch;
+    this.yaw = yaw;
+    this.rollRate = rollRate;
+    this.pitchRate = pitchRate;
+    this.yawRate = yawRate;
+    this.time = time;
+  }
+
+  /**
+   * Reads the sample from a batch holding all registers of the group
+   * @param sample batch view
+   * @return typed sample
+   */
+  public static EulerSample from(final UM7SampleFlyweight sample) {
+    return new EulerSample(sample.getDouble(UM7Attributes.Euler.Roll),
+        sample.getDouble(UM7Attributes.Euler.Pitch),
+        sample.getDouble(UM7Attributes.Euler.Yaw),
+        sample.getDouble(UM7Attributes.Euler.RollRate),
+        sample.getDouble(UM7Attributes.Euler.PitchRate),
+        sample.getDouble(UM7Attributes.Euler.YawRate),
+        sample.getFloat(UM7Attributes.Euler.Time));
+  }
+
+  /**
+   * @return roll angle in degrees
+   */
+  public double getRoll() {
+    return roll;
+  }
+
+  /**
+   * @return pitch angle in degrees
+   */
+  public double getPitch() {
+    return pitch;
+  }
+
+  /**
+   * @return yaw angle in degrees
+   */
+  public double getYaw() {
+    return yaw;
+  }
+
+  /**
+   * @return roll rate in degrees per second
+   */
+  public double getRollRate() {
+    return rollRate;
+  }
+
+  /**
+   * @return pitch rate in degrees per second
+   */
+  public double getPitchRate() {
+    return pitchRate;
+  }
+
+  /**
+   * @return yaw rate in degrees per second
+   */
+  public double getYawRate() {
+    return yawRate;
+  }
+
+  /**
+   * @return device time of the estimate in seconds
+   */
+  public float getTime() {
+    return time;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("EulerSample{roll=%s, pitch=%s, yaw=%s, rollRate=%s, pitchRate=%s, yawRate=%s, time=%s}",
+        roll, pitch, yaw, rollRate, pitchRate, yawRate, time);
+  }
+}
@@ -0,0 +1,92 @@
+package pl.agilevision.hardware.um7.data.sample;
+
+import pl.agilevision.hardware.um7.UM7Attributes;
+import pl.agilevision.hardware.um7.data.UM7SampleFlyweight;
+
+/**
+ * GPS fix, registers DREG_GPS_LATITUDE to DREG_GPS_TIME
+ */
+public class GpsFix {
+  private final float latitude;
+  private final float longitude;
+  private final float altitude;
+  private final float course;
+  private final float speed;
+  private final float time;
+
+  public GpsFix(final float latitude,
+                final float longitude,
+                final float altitude,
+                final float course,
+                final float speed,
+                final float time) {
+    this.latitude = latitude;
+    this.longitude = longitude;
+    this.altitude = altitude;
+    this.course = course;
+    this.speed = speed;
+    this.time = time;
+  }
+
+  /**
+   * Reads the sample from a batch holding all registers of the group
+   * @param sample batch view
+   * @return typed sample
+   */
+  public static GpsFix from(final UM7SampleFlyweight sample) {
+    return new GpsFix(sample.getFloat(UM7Attributes.Gps.Latitude),
+        sample.getFloat(UM7Attributes.Gps.Longitude),
+        sample.getFloat(UM7Attributes.Gps.Altitude),
+        sample.getFloat(UM7Attributes.Gps.Course),
+        sample.getFloat(UM7Attributes.Gps.Speed),
+        sample.getFloat(UM7Attributes.Gps.Time));
+  }
+
+  /**
+   * @return latitude in degrees
+   */
+  public float getLatitude() {
+    return latitude;
+  }
+
+  /**
+   * @return longitude in degrees
+   */
+  public float getLongitude() {
+    return longitude;
+  }
+
+  /**
+   * @return altitude in meters
+   */
+  public float getAltitude() {
+    return altitude;
+  }
+
+  /**
+   * @return course in degrees
+   */
+  public float getCourse() {
+    return course;
+  }
+
+  /**
+   * @return speed in meters per second
+   */
+  public float getSpeed() {
+    return speed;
+  }
+
+  /**
+   * @return UTC time of day in seconds
+   */
+  public float getTime() {
+    return time;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("GpsFix{latitude=%s, longitude=%s, altitude=%s, course=%s, speed=%s, time=%s}",
+        latitude, longitude, altitude, course, speed, time);
+  }
+}
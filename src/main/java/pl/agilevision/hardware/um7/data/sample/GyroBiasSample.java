@@ -0,0 +1,56 @@
+package pl.agilevision.hardware.um7.data.sample;
+
+import pl.agilevision.hardware.um7.UM7Attributes;
+import pl.agilevision.hardware.um7.data.UM7SampleFlyweight;
+
+/**
+ * Gyro bias estimate, registers DREG_GYRO_BIAS_X to DREG_GYRO_BIAS_Z
+ */
+public class GyroBiasSample {
+  private final float x;
+  private final float y;
+  private final float z;
+
+  public GyroBiasSample(final float x, final float y, final float z) {
+    this.x = x;
+    this.y = y;
+    this.z = z;
+  }
+
+  /**
+   * Reads the sample from a batch holding all registers of the group
+   * @param sample batch view
+   * @return typed sample
+   */
+  public static GyroBiasSample from(final UM7SampleFlyweight sample) {
+    return new GyroBiasSample(sample.getFloat(UM7Attributes.GyroBias.X),
+        sample.getFloat(UM7Attributes.GyroBias.Y),
+        sample.getFloat(UM7Attributes.GyroBias.Z));
+  }
+
+  /**
+   * @return x-axis bias
+   */
+  public float getX() {
+    return x;
+  }
+
+  /**
+   * @return y-axis bias
+   */
+  public float getY() {
+    return y;
+  }
+
+  /**
+   * @return z-axis bias
+   */
+  public float getZ() {
+    return z;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("GyroBiasSample{x=%s, y=%s, z=%s}", x, y, z);
+  }
+}
@@ -0,0 +1,75 @@
+package pl.agilevision.hardware.um7.data.sample;
+
+import pl.agilevision.hardware.um7.UM7Attributes;
+import pl.agilevision.hardware.um7.UM7Constants;
+import pl.agilevision.hardware.um7.data.UM7SampleFlyweight;
+
+/**
+ * Health and status of the device, register DREG_HEALTH
+ */
+public class HealthStatus {
+  private final int flags;
+
+  public HealthStatus(final int flags) {
+    this.flags = flags;
+  }
+
+  /**
+   * Reads the sample from a batch holding the health register
+   * @param sample batch view
+   * @return typed sample
+   */
+  public static HealthStatus from(final UM7SampleFlyweight sample) {
+    return new HealthStatus(sample.getInt(UM7Attributes.Health.Value));
+  }
+
+  /**
+   * @return raw register value
+   */
+  public int getFlags() {
+    return flags;
+  }
+
+  /**
+   * @return number of satellites used in the position solution
+   */
+  public int getSatellitesUsed() {
+    return (flags >>> 26) & 0x3F;
+  }
+
+  /**
+   * @return horizontal dilution of precision
+   */
+  public float getHdop() {
+    return ((flags >>> 16) & 0x3FF) / 10.0f;
+  }
+
+  /**
+   * @return number of satellites in view
+   */
+  public int getSatellitesInView() {
+    return (flags >>> 10) & 0x3F;
+  }
+
+  /**
+   * @param flag one of {@link UM7Constants.Health} flags
+   * @return true if the flag is set
+   */
+  public boolean isSet(final int flag) {
+    return (flags & flag) != 0;
+  }
+
+  /**
+   * @return true if no sensor, GPS or communication failure is reported
+   */
+  public boolean isHealthy() {
+    return !isSet(UM7Constants.Health.HEALTH_GPS | UM7Constants.Health.HEALTH_MAG | UM7Constants.Health.HEALTH_GYRO
+        | UM7Constants.Health.HEALTH_ACCEL | UM7Constants.Health.HEALTH_ACC_N | UM7Constants.Health.HEALTH_MG_N
+        | UM7Constants.Health.HEALTH_OVF);
+  }
+
+  @Override
+  public String toString() {
+    return String.format("HealthStatus{flags=0x%08X}", flags);
+  }
+}
@@ -0,0 +1,8 @@
+package pl.agilevision.hardware.um7.data.sample;
+
+/**
+ * Inertial sensor a sample comes from
+ */
+public enum ImuSensor {
+  GYRO, ACCELEROMETER, MAGNETOMETER
+}
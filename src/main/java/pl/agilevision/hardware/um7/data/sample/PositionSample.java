@@ -0,0 +1,66 @@
+package pl.agilevision.hardware.um7.data.sample;
+
+import pl.agilevision.hardware.um7.UM7Attributes;
+import pl.agilevision.hardware.um7.data.UM7SampleFlyweight;
+
+/**
+ * Position estimate relative to the home position, registers DREG_POSITION_NORTH to DREG_POSITION_TIME
+ */
+public class PositionSample {
+  private final float north;
+  private final float east;
+  private final float up;
+  private final float time;
+
+  public PositionSample(final float north, final float east, final float up, final float time) {
+    this.north = north;
+    this.east = east;
+    this.up = up;
+    this.time = time;
+  }
+
+  /**
+   * Reads the sample from a batch holding all registers of the group
+   * @param sample batch view
+   * @return typed sample
+   */
+  public static PositionSample from(final UM7SampleFlyweight sample) {
+    return new PositionSample(sample.getFloat(UM7Attributes.Position.North),
+        sample.getFloat(UM7Attributes.Position.East),
+        sample.getFloat(UM7Attributes.Position.Up),
+        sample.getFloat(UM7Attributes.Position.Time));
+  }
+
+  /**
+   * @return north component in meters
+   */
+  public float getNorth() {
+    return north;
+  }
+
+  /**
+   * @return east component in meters
+   */
+  public float getEast() {
+    return east;
+  }
+
+  /**
+   * @return up component in meters
+   */
+  public float getUp() {
+    return up;
+  }
+
+  /**
+   * @return device time of the estimate in seconds
+   */
+  public float getTime() {
+    return time;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("PositionSample{north=%s, east=%s, up=%s, time=%s}", north, east, up, time);
+  }
+}
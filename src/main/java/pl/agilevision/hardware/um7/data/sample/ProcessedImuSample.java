@@ -0,0 +1,75 @@
+package pl.agilevision.hardware.um7.data.sample;
+
+import pl.agilevision.hardware.um7.UM7Attributes;
+import pl.agilevision.hardware.um7.data.UM7SampleFlyweight;
+
+/**
+ * Processed gyro (deg/s), accelerometer (m/s^2) or magnetometer data, registers DREG_GYRO_PROC_X to
+ * DREG_MAG_PROC_TIME. Every sensor is delivered as a separate sample
+ */
+public class ProcessedImuSample {
+  private final ImuSensor sensor;
+  private final float x;
+  private final float y;
+  private final float z;
+  private final float time;
+
+  public ProcessedImuSample(final ImuSensor sensor, final float x, final float y, final float z, final float time) {
+    this.sensor = sensor;
+    this.x = x;
+    this.y = y;
+    this.z = z;
+    this.time = time;
+  }
+
+  /**
+   * Reads the sample of a sensor from a batch holding all its registers
+   * @param sensor sensor to read
+   * @param sample batch view
+   * @return typed sample
+   */
+  public static ProcessedImuSample from(final ImuSensor sensor, final UM7SampleFlyweight sample) {
+    switch (sensor) {
+      case GYRO:
+        return new ProcessedImuSample(sensor, sample.getFloat(UM7Attributes.Gyro.Processed.X),
+            sample.getFloat(UM7Attributes.Gyro.Processed.Y), sample.getFloat(UM7Attributes.Gyro.Processed.Z),
+            sample.getFloat(UM7Attributes.Gyro.Processed.Time));
+      case ACCELEROMETER:
+        return new ProcessedImuSample(sensor, sample.getFloat(UM7Attributes.Accelerator.Processed.X),
+            sample.getFloat(UM7Attributes.Accelerator.Processed.Y), sample.getFloat(UM7Attributes.Accelerator.Processed.Z),
+            sample.getFloat(UM7Attributes.Accelerator.Processed.Time));
+      default:
+        return new ProcessedImuSample(sensor, sample.getFloat(UM7Attributes.Magnetometer.Processed.X),
+            sample.getFloat(UM7Attributes.Magnetometer.Processed.Y), sample.getFloat(UM7Attributes.Magnetometer.Processed.Z),
+            sample.getFloat(UM7Attributes.Magnetometer.Processed.Time));
+    }
+  }
+
+  public ImuSensor getSensor() {
+    return sensor;
+  }
+
+  public float getX() {
+    return x;
+  }
+
+  public float getY() {
+    return y;
+  }
+
+  public float getZ() {
+    return z;
+  }
+
+  /**
+   * @return device time of the measurement in seconds
+   */
+  public float getTime() {
+    return time;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("ProcessedImuSample{sensor=%s, x=%s, y=%s, z=%s, time=%s}", sensor, x, y, z, time);
+  }
+}
@@ -0,0 +1,76 @@
+package pl.agilevision.hardware.um7.data.sample;
+
+import pl.agilevision.hardware.um7.UM7Attributes;
+import pl.agilevision.hardware.um7.data.UM7SampleFlyweight;
+
+/**
+ * Attitude quaternion, registers DREG_QUAT_AB to DREG_QUAT_TIME
+ */
+public class QuatSample {
+  private final double a;
+  private final double b;
+  private final double c;
+  private final double d;
+  private final float time;
+
+  public QuatSample(final double a, final double b, final double c, final double d, final float time) {
+    this.a = a;
+    this.b = b;
+    this.c = c;
+    this.d = d;
+    this.time = time;
+  }
+
+  /**
+   * Reads the sample from a batch holding all registers of the group
+   * @param sample batch view
+   * @return typed sample
+   */
+  public static QuatSample from(final UM7SampleFlyweight sample) {
+    return new QuatSample(sample.getDouble(UM7Attributes.Quat.A),
+        sample.getDouble(UM7Attributes.Quat.B),
+        sample.getDouble(UM7Attributes.Quat.C),
+        sample.getDouble(UM7Attributes.Quat.D),
+        sample.getFloat(UM7Attributes.Quat.Time));
+  }
+
+  /**
+   * @return quaternion element A
+   */
+  public double getA() {
+    return a;
+  }
+
+  /**
+   * @return quaternion element B
+   */
+  public double getB() {
+    return b;
+  }
+
+  /**
+   * @return quaternion element C
+   */
+  public double getC() {
+    return c;
+  }
+
+  /**
+   * @return quaternion element D
+   */
+  public double getD() {
+    return d;
+  }
+
+  /**
+   * @return device time of the estimate in seconds
+   */
+  public float getTime() {
+    return time;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("QuatSample{a=%s, b=%s, c=%s, d=%s, time=%s}", a, b, c, d, time);
+  }
+}
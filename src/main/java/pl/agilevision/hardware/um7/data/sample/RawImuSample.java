@@ -0,0 +1,76 @@
+package pl.agilevision.hardware.um7.data.sample;
+
+import pl.agilevision.hardware.um7.UM7Attributes;
+import pl.agilevision.hardware.um7.data.UM7SampleFlyweight;
+
+/**
+ * Raw gyro, accelerometer or magnetometer data, registers DREG_GYRO_RAW_XY to DREG_MAG_RAW_TIME.
+ * Gyro and accelerometer values are scaled like the packet attributes, magnetometer values are the
+ * raw ADC readings. Every sensor is delivered as a separate sample
+ */
+public class RawImuSample {
+  private final ImuSensor sensor;
+  private final double x;
+  private final double y;
+  private final double z;
+  private final float time;
+
+  public RawImuSample(final ImuSensor sensor, final double x, final double y, final double z, final float time) {
+    this.sensor = sensor;
+    this.x = x;
+    this.y = y;
+    this.z = z;
+    this.time = time;
+  }
+
+  /**
+   * Reads the sample of a sensor from a batch holding all its registers
+   * @param sensor sensor to read
+   * @param sample batch view
+   * @return typed sample
+   */
+  public static RawImuSample from(final ImuSensor sensor, final UM7SampleFlyweight sample) {
+    switch (sensor) {
+      case GYRO:
+        return new RawImuSample(sensor, sample.getDouble(UM7Attributes.Gyro.Raw.X),
+            sample.getDouble(UM7Attributes.Gyro.Raw.Y), sample.getDouble(UM7Attributes.Gyro.Raw.Z),
+            sample.getFloat(UM7Attributes.Gyro.Raw.Time));
+      case ACCELEROMETER:
+        return new RawImuSample(sensor, sample.getDouble(UM7Attributes.Accelerator.Raw.X),
+            sample.getDouble(UM7Attributes.Accelerator.Raw.Y), sample.getDouble(UM7Attributes.Accelerator.Raw.Z),
+            sample.getFloat(UM7Attributes.Accelerator.Raw.Time));
+      default:
+        return new RawImuSample(sensor, sample.getDouble(UM7Attributes.Magnetometer.Raw.X),
+            sample.getDouble(UM7Attributes.Magnetometer.Raw.Y), sample.getDouble(UM7Attributes.Magnetometer.Raw.Z),
+            sample.getFloat(UM7Attributes.Magnetometer.Raw.Time));
+    }
+  }
+
+  public ImuSensor getSensor() {
+    return sensor;
+  }
+
+  public double getX() {
+    return x;
+  }
+
+  public double getY() {
+    return y;
+  }
+
+  public double getZ() {
+    return z;
+  }
+
+  /**
+   * @return device time of the measurement in seconds
+   */
+  public float getTime() {
+    return time;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("RawImuSample{sensor=%s, x=%s, y=%s, z=%s, time=%s}", sensor, x, y, z, time);
+  }
+}
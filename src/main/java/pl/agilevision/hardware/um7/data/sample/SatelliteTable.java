@@ -0,0 +1,66 @@
+package pl.agilevision.hardware.um7.data.sample;
+
+import pl.agilevision.hardware.um7.UM7Constants;
+import pl.agilevision.hardware.um7.data.UM7SampleFlyweight;
+
+/**
+ * Ids and signal to noise ratios of up to 12 satellites, registers DREG_GPS_SAT_1_2 to DREG_GPS_SAT_11_12
+ */
+public class SatelliteTable {
+
+  public static final int SIZE = 12;
+
+  private final int[] ids;
+  private final int[] snrs;
+
+  public SatelliteTable(final int[] ids, final int[] snrs) {
+    this.ids = ids;
+    this.snrs = snrs;
+  }
+
+  /**
+   * Reads the sample from a batch holding all registers of the group
+   * @param sample batch view
+   * @return typed sample
+   */
+  public static SatelliteTable from(final UM7SampleFlyweight sample) {
+    final int[] ids = new int[SIZE];
+    final int[] snrs = new int[SIZE];
+    for (int i = 0; i < SIZE; i++) {
+      final int register = UM7Constants.Registers.DREG_GPS_SAT_1_2 + i / 2;
+      final int word = sample.getRegister(register);
+      final int shift = i % 2 == 0 ? 24 : 8;
+      ids[i] = (word >>> shift) & 0xFF;
+      snrs[i] = (word >>> (shift - 8)) & 0xFF;
+    }
+    return new SatelliteTable(ids, snrs);
+  }
+
+  /**
+   * @param index satellite index, 0 to 11
+   * @return satellite id
+   */
+  public int getId(final int index) {
+    return ids[index];
+  }
+
+  /**
+   * @param index satellite index, 0 to 11
+   * @return signal to noise ratio
+   */
+  public int getSnr(final int index) {
+    return snrs[index];
+  }
+
+  @Override
+  public String toString() {
+    final StringBuilder sb = new StringBuilder("SatelliteTable{");
+    for (int i = 0; i < SIZE; i++) {
+      if (i > 0) {
+        sb.append(", ");
+      }
+      sb.append(ids[i]).append(':').append(snrs[i]);
+    }
+    return sb.append('}').toString();
+  }
+}
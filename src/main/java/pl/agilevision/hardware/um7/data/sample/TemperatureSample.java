@@ -0,0 +1,46 @@
+package pl.agilevision.hardware.um7.data.sample;
+
+import pl.agilevision.hardware.um7.UM7Attributes;
+import pl.agilevision.hardware.um7.data.UM7SampleFlyweight;
+
+/**
+ * Temperature, registers DREG_TEMPERATURE and DREG_TEMPERATURE_TIME
+ */
+public class TemperatureSample {
+  private final float value;
+  private final float time;
+
+  public TemperatureSample(final float value, final float time) {
+    this.value = value;
+    this.time = time;
+  }
+
+  /**
+   * Reads the sample from a batch holding all registers of the group
+   * @param sample batch view
+   * @return typed sample
+   */
+  public static TemperatureSample from(final UM7SampleFlyweight sample) {
+    return new TemperatureSample(sample.getFloat(UM7Attributes.Temperature.Value),
+        sample.getFloat(UM7Attributes.Temperature.Time));
+  }
+
+  /**
+   * @return temperature in degrees Celsius
+   */
+  public float getValue() {
+    return value;
+  }
+
+  /**
+   * @return device time of the measurement in seconds
+   */
+  public float getTime() {
+    return time;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("TemperatureSample{value=%s, time=%s}", value, time);
+  }
+}
@@ -0,0 +1,66 @@
+package pl.agilevision.hardware.um7.data.sample;
+
+import pl.agilevision.hardware.um7.UM7Attributes;
+import pl.agilevision.hardware.um7.data.UM7SampleFlyweight;
+
+/**
+ * Velocity estimate, registers DREG_VELOCITY_NORTH to DREG_VELOCITY_TIME
+ */
+public class VelocitySample {
+  private final float north;
+  private final float east;
+  private final float up;
+  private final float time;
+
+  public VelocitySample(final float north, final float east, final float up, final float time) {
+    this.north = north;
+    this.east = east;
+    this.up = up;
+    this.time = time;
+  }
+
+  /**
+   * Reads the sample from a batch holding all registers of the group
+   * @param sample batch view
+   * @return typed sample
+   */
+  public static VelocitySample from(final UM7SampleFlyweight sample) {
+    return new VelocitySample(sample.getFloat(UM7Attributes.Velocity.North),
+        sample.getFloat(UM7Attributes.Velocity.East),
+        sample.getFloat(UM7Attributes.Velocity.Up),
+        sample.getFloat(UM7Attributes.Velocity.Time));
+  }
+
+  /**
+   * @return north component in meters per second
+   */
+  public float getNorth() {
+    return north;
+  }
+
+  /**
+   * @return east component in meters per second
+   */
+  public float getEast() {
+    return east;
+  }
+
+  /**
+   * @return up component in meters per second
+   */
+  public float getUp() {
+    return up;
+  }
+
+  /**
+   * @return device time of the estimate in seconds
+   */
+  public float getTime() {
+    return time;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("VelocitySample{north=%s, east=%s, up=%s, time=%s}", north, east, up, time);
+  }
+}
@@ -0,0 +1,18 @@
+package pl.agilevision.hardware.um7.framing;
+
+/**
+ * Gets a chance to consume binary frames carrying data in place, before they are copied into packets
+ */
+public interface DataFrameHandler {
+
+  /**
+   * Called for every binary frame carrying data. The data array is reused by the decoder, so it is
+   * valid only during the call
+   * @param address register address
+   * @param data array holding the payload
+   * @param offset payload offset in the array
+   * @param length payload length
+   * @return true if the frame was consumed and must not be queued as a packet
+   */
+  boolean onDataFrame(int address, byte[] data, int offset, int length);
+}
@@ -0,0 +1,194 @@
+package pl.agilevision.hardware.um7.framing;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import pl.agilevision.hardware.um7.UM7Constants;
+
+/**
+ * Push style decoder for the UM7 byte stream. Takes arbitrary slices of bytes, keeps partial
+ * frames between calls and reports complete binary and NMEA frames to a {@link FrameListener}.
+ *
+ * <p>Every byte is looked at exactly once. A byte that breaks a sync marker is re-checked as the
+ * start of a new one, a frame with a bad checksum or an overlong sentence is dropped and the
+ * search continues with the next byte, so line noise is recovered from in constant time.</p>
+ *
+ * <p>Not thread safe: one decoder per byte stream. It does not allocate while decoding.</p>
+ */
+public class FrameDecoder {
+
+  private static final Logger LOG = LoggerFactory.getLogger(FrameDecoder.class);
+
+  private static final int MAX_PAYLOAD_LENGTH = 15 * 4;
+  private static final int MAX_NMEA_LENGTH = 256;
+
+  private enum State {
+    SYNC,
+    BINARY_N,
+    BINARY_P,
+    PACKET_TYPE,
+    ADDRESS,
+    PAYLOAD,
+    CHECKSUM_HIGH,
+    CHECKSUM_LOW,
+    NMEA_P,
+    NMEA_C,
+    NMEA_BODY
+  }
+
+  private final byte[] payload = new byte[MAX_PAYLOAD_LENGTH];
+  private final byte[] sentence = new byte[MAX_NMEA_LENGTH];
+
+  private State state = State.SYNC;
+  private int packetType;
+  private int address;
+  private int payloadLength;
+  private int position;
+  private int checksum;
+  private int receivedChecksum;
+  private long checksumErrors;
+
+  /**
+   * Drops any partially decoded frame
+   */
+  public void reset() {
+    state = State.SYNC;
+    position = 0;
+  }
+
+  /**
+   * Returns the number of binary frames dropped because of a checksum mismatch
+   * @return number of bad frames
+   */
+  public long getChecksumErrors() {
+    return checksumErrors;
+  }
+
+  /**
+   * Decodes a slice of the byte stream
+   * @param data buffer with the bytes
+   * @param offset offset of the first byte
+   * @param length number of bytes
+   * @param listener listener to report complete frames to
+   */
+  public void decode(byte[] data, int offset, int length, FrameListener listener) {
+    final int end = offset + length;
+    for (int i = offset; i < end; i++) {
+      final int b = data[i] & 0xFF;
+      switch (state) {
+        case SYNC:
+          sync(b);
+          break;
+        case BINARY_N:
+          expect(b, 'n', State.BINARY_P);
+          break;
+        case BINARY_P:
+          expect(b, 'p', State.PACKET_TYPE);
+          break;
+        case PACKET_TYPE:
+          packetType = b;
+          checksum = 's' + 'n' + 'p' + b;
+          state = State.ADDRESS;
+          break;
+        case ADDRESS:
+          address = b;
+          checksum += b;
+          payloadLength = payloadLength(packetType);
+          position = 0;
+          state = payloadLength > 0 ? State.PAYLOAD : State.CHECKSUM_HIGH;
+          break;
+        case PAYLOAD:
+          payload[position++] = (byte) b;
+          checksum += b;
+          if (position == payloadLength) {
+            state = State.CHECKSUM_HIGH;
+          }
+          break;
+        case CHECKSUM_HIGH:
+          receivedChecksum = b << 8;
+          state = State.CHECKSUM_LOW;
+          break;
+        case CHECKSUM_LOW:
+          state = State.SYNC;
+          binaryFrame(receivedChecksum | b, listener);
+          break;
+        case NMEA_P:
+          expect(b, 'P', State.NMEA_C);
+          break;
+        case NMEA_C:
+          expect(b, 'C', State.NMEA_BODY);
+          break;
+        case NMEA_BODY:
+          nmeaByte(b, listener);
+          break;
+      }
+    }
+  }
+
+  private void sync(int b) {
+    if (b == 's') {
+      state = State.BINARY_N;
+    } else if (b == '$') {
+      state = State.NMEA_P;
+    }
+  }
+
+  private void expect(int b, int expected, State next) {
+    if (b == expected) {
+      state = next;
+      if (next == State.NMEA_BODY) {
+        sentence[0] = '$';
+        sentence[1] = 'P';
+        sentence[2] = 'C';
+        position = 3;
+      }
+    } else {
+      // the byte may start the next sync marker
+      state = State.SYNC;
+      sync(b);
+    }
+  }
+
+  private void binaryFrame(int received, FrameListener listener) {
+    if ((checksum & 0xFFFF) != received) {
+      checksumErrors++;
+      LOG.error(String.format("bad checksum: %d (should be: %d)", received, checksum & 0xFFFF));
+      return;
+    }
+    int frameAddress = address;
+    if ((packetType & 0b00000010) != 0) {
+      frameAddress |= UM7Constants.Registers.REG_HIDDEN;
+    }
+    listener.onBinaryFrame(packetType, frameAddress, payload, 0, payloadLength);
+  }
+
+  private void nmeaByte(int b, FrameListener listener) {
+    if (b == '\r' || b == '\n') {
+      state = State.SYNC;
+      listener.onNmeaFrame(sentence, 0, position);
+    } else if (b == '$') {
+      LOG.warn("Truncated NMEA packet dropped");
+      state = State.NMEA_P;
+    } else if (position == MAX_NMEA_LENGTH) {
+      LOG.warn("Can't stop NMEA packet reading, no stop bytes found by reading {} bytes of data",
+          MAX_NMEA_LENGTH);
+      state = State.SYNC;
+    } else {
+      sentence[position++] = (byte) b;
+    }
+  }
+
+  /**
+   * Returns the payload length encoded in the packet type byte
+   * @param packetType packet type
+   * @return number of data bytes following the address
+   */
+  public static int payloadLength(int packetType) {
+    if ((packetType & 0b10000000) == 0) {
+      return 0;
+    }
+    if ((packetType & 0b01000000) == 0) {
+      return 4;
+    }
+    return ((packetType & 0b00111100) >> 2) * 4;
+  }
+}
@@ -0,0 +1,27 @@
+package pl.agilevision.hardware.um7.framing;
+
+/**
+ * Receives frames found by the {@link FrameDecoder}. Frame bytes belong to the decoder
+ * and are only valid until the callback returns
+ */
+public interface FrameListener {
+
+  /**
+   * Called for every binary frame with a valid checksum
+   * @param packetType packet type byte
+   * @param address register address, with {@link pl.agilevision.hardware.um7.UM7Constants.Registers#REG_HIDDEN}
+   *                set for hidden registers
+   * @param data buffer holding the payload
+   * @param offset payload offset in the buffer
+   * @param length payload length, 0 if the packet has no data
+   */
+  void onBinaryFrame(int packetType, int address, byte[] data, int offset, int length);
+
+  /**
+   * Called for every complete NMEA sentence
+   * @param sentence buffer holding the sentence starting with "$PC", without the line terminator
+   * @param offset sentence offset in the buffer
+   * @param length sentence length
+   */
+  void onNmeaFrame(byte[] sentence, int offset, int length);
+}
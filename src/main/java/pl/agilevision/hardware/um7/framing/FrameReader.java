@@ -0,0 +1,137 @@
+package pl.agilevision.hardware.um7.framing;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import pl.agilevision.hardware.um7.UM7Constants;
+import pl.agilevision.hardware.um7.data.binary.UM7BinaryPacket;
+import pl.agilevision.hardware.um7.exceptions.DeviceConnectionException;
+import pl.agilevision.hardware.um7.transport.UM7Transport;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads the transport in large chunks into a reusable buffer and pushes them through a
+ * {@link FrameDecoder}. The transport is called once per chunk instead of once per header byte
+ * or NMEA character; frames found in a chunk are queued until they are asked for
+ */
+public class FrameReader implements FrameListener {
+
+  private static final Logger LOG = LoggerFactory.getLogger(FrameReader.class);
+
+  private static final int CHUNK_SIZE = 4096;
+
+  private final UM7Transport transport;
+  private final FrameDecoder decoder = new FrameDecoder();
+  private final byte[] chunk = new byte[CHUNK_SIZE];
+  private final Queue<UM7BinaryPacket> frames = new ArrayDeque<>();
+  private volatile DataFrameHandler dataFrameHandler;
+  // receive time of the chunk being decoded
+  private long chunkNanos;
+
+  public FrameReader(final UM7Transport transport) {
+    this.transport = transport;
+  }
+
+  /**
+   * Sets a handler that may consume data frames in place instead of having them queued
+   * @param handler handler or null to queue all frames
+   */
+  public void setDataFrameHandler(final DataFrameHandler handler) {
+    this.dataFrameHandler = handler;
+  }
+
+  /**
+   * Returns the receive time of the chunk being decoded, e.g. for frames consumed by the
+   * {@link DataFrameHandler}
+   * @return {@link System#nanoTime()} when the chunk was read
+   */
+  public long getChunkNanos() {
+    return chunkNanos;
+  }
+
+  /**
+   * Drops all buffered bytes and frames
+   */
+  public void reset() {
+    decoder.reset();
+    frames.clear();
+  }
+
+  /**
+   * Returns the next frame
+   * @param deadline {@link System#nanoTime()} value after which the search gives up
+   * @return packet, or a timed out packet if no complete frame arrived before the deadline
+   * @throws DeviceConnectionException in a case of transport error
+   */
+  public UM7BinaryPacket next(long deadline) throws DeviceConnectionException {
+    do {
+      final UM7BinaryPacket packet = frames.poll();
+      if (packet != null) {
+        return packet;
+      }
+    } while (fill(deadline));
+    return new UM7BinaryPacket(false, false, 0, null, false, true);
+  }
+
+  /**
+   * Reads the next chunk from the transport and decodes it
+   * @return false if the deadline passed
+   */
+  private boolean fill(long deadline) throws DeviceConnectionException {
+    if (System.nanoTime() - deadline > 0) {
+      return false;
+    }
+    final int read = transport.read(chunk, 0, CHUNK_SIZE);
+    if (read > 0) {
+      chunkNanos = System.nanoTime();
+      decoder.decode(chunk, 0, read, this);
+    } else if (read < 0) {
+      idle();
+    }
+    return true;
+  }
+
+  /**
+   * Pauses after the end of a finite stream (e.g. a replayed file) was reached
+   */
+  private void idle() {
+    try {
+      TimeUnit.MILLISECONDS.sleep(UM7Constants.Defaults.READ_IDLE_DELAY_IN_MILLISECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  @Override
+  public void onBinaryFrame(int packetType, int address, byte[] data, int offset, int length) {
+    final boolean hasData = (packetType & 0b10000000) != 0;
+    final boolean commandFailed = (packetType & 0b00000001) != 0;
+    final DataFrameHandler handler = this.dataFrameHandler;
+    if (handler != null && hasData && !commandFailed && handler.onDataFrame(address, data, offset, length)) {
+      return;
+    }
+    if (LOG.isDebugEnabled()) {
+      LOG.debug("Pack read, pt: {}, sa: {} bytes {}",
+          String.format("%8s", Integer.toBinaryString(packetType)).replace(' ', '0'),
+          String.format("%X", address), length);
+    }
+    final UM7BinaryPacket packet = new UM7BinaryPacket(true, hasData, address,
+        hasData ? Arrays.copyOfRange(data, offset, offset + length) : null, commandFailed, false);
+    packet.receivedNanos = chunkNanos;
+    frames.add(packet);
+  }
+
+  @Override
+  public void onNmeaFrame(byte[] sentence, int offset, int length) {
+    if (LOG.isDebugEnabled()) {
+      LOG.debug("Nmea Pack read: [{}]", new String(sentence, offset, Math.min(length, 6)));
+    }
+    final UM7BinaryPacket packet = new UM7BinaryPacket(true, true, 0,
+        Arrays.copyOfRange(sentence, offset, offset + length), false, false, true);
+    packet.receivedNanos = chunkNanos;
+    frames.add(packet);
+  }
+}
@@ -6,19 +6,31 @@ import pl.agilevision.hardware.um7.UM7Attributes;
 import pl.agilevision.hardware.um7.UM7;
 import pl.agilevision.hardware.um7.UM7Client;
 import pl.agilevision.hardware.um7.UM7Constants;
+import pl.agilevision.hardware.um7.data.AttributeRegistry;
 import pl.agilevision.hardware.um7.data.UM7Packet;
+import pl.agilevision.hardware.um7.data.UM7Profile;
+import pl.agilevision.hardware.um7.data.UM7RegisterMap;
+import pl.agilevision.hardware.um7.data.SampleHistory;
+import pl.agilevision.hardware.um7.data.StateStore;
 import pl.agilevision.hardware.um7.data.binary.UM7BinaryPacket;
 import pl.agilevision.hardware.um7.data.UM7DataSample;
-import pl.agilevision.hardware.um7.data.parser.BinaryPacketParser;
-import pl.agilevision.hardware.um7.data.parser.NMEAPacketParser;
 import pl.agilevision.hardware.um7.exceptions.DeviceConnectionException;
 import pl.agilevision.hardware.um7.exceptions.OperationTimeoutException;
+import pl.agilevision.hardware.um7.sync.ClockEstimator;
 
-import java.io.ByteArrayInputStream;
-import java.io.DataInputStream;
 import java.io.IOException;
-import java.util.HashMap;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.SortedMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 
 /**
@@ -28,56 +40,140 @@ public class DefaultUM7 implements UM7 {
 
   private UM7Client um7Client;
 
-  private UM7DataSample state;
+  private final StateStore state = new StateStore();
+
+  private final SampleHistory history;
+
+  private final ClockEstimator clock = new ClockEstimator();
+
+  private ScheduledExecutorService timeoutScheduler;
 
   private static final Logger LOG = LoggerFactory.getLogger(DefaultUM7Client.class);
 
   public UM7DataSample getState() {
+    return state.snapshot();
+  }
+
+  @Override
+  public StateStore getStateStore() {
     return state;
   }
 
+  @Override
+  public SampleHistory getHistory() {
+    return history;
+  }
+
+  @Override
+  public ClockEstimator getClock() {
+    return clock;
+  }
+
   @Override
   public boolean catchAllSamples(final String [] wantedState, float timeout) throws DeviceConnectionException, IOException {
-    Map<String, Object> m = new HashMap<>();
-    UM7DataSample sample = new UM7DataSample(m);
+    // keys outside the registry never arrive, the samples are still read until the timeout
+    boolean known = true;
+    final List<String> keys = new ArrayList<>();
+    for (String k : wantedState) {
+      if (AttributeRegistry.id(k) < 0) {
+        known = false;
+      } else {
+        keys.add(k);
+      }
+    }
+    final CompletableFuture<UM7DataSample> caught =
+        awaitGroups(AttributeRegistry.groupMask(keys.toArray(new String[0])), 0);
     long t0 = System.nanoTime();
     long ns_timeout = (long) (timeout * 1.0e9);
     boolean all_found = false;
-    while (System.nanoTime() - t0 < ns_timeout) {
-      UM7BinaryPacket packet;
+    try {
+      if (um7Client.isReaderDispatching()) {
+        // the reader thread parses the packets and feeds the state through the packet listener
+        return known && awaitCatch(caught, ns_timeout);
+      }
+      while (!(known && caught.isDone()) && System.nanoTime() - t0 < ns_timeout) {
+        UM7BinaryPacket packet;
 
-      packet = this.um7Client.readPacket();
+        packet = this.um7Client.readPacket();
 
-      if (packet.foundpacket) {
-        UM7DataSample newsample = null;
-        newsample = this.parseDataBatch(packet.data, packet.startaddress, packet.isNmeaPacket);
-        if (newsample != null) {
-          sample.update(newsample);
-        }
-      }
-      boolean all = true;
-      for (String k: wantedState) {
-        if (sample.getRawData().get(k) == null) {
-          all = false;
+        if (packet.foundpacket) {
+          UM7DataSample newsample = this.parseDataBatch(packet);
+          if (newsample != null) {
+            state.update(newsample);
+            history.record(newsample);
+          }
         }
       }
-      if (all) {
-        all_found = true;
-        break;
-      }
+      all_found = known && caught.isDone();
+    } finally {
+      caught.cancel(false);
     }
-    state.update(sample);
     return all_found;
   }
 
+  private static boolean awaitCatch(final CompletableFuture<UM7DataSample> caught, final long nanos) {
+    try {
+      caught.get(nanos, TimeUnit.NANOSECONDS);
+      return true;
+    } catch (final TimeoutException | ExecutionException e) {
+      return false;
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    }
+  }
+
+  @Override
+  public CompletableFuture<UM7DataSample> awaitSamples(final String[] wantedState, final float timeout) {
+    return awaitGroups(AttributeRegistry.groupMask(wantedState), timeout);
+  }
+
+  @Override
+  public CompletableFuture<UM7DataSample> awaitGroups(final long groups, final float timeout) {
+    if ((groups & AttributeRegistry.registerGroups()) != 0 && um7Client.getFlyweightCallback() != null) {
+      throw new IllegalStateException("Register groups can't be awaited while a flyweight callback is set");
+    }
+    final CompletableFuture<UM7DataSample> future = new SampleCatch(um7Client, groups).getFuture();
+    if (timeout > 0 && !future.isDone()) {
+      final ScheduledFuture<?> timeoutTask = timeoutScheduler().schedule(
+          () -> future.completeExceptionally(new OperationTimeoutException("Samples didn't arrive in time")),
+          (long) (timeout * 1.0e9), TimeUnit.NANOSECONDS);
+      future.whenComplete((result, error) -> timeoutTask.cancel(false));
+    }
+    return future;
+  }
+
+  private synchronized ScheduledExecutorService timeoutScheduler() {
+    if (timeoutScheduler == null) {
+      final ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, runnable -> {
+        final Thread thread = new Thread(runnable, "um7-sample-timeouts");
+        thread.setDaemon(true);
+        return thread;
+      });
+      executor.setRemoveOnCancelPolicy(true);
+      timeoutScheduler = executor;
+    }
+    return timeoutScheduler;
+  }
+
   public DefaultUM7(UM7Client um7Client, final String [] stateVars) {
     this.um7Client = um7Client;
-    Map<String, Object> m = new HashMap<>();
+    this.history = new SampleHistory(um7Client);
+    um7Client.addWantedKeys(stateVars);
+    final UM7DataSample initial = new UM7DataSample();
     for (String i : stateVars) {
-      m.put(i, 0);
+      initial.getRawData().put(i, 0);
     }
+    state.update(initial);
 
-    state = new UM7DataSample(m);
+    // keep the state and the callbacks fed with data that arrives during command waits
+    um7Client.setPacketListener(packet -> {
+      final UM7DataSample sample = parseDataBatch(packet);
+      if (sample != null) {
+        state.update(sample);
+        history.record(sample);
+      }
+    });
   }
 
   public boolean zeroGyros() throws DeviceConnectionException, OperationTimeoutException {
@@ -122,6 +218,107 @@ public class DefaultUM7 implements UM7 {
     return s;
   }
 
+  @Override
+  public UM7RegisterMap readConfiguration() throws DeviceConnectionException, OperationTimeoutException {
+    return um7Client.readRegisters(UM7Constants.Registers.CREG_COM_SETTINGS, UM7Constants.Registers.CREG_MAG_BIAS_Z);
+  }
+
+  @Override
+  public UM7Profile captureProfile() throws DeviceConnectionException, OperationTimeoutException {
+    final UM7Profile profile = new UM7Profile();
+    for (final int[] range : UM7Profile.RANGES) {
+      final UM7RegisterMap registers = um7Client.readRegisters(range[0], range[1]);
+      for (int address = range[0]; address <= range[1]; address++) {
+        if (!registers.contains(address)) {
+          throw new OperationTimeoutException(String.format("Failed to read register 0x%X", address));
+        }
+        profile.put(address, registers.getInt(address));
+      }
+    }
+    return profile;
+  }
+
+  @Override
+  public SortedMap<Integer, Integer> diffProfile(final UM7Profile profile)
+      throws DeviceConnectionException, OperationTimeoutException {
+    return profile.diff(captureProfile());
+  }
+
+  @Override
+  public boolean applyProfile(final UM7Profile profile) throws DeviceConnectionException, OperationTimeoutException {
+    final SortedMap<Integer, Integer> changes = diffProfile(profile);
+    if (changes.isEmpty()) {
+      return true;
+    }
+    LOG.info("Applying profile, {} registers differ", changes.size());
+
+    // the batches are pipelined through the reader thread, a reader started here is stopped again
+    final boolean ownReader = !um7Client.isReaderRunning();
+    if (ownReader) {
+      um7Client.startReader();
+    }
+    try {
+      return writeChanges(changes) && flashCommit();
+    } finally {
+      if (ownReader) {
+        um7Client.stopReader();
+      }
+    }
+  }
+
+  private boolean writeChanges(final SortedMap<Integer, Integer> changes) throws DeviceConnectionException {
+    // contiguous registers are written in one batch, all batches are in flight at once
+    final List<Integer> starts = new ArrayList<>();
+    final List<CompletableFuture<UM7BinaryPacket>> replies = new ArrayList<>();
+    final ByteBuffer run = ByteBuffer.allocate(UM7Constants.Registers.MAX_BATCH_LENGTH * 4);
+    int start = -1;
+    int next = -1;
+    for (final Map.Entry<Integer, Integer> register : changes.entrySet()) {
+      if (register.getKey() != next || run.position() == run.capacity()) {
+        if (run.position() > 0) {
+          replies.add(writeRun(start, run));
+          starts.add(start);
+        }
+        start = register.getKey();
+      }
+      run.putInt(register.getValue());
+      next = register.getKey() + 1;
+    }
+    replies.add(writeRun(start, run));
+    starts.add(start);
+
+    boolean ok = true;
+    for (int i = 0; i < replies.size(); i++) {
+      boolean written;
+      try {
+        written = !replies.get(i).get().commandfailed;
+      } catch (final ExecutionException e) {
+        if (e.getCause() instanceof DeviceConnectionException) {
+          throw (DeviceConnectionException) e.getCause();
+        }
+        written = false;
+      } catch (final InterruptedException e) {
+        Thread.currentThread().interrupt();
+        written = false;
+      }
+      if (!written) {
+        LOG.warn("Failed to write registers starting at 0x{}", Integer.toHexString(starts.get(i)));
+        ok = false;
+      }
+    }
+    return ok;
+  }
+
+  private CompletableFuture<UM7BinaryPacket> writeRun(final int start, final ByteBuffer run)
+      throws DeviceConnectionException {
+    final byte[] data = new byte[run.position()];
+    run.flip();
+    run.get(data);
+    run.clear();
+    return um7Client.writeRegisterAsync(start, data.length / 4, data,
+        UM7Constants.Defaults.OPERATION_TIMEOUT_IN_SECONDS);
+  }
+
   @Override
   public UM7DataSample readState() throws DeviceConnectionException, OperationTimeoutException {
 
@@ -131,10 +328,10 @@ public class DefaultUM7 implements UM7 {
     }
 
     try {
-      UM7DataSample sample =
-          this.parseDataBatch(packet.data, packet.startaddress, packet.isNmeaPacket);
+      UM7DataSample sample = this.parseDataBatch(packet);
       if (sample != null && sample.getRawData() != null) {
         this.state.update(sample);
+        this.history.record(sample);
       }
 
       return sample;
@@ -143,12 +340,14 @@ public class DefaultUM7 implements UM7 {
     }
   }
 
-  private UM7DataSample parseDataBatch(byte[] data, int startAddress, boolean isNmeaPacket)
-      throws IOException {
-    UM7Packet u = ! isNmeaPacket ? BinaryPacketParser.getParser()
-        .parse(data, um7Client.getCallbacks(), startAddress)
-        : NMEAPacketParser.getParser().parse(data, um7Client.getCallbacks());
-    return new UM7DataSample(u.getAttributes());
+  private UM7DataSample parseDataBatch(UM7BinaryPacket packet) {
+    UM7Packet u = um7Client.parsePacket(packet);
+    if (u == null) {
+      return null;
+    }
+    final UM7DataSample sample = new UM7DataSample(u.getAttributes());
+    clock.update(sample, packet.receivedNanos);
+    return sample;
   }
 
 }
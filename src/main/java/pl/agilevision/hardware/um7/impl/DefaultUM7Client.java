@@ -1,22 +1,52 @@
 package pl.agilevision.hardware.um7.impl;
 
-import com.fazecast.jSerialComm.SerialPort;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import pl.agilevision.hardware.um7.UM7Client;
 import pl.agilevision.hardware.um7.UM7Constants;
+import pl.agilevision.hardware.um7.callback.CallbackRegistry;
 import pl.agilevision.hardware.um7.callback.DataCallback;
+import pl.agilevision.hardware.um7.callback.DeliveryPolicy;
+import pl.agilevision.hardware.um7.callback.PacketListener;
+import pl.agilevision.hardware.um7.callback.SampleCallback;
+import pl.agilevision.hardware.um7.callback.SampleFlyweightCallback;
+import pl.agilevision.hardware.um7.callback.Subscription;
 import pl.agilevision.hardware.um7.data.UM7Packet;
+import pl.agilevision.hardware.um7.data.UM7RegisterMap;
+import pl.agilevision.hardware.um7.data.UM7SampleFlyweight;
 import pl.agilevision.hardware.um7.data.attributes.ConfigurableRateAttribute;
 import pl.agilevision.hardware.um7.data.binary.UM7BinaryPacket;
+import pl.agilevision.hardware.um7.data.parser.BinaryPacketParser;
 import pl.agilevision.hardware.um7.data.parser.NMEAPacketParser;
+import pl.agilevision.hardware.um7.data.parser.RegisterLayout;
 import pl.agilevision.hardware.um7.exceptions.DeviceConnectionException;
 import pl.agilevision.hardware.um7.exceptions.OperationTimeoutException;
+import pl.agilevision.hardware.um7.framing.FrameReader;
+import pl.agilevision.hardware.um7.transport.SerialPortTransport;
+import pl.agilevision.hardware.um7.transport.UM7Transport;
 
-import java.io.*;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Default implementation of the UM7 client
@@ -25,23 +55,42 @@ import java.util.concurrent.TimeUnit;
  */
 public class DefaultUM7Client implements UM7Client {
 
-  private static final int DATA_BITS = 8;
-  private static final int STOP_BITS = 1;
   private static final double NANOSECONDS_MULTIPLIER = 1.0e9;
 
 
-  private SerialPort serialPort;
+  private final UM7Transport transport;
+  private final FrameReader frameReader;
   private String deviceName;
-  private String devicePort;
   private int baudRate;
   private boolean connected;
   private final float defaultTimeoutInSeconds;
-  private Map<ConfigurableRateAttribute, DataCallback> callbacks;
+  private final CallbackRegistry callbacks = new CallbackRegistry();
+  private volatile PacketReader packetReader;
+  private volatile boolean readerDispatching;
+  private volatile PacketListener packetListener;
+  private final ConcurrentMap<Integer, Queue<CompletableFuture<UM7BinaryPacket>>> pendingRequests =
+      new ConcurrentHashMap<>();
+  private ScheduledExecutorService timeoutScheduler;
+  private final RegisterShadow registerShadow = new RegisterShadow();
+  private final AtomicInteger pendingCount = new AtomicInteger();
+  private volatile int syncAwaitedAddress = -1;
+  private volatile SampleFlyweightCallback flyweightCallback;
+  private final UM7SampleFlyweight flyweight = new UM7SampleFlyweight();
+  // NMEA records are reused per sentence type, so every client parses with its own parser
+  private final NMEAPacketParser nmeaParser = new NMEAPacketParser();
+  private final ConcurrentMap<Class<?>, CopyOnWriteArrayList<SampleCallback<Object>>> sampleCallbacks =
+      new ConcurrentHashMap<>();
+  private volatile boolean lazyDecoding;
+  private volatile Set<String> wantedKeys = Collections.emptySet();
+  // number of consumers wanting each key, guarded by itself
+  private final Map<String, Integer> wantedKeyCounts = new HashMap<>();
+  // groups to decode in lazy mode, recomputed when the subscriptions version changes
+  private final AtomicInteger subscriptionsVersion = new AtomicInteger();
+  private volatile int decodedVersion = -1;
+  private volatile long decodedGroups = RegisterLayout.ALL_GROUPS;
 
   private static final Logger LOG = LoggerFactory.getLogger(DefaultUM7Client.class);
   private static final Map<Integer, Integer> baudRates;
-  private static byte[] nmea_pack;
-  private  static final int MAX_NMEA_LENGTH = 256;
   static
   {
     baudRates = new HashMap<>();
@@ -57,11 +106,6 @@ public class DefaultUM7Client implements UM7Client {
     baudRates.put(256000, 9);
     baudRates.put(460800, 10);
     baudRates.put(921600, 11);
-
-    nmea_pack = new byte[MAX_NMEA_LENGTH]; // suppose that max nmea packet length is 1024
-    nmea_pack[0] = '$';
-    nmea_pack[1] = 'P';
-    nmea_pack[2] = 'C';
   }
 
 
@@ -73,11 +117,26 @@ public class DefaultUM7Client implements UM7Client {
   public DefaultUM7Client(final String deviceName, final String devicePort,
                           int baudRate,
                           float defaultTimeoutInSeconds) throws DeviceConnectionException {
+    this(deviceName, new SerialPortTransport(devicePort), baudRate, defaultTimeoutInSeconds);
+  }
+
+  /**
+   * Creates a client working over an arbitrary transport
+   * @param deviceName device name used in logs
+   * @param transport transport to communicate through
+   * @param baudRate baud rate to configure the transport with
+   * @param defaultTimeoutInSeconds default operation timeout
+   * @throws DeviceConnectionException if the transport can't be opened
+   */
+  public DefaultUM7Client(final String deviceName, final UM7Transport transport,
+                          int baudRate,
+                          float defaultTimeoutInSeconds) throws DeviceConnectionException {
     this.deviceName = deviceName;
-    this.devicePort = devicePort;
+    this.transport = transport;
+    this.frameReader = new FrameReader(transport);
+    this.frameReader.setDataFrameHandler(this::onDataFrame);
     this.baudRate = baudRate;
     this.defaultTimeoutInSeconds = defaultTimeoutInSeconds;
-    callbacks = new HashMap<>();
 
     connect();
   }
@@ -85,30 +144,22 @@ public class DefaultUM7Client implements UM7Client {
   @Override
   public void connect() throws DeviceConnectionException {
     LOG.info("Connecting to the device '{}' via port '{}' at baud rate {}",
-        deviceName, devicePort, baudRate);
+        deviceName, transport, baudRate);
 
     try {
-
-      this.serialPort = SerialPort.getCommPort(devicePort);
-      final boolean opened = this.serialPort.openPort();
-
-      if (opened){
-        this.serialPort.setBaudRate(baudRate);
-        this.serialPort.setNumDataBits(DATA_BITS);
-        this.serialPort.setNumStopBits(STOP_BITS);
-        this.serialPort.setParity(SerialPort.NO_PARITY);
-        this.connected = true;
-
-        LOG.info("Connected to the device '{}' via port '{}' at baud rate {}",
-            deviceName, devicePort, baudRate);
-      } else {
-        LOG.error("Failed to connect to the device '{}' via port '{}' at baud rate {}",
-            deviceName, devicePort, baudRate);
-        throw new DeviceConnectionException("Failed to connect to the device");
-      }
+      frameReader.reset();
+      registerShadow.invalidate();
+      nmeaParser.reset();
+      transport.open();
+      transport.setBaudRate(baudRate);
+      transport.setReadTimeout(UM7Constants.Defaults.READ_TIMEOUT_IN_MILLISECONDS);
+      this.connected = true;
+
+      LOG.info("Connected to the device '{}' via port '{}' at baud rate {}",
+          deviceName, transport, baudRate);
     } catch (final Exception e){
       LOG.error("Connecting to the device '{}' via port '{}' at baud rate {}",
-          deviceName, devicePort, baudRate, e);
+          deviceName, transport, baudRate, e);
 
       throw new DeviceConnectionException("Failed to connect to the device", e);
     }
@@ -117,19 +168,24 @@ public class DefaultUM7Client implements UM7Client {
   @Override
   public void disconnect() throws DeviceConnectionException {
 
-    if (serialPort == null){
-      connected = false;
-    }
-
     if (!connected){
       return;
     }
 
 
+    stopReader();
+    failPendingRequests(new DeviceConnectionException("Disconnected from the device"));
+    synchronized (this) {
+      if (timeoutScheduler != null) {
+        timeoutScheduler.shutdownNow();
+        timeoutScheduler = null;
+      }
+    }
+
     try{
       LOG.info("Disconnecting from the device '{}'",
           deviceName);
-      this.serialPort.closePort();
+      transport.close();
     } catch (final Exception e){
       LOG.error("Error when trying to disconnect from the device '{}'",
           deviceName, e);
@@ -152,170 +208,79 @@ public class DefaultUM7Client implements UM7Client {
   /** Scans for and partially parses new data packets. Binary data can then be sent to data parser
    :return: Parsed packet info */
   public UM7BinaryPacket readPacket(float timeout) throws DeviceConnectionException {
-    final long timeoutInNanoseconds = (long) (timeout * NANOSECONDS_MULTIPLIER);
-    int packetFound = 0;
-    boolean isNmeaPacket = false;
-    long t0 = System.nanoTime();
-
-    while (System.nanoTime() - t0 < timeoutInNanoseconds) {
-      try {
-        if (serialPort.bytesAvailable() >= 3) {
-          int byte1 = this.readByte();
-          if (byte1 == 's') {
-            int byte2 = this.readByte();
-            if (byte2 == 'n') {
-              int byte3 = this.readByte();
-              if (byte3 == 'p') {
-                packetFound = 1;
-                break;
-              }
-            }
-          } else if (byte1 == '$') {
-            int byte2 = this.readByte();
-            if (byte2 == 'P') {
-              int byte3 = this.readByte();
-              if (byte3 == 'C') {
-                packetFound = 1;
-                isNmeaPacket = true;
-                break;
-              }
-            }
-          }
-        } else {
-          TimeUnit.MILLISECONDS.sleep(UM7Constants.Defaults.READ_DELAY_IN_NANOSECONDS);
-        }
-      } catch (InterruptedException e) {
-        LOG.warn("Program interrupted");
-      }
+    final PacketReader reader = this.packetReader;
+    if (reader != null) {
+      return reader.poll(timeout);
     }
+    return readPacketFromTransport(timeout);
+  }
 
-    int hasdata = 0;
-    int commandfailed = 0;
-    int startaddress = 0;
-    byte[] data = null;
-    int timeouted = 1;
-
-    if (packetFound == 0) {
-      timeouted = 1;
-    } else {
-      if (!isNmeaPacket) {
-        timeouted = 0;
-
-        int pt = this.readByte() & 0xFF;
-        hasdata = pt & 0b10000000;
-        int isbatch = (pt & 0b01000000);
-        int numdatabytes = ((pt & 0b00111100) >> 2) * 4;
-
-        commandfailed = pt & 0b00000001;
-        int hidden = (byte) (pt & 0b00000010);
-        if (isbatch == 0) {
-          numdatabytes = 4;
-        }
-
-        startaddress = this.readByte();
-        LOG.debug(String.format("Pack read, pt: %s, sa: %X bytes %d",
-          String.format("%8s", Integer.toBinaryString(pt)).replace(' ', '0'), startaddress, numdatabytes));
-
-        while (serialPort.bytesAvailable() < numdatabytes) {
-          ;
-        }
+  /**
+   * Reads a packet straight from the transport. Blocks on the transport read timeout
+   * instead of polling, so the calling thread sleeps while no data arrives
+   */
+  UM7BinaryPacket readPacketFromTransport(float timeout) throws DeviceConnectionException {
+    return frameReader.next(System.nanoTime() + (long) (timeout * NANOSECONDS_MULTIPLIER));
+  }
 
-        if (hasdata != 0) {
-          data = new byte[numdatabytes];
-          serialPort.readBytes(data, numdatabytes);
-        } else {
-          data = null; // False
-        }
+  @Override
+  public void startReader() {
+    startReader(false);
+  }
 
-        byte[] cs_bytes = new byte[2];
-        serialPort.readBytes(cs_bytes, 2);
-        final DataInputStream is = new DataInputStream(new ByteArrayInputStream(cs_bytes));
-        int cs = 0;
-        try {
-          cs = is.readShort();
-        } catch (IOException e) {
-          e.printStackTrace();
-        }
+  @Override
+  public synchronized void startReader(final boolean dispatch) {
+    readerDispatching = dispatch;
+    if (packetReader != null) {
+      return;
+    }
+    packetReader = new PacketReader(this, deviceName, UM7Constants.Defaults.READER_QUEUE_CAPACITY);
+    packetReader.start();
+  }
 
-        int ocs = 0;
-        ocs += (int) 's';
-        ocs += (int) 'n';
-        ocs += (int) 'p';
-        ocs += pt;
-        ocs += startaddress;
-        if (data != null) {
-          for (byte b : data) {
-            ocs += b & 0xFF;
-          }
-        }
+  @Override
+  public synchronized void stopReader() {
+    if (packetReader == null) {
+      return;
+    }
+    packetReader.stop();
+    packetReader = null;
+    readerDispatching = false;
+  }
 
-        if (hidden != 0) {
-          startaddress |= UM7Constants.Registers.REG_HIDDEN;
-        }
-        if (ocs != cs) {
-          LOG.error(String.format("bad checksum: %d (should be: %d)", cs, ocs));
-          hasdata = 0;   // was for all ValueError
-          commandfailed = 0;
-          startaddress = 0;
-          data = null;
-        }
-      } else {
-        // is NMEA packet
-        timeouted = 0;
-
-        byte[] res = null;
-
-        try {
-          int cur_pos = 3;
-
-          int cur_b;
-          do {
-            while (serialPort.bytesAvailable() < 1) {
-              ;
-            }
-            cur_b = this.readByte();
-            nmea_pack[cur_pos++] = (byte) (cur_b & 0xFF);
-          } while (cur_b != '\r' && cur_b != '\n');
-          res = new byte[cur_pos - 1];
-          System.arraycopy(nmea_pack, 0, res, 0, cur_pos - 1);
-          LOG.debug("Nmea Pack read: [{}]", new String(nmea_pack).substring(0, Math.min(nmea_pack.length, 6)));
-        } catch (ArrayIndexOutOfBoundsException e) {
-          LOG.warn("Can't stop NMEA packet reading, no stop bytes found by reading {} bytes of data: {}",MAX_NMEA_LENGTH,
-                  new String(nmea_pack));
-        }
+  @Override
+  public boolean isReaderRunning() {
+    return packetReader != null;
+  }
 
-        return new UM7BinaryPacket(packetFound == 1, res != null && res.length > 0, startaddress,
-            res, false, timeouted == 1, true);
-      }
-    }
-    return new UM7BinaryPacket(packetFound == 1, hasdata == 1, startaddress, data, commandfailed == 1, timeouted == 1);
+  @Override
+  public boolean isReaderDispatching() {
+    return readerDispatching && packetReader != null;
   }
 
   @Override
   public UM7BinaryPacket readRegister(final int start, final int length, final float timeout)
       throws OperationTimeoutException, DeviceConnectionException {
-    long ns_timeout = (long) (timeout * 1.0e9);
-
-    int hidden = (start & UM7Constants.Registers.REG_HIDDEN);
-    int sa = (start & 0xFF);
-    int pt = 0x0;
-    if (length != 0) {
-      pt = 0b01000000;
-    }
-    pt |= (length << 2);
-    if (hidden != 0) {
-      pt |= 0b00000010;
+    if (isReaderRunning()) {
+      return awaitReply(readRegisterAsync(start, length, timeout), start);
     }
+    long ns_timeout = (long) (timeout * 1.0e9);
 
-    byte[] ba = this.makePack(pt, sa, null);
-    serialPort.writeBytes(ba, ba.length);
+    byte[] ba = this.readRequest(start, length);
+    syncAwaitedAddress = start;
+    try {
+      transport.write(ba, 0, ba.length);
 
-    long t0 = System.nanoTime();
-    while (System.nanoTime() - t0 < ns_timeout) { // While elapsed time is less than timeout
-      UM7BinaryPacket packet = readPacket();
-      if (packet.startaddress == start) {
-        return packet;
+      long t0 = System.nanoTime();
+      while (System.nanoTime() - t0 < ns_timeout) { // While elapsed time is less than timeout
+        UM7BinaryPacket packet = readPacket();
+        if (isReplyTo(packet, start)) {
+          return onReadReply(start, packet);
+        }
+        dispatchUnsolicited(packet);
       }
+    } finally {
+      syncAwaitedAddress = -1;
     }
     return new UM7BinaryPacket(false, false, start, null, true, true);
   }
@@ -324,89 +289,335 @@ public class DefaultUM7Client implements UM7Client {
   public UM7BinaryPacket writeRegister(final int start, final int length, final byte[] data,
                                        final float timeout, boolean noRead)
       throws OperationTimeoutException, DeviceConnectionException {
-    long ns_timeout = (long) (timeout * 1.0e9);
-    short hidden = (short)(start & UM7Constants.Registers.REG_HIDDEN);
-    byte sa = (byte) (start & 0xFF);
-    byte pt = (byte) (0x0);
-    if (data != null) {
-      pt = (byte)0b11000000;
-      pt |= (length << 2);
+    if (isReaderRunning() && !noRead) {
+      return awaitReply(writeRegisterAsync(start, length, data, timeout), start);
     }
-    if (hidden != 0 ) {
-      pt |= 0b00000010;
-    }
-    byte[] ba = this.makePack(pt, sa, data);
-    serialPort.writeBytes(ba, ba.length);
+    long ns_timeout = (long) (timeout * 1.0e9);
+    byte[] ba = this.writeRequest(start, length, data);
+    transport.write(ba, 0, ba.length);
     if (noRead) {
       // todo seems we cant flush in jSerialCom
       //serial.getInputStream().flush()
+      onWriteReply(start, data, new UM7BinaryPacket(false, false, start, null, false, false));
       return new UM7BinaryPacket(false, false, start, null, true, false);
     }
 
     long t0 = System.nanoTime();
     while (System.nanoTime() - t0 < ns_timeout) { // While elapsed time is less than timeout
       UM7BinaryPacket packet = this.readPacket();
-      if (packet.startaddress == start) {
+      if (isReplyTo(packet, start)) {
         LOG.debug("Found packet answer to writeRegister with address {}", start);
-        return packet;
+        return onWriteReply(start, data, packet);
       }
+      dispatchUnsolicited(packet);
     }
     return new UM7BinaryPacket(false, false, start, null, true, true);
   }
 
   @Override
-  public boolean setDataRate(ConfigurableRateAttribute attribute, int rate) throws OperationTimeoutException, DeviceConnectionException {
-    UM7BinaryPacket p;
-    // read current register value
-    p = readRegister(attribute.getRateConfRegisterAddress());
-    if (p.data == null ) {
-      LOG.warn("Cant read register of {}", attribute.getRateConfName());
+  public CompletableFuture<UM7BinaryPacket> readRegisterAsync(final int start, final int length, final float timeout)
+      throws DeviceConnectionException {
+    return sendRequest(start, readRequest(start, length), timeout)
+        .thenApply(packet -> onReadReply(start, packet));
+  }
+
+  @Override
+  public CompletableFuture<UM7BinaryPacket> writeRegisterAsync(final int start, final int length, final byte[] data,
+                                                              final float timeout)
+      throws DeviceConnectionException {
+    return sendRequest(start, writeRequest(start, length, data), timeout)
+        .thenApply(packet -> onWriteReply(start, data, packet));
+  }
+
+  @Override
+  public UM7RegisterMap readRegisters(final int first, final int last)
+      throws OperationTimeoutException, DeviceConnectionException {
+    final UM7RegisterMap registers = new UM7RegisterMap();
+    if (isReaderRunning()) {
+      // all batches are in flight at once, replies are matched by their start address
+      final List<CompletableFuture<UM7BinaryPacket>> replies = new ArrayList<>();
+      for (int start = first; start <= last; start += UM7Constants.Registers.MAX_BATCH_LENGTH) {
+        replies.add(readRegisterAsync(start, batchLength(start, last), defaultTimeoutInSeconds));
+      }
+      int start = first;
+      for (final CompletableFuture<UM7BinaryPacket> reply : replies) {
+        collectRegisters(registers, start, awaitReply(reply, start));
+        start += UM7Constants.Registers.MAX_BATCH_LENGTH;
+      }
+    } else {
+      for (int start = first; start <= last; start += UM7Constants.Registers.MAX_BATCH_LENGTH) {
+        collectRegisters(registers, start, readRegister(start, batchLength(start, last), defaultTimeoutInSeconds));
+      }
     }
-    final DataInputStream p_data = new DataInputStream(new ByteArrayInputStream(p.data));
+    return registers;
+  }
 
-    long reg_val;
-    try {
-      reg_val = p_data.readInt(); //4 bytes
-    } catch (IOException e) {
-      e.printStackTrace();
-      return false;
+  private static int batchLength(final int start, final int last) {
+    return Math.min(UM7Constants.Registers.MAX_BATCH_LENGTH, last - start + 1);
+  }
+
+  private static void collectRegisters(final UM7RegisterMap registers, final int start, final UM7BinaryPacket packet) {
+    if (packet.data == null || packet.commandfailed) {
+      LOG.warn("Cant read registers starting at 0x{}", Integer.toHexString(start));
+      return;
+    }
+    final ByteBuffer data = ByteBuffer.wrap(packet.data);
+    for (int address = start; data.remaining() >= 4; address++) {
+      registers.put(address, data.getInt());
+    }
+  }
+
+  /**
+   * Registers a pending request, sends it and schedules its timeout. The pending request is
+   * registered before the bytes are sent, so the reply can't overtake it
+   */
+  private CompletableFuture<UM7BinaryPacket> sendRequest(final int start, final byte[] request, final float timeout)
+      throws DeviceConnectionException {
+    if (!isReaderRunning()) {
+      throw new IllegalStateException("Asynchronous requests need the reader thread, see startReader()");
     }
 
-    // clear old val
-    long mask = ((1 << attribute.getRateConfWidth()) - 1);
-    reg_val &= ~( mask << attribute.getRateConfBitOffset() );
+    final CompletableFuture<UM7BinaryPacket> future = new CompletableFuture<>();
+    final Queue<CompletableFuture<UM7BinaryPacket>> pending =
+        pendingRequests.computeIfAbsent(start, k -> new ConcurrentLinkedQueue<>());
+    pending.add(future);
 
-    // assign new val
-    reg_val |= (rate & mask) << attribute.getRateConfBitOffset();
+    final ScheduledFuture<?> timeoutTask = timeoutScheduler().schedule(() -> {
+      if (pending.remove(future)) {
+        future.completeExceptionally(new OperationTimeoutException(
+            String.format("No reply for register 0x%X", start)));
+      }
+    }, (long) (timeout * NANOSECONDS_MULTIPLIER), TimeUnit.NANOSECONDS);
+    pendingCount.incrementAndGet();
+    future.whenComplete((packet, error) -> {
+      timeoutTask.cancel(false);
+      pendingCount.decrementAndGet();
+    });
 
-    ByteArrayOutputStream baos = new ByteArrayOutputStream();
-    final DataOutputStream new_data = new DataOutputStream(baos);
     try {
-      new_data.writeInt((int) reg_val);
-    } catch (IOException e) {
-      e.printStackTrace();
+      transport.write(request, 0, request.length);
+    } catch (final DeviceConnectionException e) {
+      pending.remove(future);
+      // completing the future cancels the timeout and releases the pending count
+      future.completeExceptionally(e);
+      throw e;
+    }
+    return future;
+  }
+
+  private synchronized ScheduledExecutorService timeoutScheduler() {
+    if (timeoutScheduler == null) {
+      final ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, runnable -> {
+        final Thread thread = new Thread(runnable, "um7-timeouts-" + deviceName);
+        thread.setDaemon(true);
+        return thread;
+      });
+      executor.setRemoveOnCancelPolicy(true);
+      timeoutScheduler = executor;
+    }
+    return timeoutScheduler;
+  }
+
+  /**
+   * Completes the oldest pending request waiting for the given packet
+   * @return true if the packet was a reply to a pending request
+   */
+  boolean completePendingRequest(final UM7BinaryPacket packet) {
+    if (packet.isNmeaPacket) {
+      return false;
+    }
+    final Queue<CompletableFuture<UM7BinaryPacket>> pending = pendingRequests.get(packet.startaddress);
+    if (pending == null) {
       return false;
     }
-    byte[] res = baos.toByteArray();
+    final CompletableFuture<UM7BinaryPacket> future = pending.poll();
+    return future != null && future.complete(packet);
+  }
+
+  private void failPendingRequests(final Throwable cause) {
+    for (final Queue<CompletableFuture<UM7BinaryPacket>> pending : pendingRequests.values()) {
+      CompletableFuture<UM7BinaryPacket> future;
+      while ((future = pending.poll()) != null) {
+        future.completeExceptionally(cause);
+      }
+    }
+  }
+
+  private UM7BinaryPacket awaitReply(final CompletableFuture<UM7BinaryPacket> reply, final int start)
+      throws DeviceConnectionException {
+    try {
+      return reply.get();
+    } catch (final ExecutionException e) {
+      if (e.getCause() instanceof DeviceConnectionException) {
+        throw (DeviceConnectionException) e.getCause();
+      }
+      return new UM7BinaryPacket(false, false, start, null, true, true);
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return new UM7BinaryPacket(false, false, start, null, true, true);
+    }
+  }
 
-    writeRegister(attribute.getRateConfRegisterAddress(), res.length / 4, res, defaultTimeoutInSeconds, false);
+  /**
+   * Hands a packet read during a command wait over to the listener, or to the callbacks
+   */
+  void dispatchUnsolicited(final UM7BinaryPacket packet) {
+    if (!packet.foundpacket) {
+      return;
+    }
+    final PacketListener listener = this.packetListener;
+    if (listener != null) {
+      listener.onPacket(packet);
+    } else {
+      parsePacket(packet);
+    }
+  }
 
+  /**
+   * Hands broadcast data frames to the flyweight callback in place. Frames that may be replies to
+   * a register read are left for the packet path
+   */
+  private boolean onDataFrame(final int address, final byte[] data, final int offset, final int length) {
+    final SampleFlyweightCallback callback = this.flyweightCallback;
+    if (callback == null || RegisterLayout.fields(address) == null || address == syncAwaitedAddress) {
+      return false;
+    }
+    if (pendingCount.get() > 0) {
+      final Queue<CompletableFuture<UM7BinaryPacket>> pending = pendingRequests.get(address);
+      if (pending != null && !pending.isEmpty()) {
+        return false;
+      }
+    }
+    // the callbacks run on the reader thread, their failures must not stop it
+    try {
+      callback.onSample(flyweight.wrap(address, data, offset, length));
+      if (!sampleCallbacks.isEmpty()) {
+        BinaryPacketParser.getParser().parseSamples(flyweight, sampleCallbacks);
+      }
+    } catch (final RuntimeException e) {
+      LOG.warn("Flyweight callback failed", e);
+    }
     return true;
   }
 
+  /**
+   * Keeps the register shadow in sync with a read reply
+   */
+  private UM7BinaryPacket onReadReply(final int start, final UM7BinaryPacket packet) {
+    if (packet.hasdata && !packet.commandfailed && packet.data != null) {
+      registerShadow.update(start, packet.data);
+    }
+    return packet;
+  }
+
+  /**
+   * Keeps the register shadow in sync with a write reply. Commands other than the flash commit
+   * may change the configuration on the device side, so they drop the whole shadow
+   */
+  private UM7BinaryPacket onWriteReply(final int start, final byte[] data, final UM7BinaryPacket packet) {
+    if ((start & UM7Constants.Registers.REG_HIDDEN) == 0 && start >= UM7Constants.Commands.GET_FW_REVISION) {
+      if (start != UM7Constants.Commands.FLASH_COMMIT && start != UM7Constants.Commands.GET_FW_REVISION) {
+        registerShadow.invalidate();
+      }
+    } else if (packet.commandfailed || data == null) {
+      registerShadow.invalidate(start);
+    } else {
+      registerShadow.update(start, data);
+    }
+    return packet;
+  }
+
+  private static boolean isReplyTo(final UM7BinaryPacket packet, final int start) {
+    return packet.foundpacket && !packet.isNmeaPacket && packet.startaddress == start;
+  }
+
+  private byte[] readRequest(final int start, final int length) {
+    int hidden = (start & UM7Constants.Registers.REG_HIDDEN);
+    int sa = (start & 0xFF);
+    int pt = 0x0;
+    if (length != 0) {
+      pt = 0b01000000;
+    }
+    pt |= (length << 2);
+    if (hidden != 0) {
+      pt |= 0b00000010;
+    }
+    return this.makePack(pt, sa, null);
+  }
+
+  private byte[] writeRequest(final int start, final int length, final byte[] data) {
+    short hidden = (short)(start & UM7Constants.Registers.REG_HIDDEN);
+    byte sa = (byte) (start & 0xFF);
+    byte pt = (byte) (0x0);
+    if (data != null) {
+      pt = (byte)0b11000000;
+      pt |= (length << 2);
+    }
+    if (hidden != 0 ) {
+      pt |= 0b00000010;
+    }
+    return this.makePack(pt, sa, data);
+  }
+
+  @Override
+  public boolean setDataRate(ConfigurableRateAttribute attribute, int rate) throws OperationTimeoutException, DeviceConnectionException {
+    return setDataRates(Collections.singletonMap(attribute, rate));
+  }
+
+  @Override
+  public boolean setDataRates(Map<ConfigurableRateAttribute, Integer> rates)
+      throws OperationTimeoutException, DeviceConnectionException {
+    // group the attributes by register, so every register is read and written once
+    final Map<Integer, List<Map.Entry<ConfigurableRateAttribute, Integer>>> byRegister = new TreeMap<>();
+    for (final Map.Entry<ConfigurableRateAttribute, Integer> entry : rates.entrySet()) {
+      byRegister.computeIfAbsent(entry.getKey().getRateConfRegisterAddress(), k -> new ArrayList<>()).add(entry);
+    }
+
+    boolean ok = true;
+    for (final Map.Entry<Integer, List<Map.Entry<ConfigurableRateAttribute, Integer>>> register : byRegister.entrySet()) {
+      // current register value
+      final Integer current = cachedRegister(register.getKey());
+      if (current == null) {
+        LOG.warn("Cant read register 0x{}", Integer.toHexString(register.getKey()));
+        ok = false;
+        continue;
+      }
+
+      int regVal = current;
+      for (final Map.Entry<ConfigurableRateAttribute, Integer> rate : register.getValue()) {
+        regVal = applyRate(regVal, rate.getKey(), rate.getValue());
+      }
+
+      final byte[] res = ByteBuffer.allocate(4).putInt(regVal).array();
+      final UM7BinaryPacket w = writeRegister(register.getKey(), res.length / 4, res, defaultTimeoutInSeconds, false);
+      if (w.commandfailed) {
+        LOG.warn("Cant write register 0x{}", Integer.toHexString(register.getKey()));
+        ok = false;
+      }
+    }
+    return ok;
+  }
+
+  /**
+   * Replaces the bit field of the attribute in the rate register value
+   */
+  private static int applyRate(int regVal, ConfigurableRateAttribute attribute, int rate) {
+    final int mask = ((1 << attribute.getRateConfWidth()) - 1);
+    // clear old val
+    regVal &= ~(mask << attribute.getRateConfBitOffset());
+    // assign new val
+    return regVal | (rate & mask) << attribute.getRateConfBitOffset();
+  }
+
 
   @Override
   public boolean setBaudRate(int baudRate) throws DeviceConnectionException, OperationTimeoutException {
     int new_baud = baudRates.get(baudRate) << 28;
-    UM7BinaryPacket p = this.readRegister(UM7Constants.Registers.CREG_COM_SETTINGS);
-    if (p.commandfailed){
+    final Integer current = cachedRegister(UM7Constants.Registers.CREG_COM_SETTINGS);
+    if (current == null) {
       return false;
     }
-    // big endian unpack without java.nio
-    int cr = p.data[0];
-    cr = cr << 8 | p.data[1];
-    cr = cr << 8 | p.data[2];
-    cr = cr << 8 | p.data[3];
+    int cr = current;
 
     LOG.debug(String.format("Current baudrate %032b", cr));
     cr &= 0x0fffffff;
@@ -419,33 +630,200 @@ public class DefaultUM7Client implements UM7Client {
     ba[2] = (byte) ((cr >> 8) & 0xFF);
     ba[3] = (byte) (cr & 0xFF);
 
-    p = this.writeRegister(UM7Constants.Registers.CREG_COM_SETTINGS,
+    final UM7BinaryPacket p = this.writeRegister(UM7Constants.Registers.CREG_COM_SETTINGS,
         (byte)1, ba, defaultTimeoutInSeconds, true);
     if (p.commandfailed) {
       return false;
     }
-    serialPort.setBaudRate(baudRate);
+    transport.setBaudRate(baudRate);
+    this.baudRate = baudRate;
     return true;
   }
 
   @Override
-  public void registerCallback(ConfigurableRateAttribute attribute, DataCallback callback) {
-    if (callbacks.containsKey(attribute)) {
-      LOG.error("Callback for {} already defined, skiping new callback", attribute.getRateConfName());
-      return;
+  public void invalidateRegisterCache() {
+    registerShadow.invalidate();
+  }
+
+  @Override
+  public boolean refreshRegisterCache() throws OperationTimeoutException, DeviceConnectionException {
+    registerShadow.invalidate();
+    final UM7RegisterMap registers = readRegisters(RegisterShadow.FIRST_REGISTER, RegisterShadow.LAST_REGISTER);
+    return registers.size() == RegisterShadow.LAST_REGISTER - RegisterShadow.FIRST_REGISTER + 1;
+  }
+
+  @Override
+  public boolean verifyRegisterCache() throws OperationTimeoutException, DeviceConnectionException {
+    final Integer[] cached = new Integer[RegisterShadow.LAST_REGISTER - RegisterShadow.FIRST_REGISTER + 1];
+    for (int address = RegisterShadow.FIRST_REGISTER; address <= RegisterShadow.LAST_REGISTER; address++) {
+      cached[address - RegisterShadow.FIRST_REGISTER] = registerShadow.get(address);
+    }
+
+    // reading the registers updates the shadow with the actual values
+    final UM7RegisterMap actual = readRegisters(RegisterShadow.FIRST_REGISTER, RegisterShadow.LAST_REGISTER);
+    boolean ok = true;
+    for (int address = RegisterShadow.FIRST_REGISTER; address <= RegisterShadow.LAST_REGISTER; address++) {
+      final Integer value = cached[address - RegisterShadow.FIRST_REGISTER];
+      if (!actual.contains(address)) {
+        registerShadow.invalidate(address);
+        ok = false;
+      } else if (value != null && actual.getInt(address) != value) {
+        LOG.warn("Register 0x{} changed on the device: cached {}, actual {}", Integer.toHexString(address),
+            String.format("0x%08X", value), String.format("0x%08X", actual.getInt(address)));
+        ok = false;
+      }
     }
-    callbacks.put(attribute, callback);
+    return ok;
+  }
+
+  /**
+   * Returns the register value from the shadow, reading it from the device on a miss
+   * @return register value or null if it can't be read
+   */
+  private Integer cachedRegister(final int address) throws OperationTimeoutException, DeviceConnectionException {
+    final Integer cached = registerShadow.get(address);
+    if (cached != null) {
+      return cached;
+    }
+    final UM7BinaryPacket p = readRegister(address);
+    if (p.data == null || p.commandfailed) {
+      return null;
+    }
+    return ByteBuffer.wrap(p.data).getInt();
   }
 
   @Override
-  public void unregisterCallback(ConfigurableRateAttribute attribute) {
-    if (callbacks.containsKey(attribute)) {
-      callbacks.remove(attribute);
+  public Subscription registerCallback(ConfigurableRateAttribute attribute, DataCallback callback) {
+    return callbacks.add(attribute, callback);
+  }
+
+  @Override
+  public Subscription registerCallback(ConfigurableRateAttribute attribute, DataCallback callback,
+                                       DeliveryPolicy policy) {
+    return callbacks.add(attribute, callback, policy);
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public <T> void registerCallback(final Class<T> type, final SampleCallback<? super T> callback) {
+    if (!BinaryPacketParser.isSampleType(type) && !NMEAPacketParser.isRecordType(type)) {
+      throw new IllegalArgumentException("Unsupported sample type " + type.getName());
+    }
+    sampleCallbacks.computeIfAbsent(type, k -> new CopyOnWriteArrayList<>()).add((SampleCallback<Object>) callback);
+    subscriptionsVersion.incrementAndGet();
+  }
+
+  @Override
+  public <T> void unregisterCallback(final Class<T> type, final SampleCallback<? super T> callback) {
+    final CopyOnWriteArrayList<SampleCallback<Object>> callbacks = sampleCallbacks.get(type);
+    if (callbacks != null) {
+      callbacks.remove(callback);
+      subscriptionsVersion.incrementAndGet();
+    }
+  }
+
+  @Override
+  public void setLazyDecoding(final boolean lazyDecoding) {
+    this.lazyDecoding = lazyDecoding;
+  }
+
+  @Override
+  public void setCallbackExecutor(final Executor executor, final int queueLimit) {
+    callbacks.setExecutor(executor, queueLimit);
+  }
+
+  @Override
+  public void addWantedKeys(final String... keys) {
+    synchronized (wantedKeyCounts) {
+      for (final String key : keys) {
+        wantedKeyCounts.merge(key, 1, Integer::sum);
+      }
+      this.wantedKeys = new HashSet<>(wantedKeyCounts.keySet());
+    }
+    subscriptionsVersion.incrementAndGet();
+  }
+
+  @Override
+  public void removeWantedKeys(final String... keys) {
+    synchronized (wantedKeyCounts) {
+      for (final String key : keys) {
+        wantedKeyCounts.computeIfPresent(key, (k, count) -> count > 1 ? count - 1 : null);
+      }
+      this.wantedKeys = new HashSet<>(wantedKeyCounts.keySet());
+    }
+    subscriptionsVersion.incrementAndGet();
+  }
+
+  /**
+   * @return mask of the groups binary packets are decoded into
+   */
+  private long decodedGroups() {
+    if (!lazyDecoding) {
+      return RegisterLayout.ALL_GROUPS;
+    }
+    final int version = callbacks.getVersion() + subscriptionsVersion.get();
+    if (version != decodedVersion) {
+      final List<Class<?>> types = new ArrayList<>();
+      for (final Map.Entry<Class<?>, CopyOnWriteArrayList<SampleCallback<Object>>> entry : sampleCallbacks.entrySet()) {
+        if (!entry.getValue().isEmpty()) {
+          types.add(entry.getKey());
+        }
+      }
+      decodedGroups = BinaryPacketParser.neededGroups(callbacks, types, wantedKeys);
+      decodedVersion = version;
+    }
+    return decodedGroups;
+  }
+
+  @Override
+  public void setFlyweightCallback(SampleFlyweightCallback callback) {
+    this.flyweightCallback = callback;
+  }
+
+  @Override
+  public SampleFlyweightCallback getFlyweightCallback() {
+    return flyweightCallback;
+  }
+
+  @Override
+  public void setPacketListener(PacketListener listener) {
+    this.packetListener = listener;
+  }
+
+  @Override
+  public UM7Packet parsePacket(final UM7BinaryPacket packet) {
+    if (!packet.foundpacket) {
+      return null;
+    }
+    if (packet.isNmeaPacket) {
+      return nmeaParser.parse(packet.data, callbacks, sampleCallbacks);
+    }
+    final UM7Packet parsed = BinaryPacketParser.getParser().parse(packet.data, callbacks, decodedGroups(),
+        packet.startaddress);
+    if (parsed != null && packet.data != null && !sampleCallbacks.isEmpty()) {
+      BinaryPacketParser.getParser().parseSamples(
+          new UM7SampleFlyweight().wrap(packet.startaddress, packet.data, 0, packet.data.length), sampleCallbacks);
     }
+    return parsed;
+  }
+
+  @Override
+  public void unregisterCallback(ConfigurableRateAttribute attribute) {
+    callbacks.removeAll(attribute);
+  }
+
+  @Override
+  public void unregisterCallback(ConfigurableRateAttribute attribute, DataCallback callback) {
+    callbacks.remove(attribute, callback);
   }
 
   @Override
   public Map<ConfigurableRateAttribute, DataCallback> getCallbacks() {
+    return callbacks.asMap();
+  }
+
+  @Override
+  public CallbackRegistry getCallbackRegistry() {
     return callbacks;
   }
 
@@ -495,10 +873,4 @@ public class DefaultUM7Client implements UM7Client {
     ba[i] = (byte)( cs & 0xFF);
     return ba;
   }
-
-  public int readByte() {
-    byte bytes[] = new byte[1];
-    serialPort.readBytes(bytes, 1);
-    return bytes[0] & 0xFF;
-  }
 }
@@ -0,0 +1,106 @@
+package pl.agilevision.hardware.um7.impl;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import pl.agilevision.hardware.um7.UM7Constants;
+import pl.agilevision.hardware.um7.data.binary.UM7BinaryPacket;
+import pl.agilevision.hardware.um7.exceptions.DeviceConnectionException;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Dedicated thread that blocks on the transport and frames packets. Replies to pending
+ * asynchronous register requests complete their futures, other packets are queued for
+ * {@link DefaultUM7Client#readPacket(float)}, or parsed and dispatched on this thread while the
+ * client is in dispatching mode. The thread sleeps in the transport while
+ * no data arrives, so CPU use follows the data rate. When consumers fall behind the
+ * oldest packets are dropped, the reader itself never blocks on a full queue
+ */
+class PacketReader implements Runnable {
+
+  private static final Logger LOG = LoggerFactory.getLogger(PacketReader.class);
+  private static final double NANOSECONDS_MULTIPLIER = 1.0e9;
+
+  private final DefaultUM7Client client;
+  private final BlockingQueue<UM7BinaryPacket> queue;
+  private final Thread thread;
+  private volatile boolean running;
+  private long droppedPackets;
+
+  PacketReader(final DefaultUM7Client client, final String deviceName, int queueCapacity) {
+    this.client = client;
+    this.queue = new ArrayBlockingQueue<>(queueCapacity);
+    this.thread = new Thread(this, "um7-reader-" + deviceName);
+    this.thread.setDaemon(true);
+  }
+
+  void start() {
+    running = true;
+    thread.start();
+  }
+
+  void stop() {
+    running = false;
+    if (Thread.currentThread() == thread) {
+      return;
+    }
+    try {
+      thread.join(TimeUnit.SECONDS.toMillis(1));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Waits for the next packet
+   * @param timeout timeout in seconds
+   * @return packet or a timed out packet if nothing arrived
+   */
+  UM7BinaryPacket poll(float timeout) {
+    try {
+      final UM7BinaryPacket packet = queue.poll((long) (timeout * NANOSECONDS_MULTIPLIER), TimeUnit.NANOSECONDS);
+      if (packet != null) {
+        return packet;
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    return new UM7BinaryPacket(false, false, 0, null, false, true);
+  }
+
+  @Override
+  public void run() {
+    LOG.debug("Packet reader started");
+    while (running) {
+      try {
+        final UM7BinaryPacket packet =
+            client.readPacketFromTransport(UM7Constants.Defaults.OPERATION_TIMEOUT_IN_SECONDS);
+        if (packet.foundpacket && !client.completePendingRequest(packet)) {
+          if (client.isReaderDispatching()) {
+            client.dispatchUnsolicited(packet);
+          } else {
+            enqueue(packet);
+          }
+        }
+      } catch (final DeviceConnectionException e) {
+        if (!client.isConnected()) {
+          break;
+        }
+        LOG.error("Failed to read a packet", e);
+      } catch (final RuntimeException e) {
+        LOG.error("Failed to handle a packet", e);
+      }
+    }
+    LOG.debug("Packet reader stopped, {} packets dropped", droppedPackets);
+  }
+
+  private void enqueue(final UM7BinaryPacket packet) {
+    while (!queue.offer(packet)) {
+      if (queue.poll() != null && droppedPackets++ % UM7Constants.Defaults.READER_QUEUE_CAPACITY == 0) {
+        LOG.warn("Packet queue is full, dropping oldest packets ({} dropped so far)", droppedPackets);
+      }
+    }
+  }
+}
@@ -0,0 +1,54 @@
+package pl.agilevision.hardware.um7.impl;
+
+import pl.agilevision.hardware.um7.UM7Constants;
+
+import java.util.Arrays;
+
+/**
+ * In-memory copy of the configuration registers. A register value is known only after it was
+ * read from or successfully written to the device
+ */
+class RegisterShadow {
+
+  static final int FIRST_REGISTER = UM7Constants.Registers.CREG_COM_SETTINGS;
+  static final int LAST_REGISTER = UM7Constants.Registers.CREG_MAG_BIAS_Z;
+
+  private final int[] values = new int[LAST_REGISTER - FIRST_REGISTER + 1];
+  private final boolean[] valid = new boolean[values.length];
+
+  static boolean contains(final int address) {
+    return address >= FIRST_REGISTER && address <= LAST_REGISTER;
+  }
+
+  /**
+   * Stores big-endian register values starting at the given address. Addresses outside of the
+   * configuration registers are skipped
+   */
+  synchronized void update(final int start, final byte[] data) {
+    for (int i = 0; i + 4 <= data.length; i += 4) {
+      final int address = start + i / 4;
+      if (contains(address)) {
+        values[address - FIRST_REGISTER] = (data[i] & 0xFF) << 24 | (data[i + 1] & 0xFF) << 16
+            | (data[i + 2] & 0xFF) << 8 | (data[i + 3] & 0xFF);
+        valid[address - FIRST_REGISTER] = true;
+      }
+    }
+  }
+
+  /**
+   * @return cached register value or null if it is not known
+   */
+  synchronized Integer get(final int address) {
+    return contains(address) && valid[address - FIRST_REGISTER] ? values[address - FIRST_REGISTER] : null;
+  }
+
+  synchronized void invalidate(final int address) {
+    if (contains(address)) {
+      valid[address - FIRST_REGISTER] = false;
+    }
+  }
+
+  synchronized void invalidate() {
+    Arrays.fill(valid, false);
+  }
+}
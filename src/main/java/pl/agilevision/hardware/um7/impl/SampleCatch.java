@@ -0,0 +1,67 @@
+package pl.agilevision.hardware.um7.impl;
+
+import pl.agilevision.hardware.um7.UM7Client;
+import pl.agilevision.hardware.um7.callback.Subscription;
+import pl.agilevision.hardware.um7.data.AttributeRegistry;
+import pl.agilevision.hardware.um7.data.UM7DataSample;
+import pl.agilevision.hardware.um7.data.UM7Packet;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Collects packets of a set of attribute groups through the data callbacks of the client and
+ * completes a future once every group arrived. Doesn't read from the device, whoever reads and
+ * parses packets drives it. Register groups never arrive while the client hands broadcast frames
+ * to a flyweight callback, the caller rejects them up front
+ */
+final class SampleCatch {
+
+  private final long wanted;
+  private final CompletableFuture<UM7DataSample> future = new CompletableFuture<>();
+  private final UM7DataSample sample = new UM7DataSample();
+  private final List<Subscription> subscriptions = new ArrayList<>();
+  private long arrived;
+
+  /**
+   * Subscribes to the groups, the subscriptions are removed when the future completes in any way
+   * @param client client dispatching the packets
+   * @param wanted mask of groups, see {@link AttributeRegistry#groupMask(String...)}
+   */
+  SampleCatch(final UM7Client client, final long wanted) {
+    this.wanted = wanted;
+    for (long groups = wanted; groups != 0; groups &= groups - 1) {
+      final long bit = Long.lowestOneBit(groups);
+      subscriptions.add(client.registerCallback(AttributeRegistry.attribute(Long.numberOfTrailingZeros(bit)),
+          packet -> onPacket(bit, packet)));
+    }
+    if (wanted == 0) {
+      future.complete(sample);
+    }
+    future.whenComplete((result, error) -> {
+      for (final Subscription subscription : subscriptions) {
+        subscription.unsubscribe();
+      }
+    });
+  }
+
+  CompletableFuture<UM7DataSample> getFuture() {
+    return future;
+  }
+
+  private synchronized void onPacket(final long bit, final UM7Packet packet) {
+    if (future.isDone()) {
+      return;
+    }
+    sample.getRawData().putAll(packet.getAttributes());
+    arrived |= bit;
+    if (arrived == wanted) {
+      // unsubscribed before completing, so whoever sees the result sees the callbacks removed
+      for (final Subscription subscription : subscriptions) {
+        subscription.unsubscribe();
+      }
+      future.complete(sample);
+    }
+  }
+}
@@ -0,0 +1,201 @@
+package pl.agilevision.hardware.um7.sync;
+
+import pl.agilevision.hardware.um7.data.AttributeRegistry;
+import pl.agilevision.hardware.um7.data.UM7DataSample;
+
+/**
+ * Maps the device time of the samples to the host {@link System#nanoTime()} clock. Every packet
+ * gives a pair of a device time and a receive time; the receive time is the device time shifted by
+ * the clock offset plus a transmission delay that serial buffering only ever makes longer. The
+ * estimator keeps a window of pairs, splits it into segments, takes the pair with the shortest
+ * delay of every segment and fits a line through them, so the fit follows the lower envelope of
+ * the delays instead of their jitter
+ */
+public class ClockEstimator {
+
+  private static final int DEFAULT_WINDOW = 512;
+  private static final int DEFAULT_SEGMENTS = 8;
+  private static final double NANOS_PER_SECOND = 1.0e9;
+  // groups are timed when they are sampled, a few ms apart, so their packets may arrive out of order
+  private static final double RESET_THRESHOLD_IN_SECONDS = 1.0;
+
+  private final double[] deviceTimes;
+  private final long[] hostTimes;
+  private final int segments;
+  private long count;
+  // pairs are stored relative to the first pair since the last reset, doubles keep sub-ns precision
+  private double deviceReference;
+  private long hostReference;
+  // fit: host = hostReference + (device - deviceReference) * slope + intercept, in nanoseconds
+  private double slope = NANOS_PER_SECOND;
+  private double intercept;
+  private boolean ready;
+
+  public ClockEstimator() {
+    this(DEFAULT_WINDOW, DEFAULT_SEGMENTS);
+  }
+
+  /**
+   * @param window number of pairs kept, the fit covers the time they span
+   * @param segments number of segments the window is split into, at least 2 to estimate the skew
+   */
+  public ClockEstimator(final int window, final int segments) {
+    if (segments < 1 || window < segments) {
+      throw new IllegalArgumentException("Window must hold at least one pair per segment");
+    }
+    this.deviceTimes = new double[window];
+    this.hostTimes = new long[window];
+    this.segments = segments;
+  }
+
+  /**
+   * Adds a pair. A pair slightly older than the previous one is skipped, a device time going back
+   * by more than a second, e.g. after a device reset, restarts the estimation
+   * @param deviceTime device time in seconds
+   * @param hostNanos {@link System#nanoTime()} when the packet was received
+   */
+  public synchronized void update(final double deviceTime, final long hostNanos) {
+    if (Double.isNaN(deviceTime) || hostNanos == 0) {
+      return;
+    }
+    if (count > 0 && deviceTime < deviceTimes[slot(count - 1)]) {
+      if (deviceTimes[slot(count - 1)] - deviceTime <= RESET_THRESHOLD_IN_SECONDS) {
+        return;
+      }
+      reset();
+    }
+    if (count == 0) {
+      deviceReference = deviceTime;
+      hostReference = hostNanos;
+    }
+    deviceTimes[slot(count)] = deviceTime;
+    hostTimes[slot(count)] = hostNanos;
+    count++;
+    fit();
+  }
+
+  /**
+   * Adds the latest device time held by a sample, only the time registers of the device clock
+   * count, see {@link AttributeRegistry#timeId(int)}
+   * @param sample parsed packet
+   * @param hostNanos receive time of the packet, see
+   * {@link pl.agilevision.hardware.um7.data.binary.UM7BinaryPacket#receivedNanos}
+   */
+  public void update(final UM7DataSample sample, final long hostNanos) {
+    double deviceTime = Double.NaN;
+    for (int group = 0; group < AttributeRegistry.groupCount(); group++) {
+      final int timeId = AttributeRegistry.timeId(group);
+      if (timeId >= 0 && sample.has(timeId) && !(sample.getDouble(timeId) <= deviceTime)) {
+        deviceTime = sample.getDouble(timeId);
+      }
+    }
+    update(deviceTime, hostNanos);
+  }
+
+  /**
+   * Forgets all pairs
+   */
+  public synchronized void reset() {
+    count = 0;
+    slope = NANOS_PER_SECOND;
+    intercept = 0;
+    ready = false;
+  }
+
+  /**
+   * @return true once at least one pair was added
+   */
+  public synchronized boolean isReady() {
+    return ready;
+  }
+
+  /**
+   * @param deviceTime device time in seconds
+   * @return host {@link System#nanoTime()} value of the device time, without the transmission delay
+   */
+  public synchronized long toHostNanos(final double deviceTime) {
+    return hostReference + Math.round((deviceTime - deviceReference) * slope + intercept);
+  }
+
+  /**
+   * @param hostNanos host {@link System#nanoTime()} value
+   * @return device time in seconds at the host time
+   */
+  public synchronized double toDeviceTime(final long hostNanos) {
+    return deviceReference + (hostNanos - hostReference - intercept) / slope;
+  }
+
+  /**
+   * Measures how much later than the fitted clock a packet arrived, e.g. to monitor the latency
+   * of the serial link
+   * @param deviceTime device time of the packet in seconds
+   * @param hostNanos receive time of the packet
+   * @return delay in nanoseconds above the shortest delay seen
+   */
+  public long getDelayNanos(final double deviceTime, final long hostNanos) {
+    return hostNanos - toHostNanos(deviceTime);
+  }
+
+  /**
+   * @return host time minus device time in seconds at the latest pair
+   */
+  public synchronized double getOffset() {
+    if (count == 0) {
+      return Double.NaN;
+    }
+    final double deviceTime = deviceTimes[slot(count - 1)];
+    return toHostNanos(deviceTime) / NANOS_PER_SECOND - deviceTime;
+  }
+
+  /**
+   * @return rate of the device clock relative to the host clock minus one, e.g. 2.0e-5 if the host
+   * clock runs 20 ppm faster
+   */
+  public synchronized double getSkew() {
+    return slope / NANOS_PER_SECOND - 1;
+  }
+
+  private int slot(final long pair) {
+    return (int) (pair % deviceTimes.length);
+  }
+
+  private void fit() {
+    final long first = Math.max(0, count - deviceTimes.length);
+    final int size = (int) (count - first);
+    final int used = Math.min(segments, size);
+    // least squares through the pair with the lowest delay of every segment
+    double sumX = 0;
+    double sumY = 0;
+    double sumXX = 0;
+    double sumXY = 0;
+    for (int segment = 0; segment < used; segment++) {
+      final long from = first + (long) size * segment / used;
+      final long to = first + (long) size * (segment + 1) / used;
+      double bestX = 0;
+      double bestY = Double.POSITIVE_INFINITY;
+      for (long pair = from; pair < to; pair++) {
+        final double x = deviceTimes[slot(pair)] - deviceReference;
+        // delay relative to a clock running at the nominal rate
+        final double y = hostTimes[slot(pair)] - hostReference - x * NANOS_PER_SECOND;
+        if (y < bestY) {
+          bestX = x;
+          bestY = y;
+        }
+      }
+      sumX += bestX;
+      sumY += bestY;
+      sumXX += bestX * bestX;
+      sumXY += bestX * bestY;
+    }
+    final double spread = used * sumXX - sumX * sumX;
+    if (used > 1 && spread > 0) {
+      final double rate = (used * sumXY - sumX * sumY) / spread;
+      slope = NANOS_PER_SECOND + rate;
+      intercept = (sumY - rate * sumX) / used;
+    } else {
+      slope = NANOS_PER_SECOND;
+      intercept = sumY / used;
+    }
+    ready = true;
+  }
+}
@@ -0,0 +1,156 @@
+package pl.agilevision.hardware.um7.transport;
+
+import pl.agilevision.hardware.um7.exceptions.DeviceConnectionException;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ByteChannel;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Transport backed by NIO channels, e.g. a {@link java.nio.channels.FileChannel} with a recorded
+ * session to replay or a pipe connected to an emulator.
+ *
+ * <p>{@link #bytesAvailable()} is implemented with a read-ahead buffer topped up by a single read
+ * from the channel. Channels that may block (blocking pipes and sockets, stream adapters) are only
+ * read when nothing is buffered, and then wait until at least one byte arrives.</p>
+ */
+public class ByteChannelTransport implements UM7Transport {
+
+  private static final int READ_AHEAD_SIZE = 4096;
+  private static final long POLL_INTERVAL_IN_MILLISECONDS = 1;
+
+  private final ReadableByteChannel input;
+  private final WritableByteChannel output;
+  private final ByteBuffer readAhead;
+  private boolean open;
+  private boolean endOfStream;
+  private int readTimeout;
+
+  public ByteChannelTransport(final ByteChannel channel) {
+    this(channel, channel);
+  }
+
+  /**
+   * @param input channel the device data is read from
+   * @param output channel the commands are written to
+   */
+  public ByteChannelTransport(final ReadableByteChannel input, final WritableByteChannel output) {
+    this.input = input;
+    this.output = output;
+    this.readAhead = ByteBuffer.allocate(READ_AHEAD_SIZE);
+    this.readAhead.flip();
+  }
+
+  @Override
+  public void open() throws DeviceConnectionException {
+    if (!input.isOpen() || !output.isOpen()) {
+      throw new DeviceConnectionException("Channel is closed");
+    }
+    open = true;
+  }
+
+  @Override
+  public void close() throws DeviceConnectionException {
+    open = false;
+    try {
+      input.close();
+      output.close();
+    } catch (final IOException e) {
+      throw new DeviceConnectionException("Failed to close the channel", e);
+    }
+  }
+
+  @Override
+  public boolean isOpen() {
+    return open;
+  }
+
+  @Override
+  public void setReadTimeout(int milliseconds) {
+    this.readTimeout = milliseconds;
+  }
+
+  @Override
+  public int read(byte[] buffer, int offset, int length) throws DeviceConnectionException {
+    if (readAhead.hasRemaining()) {
+      final int count = Math.min(length, readAhead.remaining());
+      readAhead.get(buffer, offset, count);
+      return count;
+    }
+    if (endOfStream) {
+      return -1;
+    }
+    final ByteBuffer dst = ByteBuffer.wrap(buffer, offset, length);
+    final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(readTimeout);
+    try {
+      int read = input.read(dst);
+      // non-blocking channels return 0 right away, poll them until the read timeout passes
+      while (read == 0 && System.nanoTime() < deadline) {
+        TimeUnit.MILLISECONDS.sleep(POLL_INTERVAL_IN_MILLISECONDS);
+        read = input.read(dst);
+      }
+      if (read < 0) {
+        endOfStream = true;
+      }
+      return read;
+    } catch (final IOException e) {
+      throw new DeviceConnectionException("Failed to read from the channel", e);
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return 0;
+    }
+  }
+
+  @Override
+  public int write(byte[] buffer, int offset, int length) throws DeviceConnectionException {
+    final ByteBuffer src = ByteBuffer.wrap(buffer, offset, length);
+    try {
+      while (src.hasRemaining()) {
+        output.write(src);
+      }
+    } catch (final IOException e) {
+      throw new DeviceConnectionException("Failed to write to the channel", e);
+    }
+    return length;
+  }
+
+  @Override
+  public int bytesAvailable() throws DeviceConnectionException {
+    if (endOfStream || (readAhead.hasRemaining() && isBlocking())) {
+      return readAhead.remaining();
+    }
+    readAhead.compact();
+    try {
+      if (input.read(readAhead) < 0) {
+        endOfStream = true;
+      }
+    } catch (final IOException e) {
+      throw new DeviceConnectionException("Failed to read from the channel", e);
+    } finally {
+      readAhead.flip();
+    }
+    return readAhead.remaining();
+  }
+
+  private boolean isBlocking() {
+    if (input instanceof FileChannel) {
+      return false;
+    }
+    return !(input instanceof SelectableChannel) || ((SelectableChannel) input).isBlocking();
+  }
+
+  @Override
+  public void setBaudRate(int baudRate) {
+    // channels have no baud rate
+  }
+
+  @Override
+  public String toString() {
+    return input.toString();
+  }
+}
@@ -0,0 +1,101 @@
+package pl.agilevision.hardware.um7.transport;
+
+import com.fazecast.jSerialComm.SerialPort;
+import pl.agilevision.hardware.um7.exceptions.DeviceConnectionException;
+
+/**
+ * Transport backed by a jSerialComm serial port
+ */
+public class SerialPortTransport implements UM7Transport {
+
+  private static final int DATA_BITS = 8;
+  private static final int STOP_BITS = 1;
+
+  private final String portName;
+  private SerialPort serialPort;
+  private int readTimeout;
+  private byte[] scratch = new byte[0];
+
+  public SerialPortTransport(final String portName) {
+    this.portName = portName;
+  }
+
+  @Override
+  public void open() throws DeviceConnectionException {
+    serialPort = SerialPort.getCommPort(portName);
+    if (!serialPort.openPort()) {
+      throw new DeviceConnectionException(String.format("Failed to open port '%s'", portName));
+    }
+    serialPort.setNumDataBits(DATA_BITS);
+    serialPort.setNumStopBits(STOP_BITS);
+    serialPort.setParity(SerialPort.NO_PARITY);
+    applyTimeouts();
+  }
+
+  @Override
+  public void close() throws DeviceConnectionException {
+    if (serialPort != null) {
+      serialPort.closePort();
+    }
+  }
+
+  @Override
+  public boolean isOpen() {
+    return serialPort != null && serialPort.isOpen();
+  }
+
+  @Override
+  public void setReadTimeout(int milliseconds) throws DeviceConnectionException {
+    this.readTimeout = milliseconds;
+    if (serialPort != null) {
+      applyTimeouts();
+    }
+  }
+
+  private void applyTimeouts() {
+    // semi-blocking: the read returns as soon as any data arrives, the thread sleeps in the driver otherwise
+    serialPort.setComPortTimeouts(readTimeout > 0 ? SerialPort.TIMEOUT_READ_SEMI_BLOCKING : SerialPort.TIMEOUT_NONBLOCKING,
+        readTimeout, 0);
+  }
+
+  @Override
+  public int read(byte[] buffer, int offset, int length) throws DeviceConnectionException {
+    if (offset == 0) {
+      return serialPort.readBytes(buffer, length);
+    }
+    // jSerialComm can only read to the beginning of an array
+    if (scratch.length < length) {
+      scratch = new byte[length];
+    }
+    final int read = serialPort.readBytes(scratch, length);
+    if (read > 0) {
+      System.arraycopy(scratch, 0, buffer, offset, read);
+    }
+    return read;
+  }
+
+  @Override
+  public int write(byte[] buffer, int offset, int length) throws DeviceConnectionException {
+    if (offset == 0) {
+      return serialPort.writeBytes(buffer, length);
+    }
+    final byte[] chunk = new byte[length];
+    System.arraycopy(buffer, offset, chunk, 0, length);
+    return serialPort.writeBytes(chunk, length);
+  }
+
+  @Override
+  public int bytesAvailable() throws DeviceConnectionException {
+    return serialPort.bytesAvailable();
+  }
+
+  @Override
+  public void setBaudRate(int baudRate) throws DeviceConnectionException {
+    serialPort.setBaudRate(baudRate);
+  }
+
+  @Override
+  public String toString() {
+    return portName;
+  }
+}
@@ -0,0 +1,70 @@
+package pl.agilevision.hardware.um7.transport;
+
+import pl.agilevision.hardware.um7.exceptions.DeviceConnectionException;
+
+/**
+ * Byte level channel the UM7 client talks through. Implementations hide the actual
+ * IO mechanism (serial port, file replay, loopback, ...) from the packet framing code
+ */
+public interface UM7Transport {
+
+  /**
+   * Opens the underlying channel
+   * @throws DeviceConnectionException if the channel can't be opened
+   */
+  void open() throws DeviceConnectionException;
+
+  /**
+   * Closes the underlying channel. Does nothing if the channel is already closed
+   * @throws DeviceConnectionException if an error happened while closing the channel
+   */
+  void close() throws DeviceConnectionException;
+
+  /**
+   * Returns true if the channel is open
+   * @return true if the channel is open
+   */
+  boolean isOpen();
+
+  /**
+   * Sets how long {@link #read(byte[], int, int)} waits for data before returning 0
+   * @param milliseconds read timeout in milliseconds
+   * @throws DeviceConnectionException if the timeout can't be applied
+   */
+  void setReadTimeout(int milliseconds) throws DeviceConnectionException;
+
+  /**
+   * Reads up to length bytes into the buffer. Waits up to the read timeout for the first byte
+   * @param buffer destination buffer
+   * @param offset offset in the destination buffer
+   * @param length maximum number of bytes to read
+   * @return number of bytes read, 0 if nothing arrived before the read timeout or -1 if the end
+   * of the stream was reached
+   * @throws DeviceConnectionException in a case of IO error
+   */
+  int read(byte[] buffer, int offset, int length) throws DeviceConnectionException;
+
+  /**
+   * Writes length bytes from the buffer
+   * @param buffer source buffer
+   * @param offset offset in the source buffer
+   * @param length number of bytes to write
+   * @return number of bytes written
+   * @throws DeviceConnectionException in a case of IO error
+   */
+  int write(byte[] buffer, int offset, int length) throws DeviceConnectionException;
+
+  /**
+   * Returns the number of bytes that can be read without blocking
+   * @return number of available bytes
+   * @throws DeviceConnectionException in a case of IO error
+   */
+  int bytesAvailable() throws DeviceConnectionException;
+
+  /**
+   * Sets the baud rate of the channel. Transports without a notion of baud rate ignore it
+   * @param baudRate baud rate
+   * @throws DeviceConnectionException if the baud rate can't be applied
+   */
+  void setBaudRate(int baudRate) throws DeviceConnectionException;
+}
@@ -0,0 +1,95 @@
+package pl.agilevision.hardware.um7;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import pl.agilevision.hardware.um7.data.binary.UM7BinaryPacket;
+import pl.agilevision.hardware.um7.exceptions.OperationTimeoutException;
+import pl.agilevision.hardware.um7.impl.DefaultUM7Client;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Set of tests for the pipelined register API of {@link DefaultUM7Client} against an {@link EmulatedDevice}
+ */
+public class AsyncRegisterTest {
+
+  private EmulatedDevice device;
+  private DefaultUM7Client client;
+
+  @Before
+  public void setUp() throws Exception {
+    device = new EmulatedDevice();
+    client = device.connect();
+    client.startReader();
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    client.disconnect();
+    device.stop();
+  }
+
+  @Test
+  public void testPipelinedReads() throws Exception {
+    // Given
+    for (int address = 0; address <= UM7Constants.Registers.CREG_MAG_BIAS_Z; address++) {
+      device.setRegister(address, address * 3);
+    }
+
+    // When
+    final List<CompletableFuture<UM7BinaryPacket>> replies = new ArrayList<>();
+    for (int address = 0; address <= UM7Constants.Registers.CREG_MAG_BIAS_Z; address++) {
+      replies.add(client.readRegisterAsync(address, 0, 1.0f));
+    }
+
+    // Then
+    for (int address = 0; address <= UM7Constants.Registers.CREG_MAG_BIAS_Z; address++) {
+      final UM7BinaryPacket packet = replies.get(address).get();
+      assertEquals(address, packet.startaddress);
+      assertEquals(address * 3, ByteBuffer.wrap(packet.data).getInt());
+    }
+  }
+
+  @Test
+  public void testWriteThenSynchronousRead() throws Exception {
+    final byte[] value = ByteBuffer.allocate(4).putInt(0x01020304).array();
+    final UM7BinaryPacket ack = client.writeRegisterAsync(UM7Constants.Registers.CREG_COM_RATES5, 1, value, 1.0f).get();
+    assertFalse(ack.commandfailed);
+    assertEquals(0x01020304, device.getRegister(UM7Constants.Registers.CREG_COM_RATES5));
+
+    // synchronous calls go through the same pending table while the reader runs
+    assertTrue(client.isReaderRunning());
+    final UM7BinaryPacket packet = client.readRegister(UM7Constants.Registers.CREG_COM_RATES5);
+    assertEquals(0x01020304, ByteBuffer.wrap(packet.data).getInt());
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testRejectedWithoutReader() throws Exception {
+    // Given
+    client.stopReader();
+
+    // When
+    client.readRegisterAsync(UM7Constants.Registers.CREG_COM_RATES1, 0, 1.0f);
+  }
+
+  @Test
+  public void testTimeout() throws Exception {
+    device.setMuted(true);
+    try {
+      client.readRegisterAsync(UM7Constants.Registers.CREG_COM_RATES1, 0, 0.1f).get();
+      fail("Timeout expected");
+    } catch (ExecutionException e) {
+      assertTrue(e.getCause() instanceof OperationTimeoutException);
+    }
+  }
+}
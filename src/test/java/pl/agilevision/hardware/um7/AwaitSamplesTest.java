@@ -0,0 +1,153 @@
+package pl.agilevision.hardware.um7;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import pl.agilevision.hardware.um7.data.AttributeRegistry;
+import pl.agilevision.hardware.um7.data.UM7DataSample;
+import pl.agilevision.hardware.um7.exceptions.OperationTimeoutException;
+import pl.agilevision.hardware.um7.impl.DefaultUM7;
+import pl.agilevision.hardware.um7.impl.DefaultUM7Client;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Set of tests for {@link DefaultUM7#awaitSamples(String[], float)}
+ */
+public class AwaitSamplesTest {
+
+  private EmulatedDevice device;
+  private DefaultUM7Client client;
+  private UM7 um7;
+
+  @Before
+  public void setUp() throws Exception {
+    device = new EmulatedDevice();
+    client = device.connect();
+    client.setLazyDecoding(true);
+    um7 = new DefaultUM7(client, new String[0]);
+    client.startReader(true);
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    client.disconnect();
+    device.stop();
+  }
+
+  private void send(final int start, final int registers) throws Exception {
+    device.send(ByteChannelTransportTest.binaryPacket(0b11000000 | registers << 2, start, new byte[registers * 4]));
+  }
+
+  @Test
+  public void testCompletesWhenAllGroupsArrived() throws Exception {
+    // Given
+    final CompletableFuture<UM7DataSample> future =
+        um7.awaitSamples(new String[]{UM7Attributes.Euler.Roll, UM7Attributes.Quat.A}, 0);
+    // registered after the catch, so it runs after it on the reader thread
+    final CountDownLatch eulerDispatched = new CountDownLatch(1);
+    client.registerCallback(UM7Attributes.Euler, packet -> eulerDispatched.countDown());
+
+    // When
+    send(UM7Constants.Registers.DREG_EULER_PHI_THETA, 5);
+    assertTrue(eulerDispatched.await(1, TimeUnit.SECONDS));
+    final boolean doneAfterEuler = future.isDone();
+    send(UM7Constants.Registers.DREG_QUAT_AB, 3);
+
+    // Then
+    assertFalse(doneAfterEuler);
+    final UM7DataSample sample = future.get(1, TimeUnit.SECONDS);
+    assertTrue(sample.hasValue(UM7Attributes.Euler.Yaw));
+    assertTrue(sample.hasValue(UM7Attributes.Quat.D));
+    assertEquals(1, client.getCallbackRegistry().getSubscriptions(UM7Attributes.Euler).length);
+    assertFalse(client.getCallbackRegistry().hasSubscribers(UM7Attributes.Quat));
+  }
+
+  @Test
+  public void testTimesOut() throws Exception {
+    // Given
+    final long groups = AttributeRegistry.groupMask(UM7Attributes.Gps.Latitude);
+
+    // When
+    final CompletableFuture<UM7DataSample> future = um7.awaitGroups(groups, 0.05f);
+
+    // Then
+    try {
+      future.get(1, TimeUnit.SECONDS);
+      fail();
+    } catch (final ExecutionException e) {
+      assertTrue(e.getCause() instanceof OperationTimeoutException);
+    }
+    assertFalse(client.getCallbackRegistry().hasSubscribers(UM7Attributes.Gps));
+  }
+
+  @Test
+  public void testCatchAllSamplesWaitsForDispatchingReader() throws Exception {
+    // Given
+    final AtomicBoolean sending = new AtomicBoolean(true);
+    final Thread sender = new Thread(() -> {
+      try {
+        // repeated until caught, the catch subscribes only once catchAllSamples runs
+        while (sending.get()) {
+          send(UM7Constants.Registers.DREG_QUAT_AB, 3);
+          Thread.sleep(20);
+        }
+      } catch (final Exception e) {
+        sending.set(false);
+      }
+    });
+    sender.start();
+
+    // When
+    final boolean caught;
+    try {
+      caught = um7.catchAllSamples(new String[]{UM7Attributes.Quat.B}, 5.0f);
+    } finally {
+      sending.set(false);
+      sender.join();
+    }
+
+    // Then
+    assertTrue(caught);
+    assertTrue(client.isReaderDispatching());
+  }
+
+  @Test
+  public void testCatchAllSamplesDrivesReads() throws Exception {
+    // Given
+    client.stopReader();
+    device.send(ByteChannelTransportTest.binaryPacket(0b11000000 | 3 << 2, UM7Constants.Registers.DREG_QUAT_AB,
+        new byte[12]));
+
+    // When
+    final boolean caught = um7.catchAllSamples(new String[]{UM7Attributes.Quat.B}, 1.0f);
+
+    // Then
+    assertTrue(caught);
+    assertEquals(0.0, um7.getStateStore().get(UM7Attributes.Quat.B), 0);
+  }
+
+  @Test
+  public void testRegisterGroupsRejectedWithFlyweightCallback() throws Exception {
+    // Given
+    client.setFlyweightCallback(sample -> { });
+
+    // When
+    try {
+      um7.awaitSamples(new String[]{UM7Attributes.Quat.B}, 1.0f);
+      fail();
+    } catch (final IllegalStateException e) {
+      // Then
+      assertFalse(client.getCallbackRegistry().hasSubscribers(UM7Attributes.Quat));
+    }
+  }
+}
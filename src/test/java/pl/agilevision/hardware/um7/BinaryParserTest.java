@@ -0,0 +1,101 @@
+package pl.agilevision.hardware.um7;
+
+import org.junit.Test;
+import pl.agilevision.hardware.um7.callback.DataCallback;
+import pl.agilevision.hardware.um7.callback.PacketDispatcher;
+import pl.agilevision.hardware.um7.data.UM7Packet;
+import pl.agilevision.hardware.um7.data.attributes.ConfigurableRateAttribute;
+import pl.agilevision.hardware.um7.data.parser.BinaryPacketParser;
+import pl.agilevision.hardware.um7.data.parser.PacketParser;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Set of tests for the table-driven {@link BinaryPacketParser}
+ */
+public class BinaryParserTest {
+
+  private PacketParser parser = new BinaryPacketParser();
+
+  @Test
+  public void testPoseBatch() {
+    // Given
+    final ByteBuffer data = ByteBuffer.allocate(9 * 4);
+    data.putShort((short) 910).putShort((short) -1820).putShort((short) 2730).putShort((short) 0);
+    data.putShort((short) 16).putShort((short) 32).putShort((short) 48).putShort((short) 0);
+    data.putFloat(1.5f);
+    data.putFloat(10f).putFloat(20f).putFloat(30f).putFloat(2.5f);
+    final Map<String, UM7Packet> received = new HashMap<>();
+    final Map<ConfigurableRateAttribute, DataCallback> callbacks = new HashMap<>();
+    callbacks.put(UM7Attributes.Euler, packet -> received.put("euler", packet));
+    callbacks.put(UM7Attributes.Position, packet -> received.put("position", packet));
+
+    // When
+    final UM7Packet packet = parser.parse(data.array(), PacketDispatcher.of(callbacks), UM7Constants.Registers.DREG_EULER_PHI_THETA);
+
+    // Then
+    assertEquals(910 / 91.02222, (Double) packet.getAttributes().get(UM7Attributes.Euler.Roll), 1e-9);
+    assertEquals(3.0, (Double) packet.getAttributes().get(UM7Attributes.Euler.YawRate), 1e-9);
+    assertEquals(2.5f, (Float) packet.getAttributes().get(UM7Attributes.Position.Time), 0.0f);
+
+    final Map<String, Object> euler = received.get("euler").getAttributes();
+    assertEquals(7, euler.size());
+    assertEquals(1.0, (Double) euler.get(UM7Attributes.Euler.RollRate), 1e-9);
+    assertEquals(2.0, (Double) euler.get(UM7Attributes.Euler.PitchRate), 1e-9);
+    assertEquals(4, received.get("position").getAttributes().size());
+  }
+
+  @Test
+  public void testRawBatchTypes() {
+    // Given
+    final ByteBuffer data = ByteBuffer.allocate(11 * 4);
+    data.putShort((short) 91).putShort((short) 0).putShort((short) 0).putShort((short) 0).putFloat(1f);
+    data.putShort((short) 0).putShort((short) 0).putShort((short) 0).putShort((short) 0).putFloat(1f);
+    data.putShort((short) 7).putShort((short) 8).putShort((short) 9).putShort((short) 0).putFloat(1f);
+    data.putFloat(36.6f).putFloat(1f);
+
+    // When
+    final UM7Packet packet = parser.parse(data.array(), null, UM7Constants.Registers.DREG_GYRO_RAW_XY);
+
+    // Then
+    assertTrue(packet.getAttributes().get(UM7Attributes.Gyro.Raw.X) instanceof Double);
+    assertEquals((short) 9, packet.getAttributes().get(UM7Attributes.Magnetometer.Raw.Z));
+    assertEquals(36.6f, packet.getAttributes().get(UM7Attributes.Temperature.Value));
+  }
+
+  @Test
+  public void testPartialProcessedBatch() {
+    // Given
+    final ByteBuffer data = ByteBuffer.allocate(10 * 4);
+    for (int i = 0; i < 10; i++) {
+      data.putFloat(i);
+    }
+    final Map<String, UM7Packet> received = new HashMap<>();
+    final Map<ConfigurableRateAttribute, DataCallback> callbacks = new HashMap<>();
+    callbacks.put(UM7Attributes.Gyro.Processed, packet -> received.put("gyro", packet));
+    callbacks.put(UM7Attributes.Accelerator.Processed, packet -> received.put("accel", packet));
+    callbacks.put(UM7Attributes.Magnetometer.Processed, packet -> received.put("mag", packet));
+
+    // When
+    final UM7Packet packet = parser.parse(data.array(), PacketDispatcher.of(callbacks), UM7Constants.Registers.DREG_GYRO_PROC_X);
+
+    // Then
+    assertEquals(10, packet.getAttributes().size());
+    assertEquals(5.0f, packet.getAttributes().get(UM7Attributes.Accelerator.Processed.Y));
+    assertTrue(received.containsKey("gyro"));
+    assertTrue(received.containsKey("accel"));
+    assertFalse(received.containsKey("mag"));
+  }
+
+  @Test
+  public void testUnknownRegister() {
+    assertNull(parser.parse(new byte[4], null, UM7Constants.Registers.CREG_COM_RATES1));
+  }
+}
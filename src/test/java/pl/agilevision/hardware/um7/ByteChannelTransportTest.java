@@ -0,0 +1,146 @@
+package pl.agilevision.hardware.um7;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import pl.agilevision.hardware.um7.data.binary.UM7BinaryPacket;
+import pl.agilevision.hardware.um7.exceptions.DeviceConnectionException;
+import pl.agilevision.hardware.um7.impl.DefaultUM7Client;
+import pl.agilevision.hardware.um7.transport.ByteChannelTransport;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Replays recorded byte streams through {@link DefaultUM7Client} using {@link ByteChannelTransport}
+ */
+public class ByteChannelTransportTest {
+
+  private Path recording;
+
+  @Before
+  public void setUp() throws IOException {
+    recording = Files.createTempFile("um7", ".bin");
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    Files.deleteIfExists(recording);
+  }
+
+  @Test
+  public void testReplayBinaryPacket() throws IOException, DeviceConnectionException {
+    // Given
+    final byte[] health = {0x00, 0x00, 0x01, 0x00};
+    final ByteArrayOutputStream stream = new ByteArrayOutputStream();
+    stream.write(new byte[]{'x', 's', 'n'}); // noise before the packet
+    stream.write(binaryPacket(0b10000000, UM7Constants.Registers.DREG_HEALTH, health));
+    Files.write(recording, stream.toByteArray());
+
+    // Then
+    final UM7Client client = replayClient();
+    try {
+      final UM7BinaryPacket packet = client.readPacket();
+      assertTrue(packet.foundpacket);
+      assertFalse(packet.isNmeaPacket);
+      assertEquals(UM7Constants.Registers.DREG_HEALTH, packet.startaddress);
+      assertArrayEquals(health, packet.data);
+    } finally {
+      client.disconnect();
+    }
+  }
+
+  @Test
+  public void testReplayNmeaPacket() throws IOException, DeviceConnectionException {
+    // Given
+    final String sentence = "$PCHRA,105.015,20.32,20.32,20.32,20.32,*66";
+    Files.write(recording, (sentence + "\r\n").getBytes(StandardCharsets.US_ASCII));
+
+    // Then
+    final UM7Client client = replayClient();
+    try {
+      final UM7BinaryPacket packet = client.readPacket();
+      assertTrue(packet.foundpacket);
+      assertTrue(packet.isNmeaPacket);
+      assertEquals(sentence, new String(packet.data, StandardCharsets.US_ASCII));
+    } finally {
+      client.disconnect();
+    }
+  }
+
+  @Test
+  public void testReplayWithReaderThread() throws IOException, DeviceConnectionException {
+    // Given
+    final ByteArrayOutputStream stream = new ByteArrayOutputStream();
+    for (int i = 0; i < 3; i++) {
+      stream.write(binaryPacket(0b10000000, UM7Constants.Registers.DREG_HEALTH, new byte[]{0, 0, 0, (byte) i}));
+    }
+    Files.write(recording, stream.toByteArray());
+
+    // Then
+    final UM7Client client = replayClient();
+    try {
+      client.startReader();
+      assertTrue(client.isReaderRunning());
+      for (int i = 0; i < 3; i++) {
+        final UM7BinaryPacket packet = client.readPacket();
+        assertTrue(packet.foundpacket);
+        assertEquals(i, packet.data[3]);
+      }
+      assertTrue(client.readPacket().timeout);
+    } finally {
+      client.disconnect();
+    }
+    assertFalse(client.isReaderRunning());
+  }
+
+  @Test
+  public void testTimeoutAtEndOfStream() throws IOException, DeviceConnectionException {
+    final UM7Client client = replayClient();
+    try {
+      final UM7BinaryPacket packet = client.readPacket();
+      assertFalse(packet.foundpacket);
+      assertTrue(packet.timeout);
+    } finally {
+      client.disconnect();
+    }
+  }
+
+  private UM7Client replayClient() throws IOException, DeviceConnectionException {
+    final ByteChannelTransport transport = new ByteChannelTransport(
+        FileChannel.open(recording, StandardOpenOption.READ),
+        Channels.newChannel(new ByteArrayOutputStream()));
+    return new DefaultUM7Client("replay", transport, UM7Constants.Defaults.BAUD_RATE, 0.2f);
+  }
+
+  static byte[] binaryPacket(int packetType, int address, byte[] data) {
+    final int length = data == null ? 0 : data.length;
+    final byte[] packet = new byte[7 + length];
+    packet[0] = 's';
+    packet[1] = 'n';
+    packet[2] = 'p';
+    packet[3] = (byte) packetType;
+    packet[4] = (byte) address;
+    if (data != null) {
+      System.arraycopy(data, 0, packet, 5, length);
+    }
+    int checksum = 0;
+    for (int i = 0; i < 5 + length; i++) {
+      checksum += packet[i] & 0xFF;
+    }
+    packet[5 + length] = (byte) (checksum >> 8);
+    packet[6 + length] = (byte) checksum;
+    return packet;
+  }
+}
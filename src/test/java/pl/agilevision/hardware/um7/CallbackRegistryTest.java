@@ -0,0 +1,151 @@
+package pl.agilevision.hardware.um7;
+
+import org.junit.Test;
+import pl.agilevision.hardware.um7.callback.CallbackRegistry;
+import pl.agilevision.hardware.um7.callback.DataCallback;
+import pl.agilevision.hardware.um7.callback.DeliveryPolicy;
+import pl.agilevision.hardware.um7.data.UM7Packet;
+import pl.agilevision.hardware.um7.data.attributes.ConfigurableRateAttribute;
+import pl.agilevision.hardware.um7.data.parser.BinaryPacketParser;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Set of tests for {@link CallbackRegistry}
+ */
+public class CallbackRegistryTest {
+
+  @Test
+  public void testSeveralSubscribers() {
+    // Given
+    final CallbackRegistry registry = new CallbackRegistry();
+    final List<String> received = new ArrayList<>();
+    final DataCallback first = packet -> received.add("first");
+    registry.add(UM7Attributes.Euler, first);
+    registry.add(UM7Attributes.Euler, packet -> received.add("second"));
+    registry.add(UM7Attributes.Health, packet -> received.add("health"));
+
+    // When
+    new BinaryPacketParser().parse(new byte[5 * 4], registry, UM7Constants.Registers.DREG_EULER_PHI_THETA);
+
+    // Then
+    assertEquals(2, received.size());
+    assertEquals("first", received.get(0));
+    assertEquals("second", received.get(1));
+    assertEquals(2, registry.asMap().size());
+
+    assertTrue(registry.remove(UM7Attributes.Euler, first));
+    assertFalse(registry.remove(UM7Attributes.Euler, first));
+    registry.dispatch(UM7Attributes.Euler, new UM7Packet());
+    assertEquals(3, received.size());
+    assertEquals("second", received.get(2));
+
+    assertTrue(registry.removeAll(UM7Attributes.Euler));
+    assertFalse(registry.dispatch(UM7Attributes.Euler, new UM7Packet()));
+    assertTrue(registry.hasSubscribers(UM7Attributes.Health));
+  }
+
+  @Test
+  public void testMapViewDispatchesThroughRegistry() {
+    // Given
+    final CallbackRegistry registry = new CallbackRegistry();
+    final List<String> received = new ArrayList<>();
+    registry.add(UM7Attributes.Euler, packet -> received.add("first"));
+    registry.add(UM7Attributes.Euler, packet -> received.add("second"), DeliveryPolicy.maxRate(1));
+    final Map<ConfigurableRateAttribute, DataCallback> view = registry.asMap();
+
+    // When
+    view.get(UM7Attributes.Euler).onPacket(new UM7Packet());
+    view.get(UM7Attributes.Euler).onPacket(new UM7Packet());
+
+    // Then
+    assertEquals(Arrays.asList("first", "second", "first"), received);
+    assertNull(view.get(UM7Attributes.Health));
+    try {
+      view.put(UM7Attributes.Euler, packet -> received.add("replaced"));
+      fail();
+    } catch (final UnsupportedOperationException e) {
+      assertEquals(2, registry.getSubscriptions(UM7Attributes.Euler).length);
+    }
+  }
+
+  @Test
+  public void testRegisterWhileDispatching() {
+    // Given
+    final CallbackRegistry registry = new CallbackRegistry();
+    final List<String> received = new ArrayList<>();
+    registry.add(UM7Attributes.Euler, packet -> {
+      received.add("outer");
+      registry.add(UM7Attributes.Euler, inner -> received.add("inner"));
+    });
+
+    // When
+    registry.dispatch(UM7Attributes.Euler, new UM7Packet());
+    registry.removeAll(UM7Attributes.Euler);
+    registry.dispatch(UM7Attributes.Euler, new UM7Packet());
+
+    // Then
+    assertEquals(1, received.size());
+  }
+
+  @Test
+  public void testExecutorDelivery() throws Exception {
+    // Given
+    final CallbackRegistry registry = new CallbackRegistry();
+    final ExecutorService executor = Executors.newFixedThreadPool(2);
+    final CountDownLatch release = new CountDownLatch(1);
+    final List<Integer> slow = Collections.synchronizedList(new ArrayList<>());
+    final List<Integer> fast = Collections.synchronizedList(new ArrayList<>());
+    final CountDownLatch fastDone = new CountDownLatch(10);
+    registry.add(UM7Attributes.Euler, packet -> {
+      try {
+        release.await();
+      } catch (final InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      slow.add((Integer) packet.getAttributes().get("n"));
+    });
+    registry.add(UM7Attributes.Euler, packet -> {
+      fast.add((Integer) packet.getAttributes().get("n"));
+      fastDone.countDown();
+    });
+    registry.setExecutor(executor, 4);
+
+    // When
+    for (int i = 0; i < 10; i++) {
+      final UM7Packet packet = new UM7Packet();
+      packet.getAttributes().put("n", i);
+      registry.dispatch(UM7Attributes.Euler, packet);
+      // the fast subscriber keeps up although the slow one is blocked
+      final long deadline = System.currentTimeMillis() + 5000;
+      while (fast.size() <= i && System.currentTimeMillis() < deadline) {
+        Thread.sleep(1);
+      }
+    }
+
+    // Then
+    assertTrue(fastDone.await(5, TimeUnit.SECONDS));
+    release.countDown();
+    executor.shutdown();
+    assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+    assertEquals(Arrays.asList(0, 1, 2, 3, 4, 5, 6, 7, 8, 9), fast);
+    // 4 queued packets, plus the first one if the lane had taken it before the rest arrived
+    assertTrue(slow.size() == 4 || slow.size() == 5);
+    assertEquals(Arrays.asList(0, 1, 2, 3, 4).subList(0, slow.size()), slow);
+    assertEquals(10 - slow.size(), registry.getDroppedPackets());
+  }
+}
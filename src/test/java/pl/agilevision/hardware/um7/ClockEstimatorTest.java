@@ -0,0 +1,110 @@
+package pl.agilevision.hardware.um7;
+
+import org.junit.Test;
+import pl.agilevision.hardware.um7.data.UM7DataSample;
+import pl.agilevision.hardware.um7.data.binary.UM7BinaryPacket;
+import pl.agilevision.hardware.um7.impl.DefaultUM7Client;
+import pl.agilevision.hardware.um7.sync.ClockEstimator;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Set of tests for {@link ClockEstimator}
+ */
+public class ClockEstimatorTest {
+
+  @Test
+  public void testFitsLowerEnvelopeOfDelays() {
+    // Given
+    final ClockEstimator clock = new ClockEstimator();
+    final Random random = new Random(7);
+    final double skew = 50e-6;
+    final long offset = 5_000_000_000L;
+
+    // When
+    for (int i = 0; i < 2000; i++) {
+      final double device = 100 + i * 0.01;
+      // 1 ms transmission plus buffering jitter of up to 20 ms, most packets are delayed
+      final long delay = 1_000_000L + (random.nextInt(4) == 0 ? 0 : (long) (random.nextDouble() * 20_000_000L));
+      clock.update(device, offset + Math.round(device * 1e9 * (1 + skew)) + delay);
+    }
+
+    // Then
+    final double device = 100 + 1999 * 0.01;
+    final long expected = offset + Math.round(device * 1e9 * (1 + skew)) + 1_000_000L;
+    assertTrue(clock.isReady());
+    assertEquals(skew, clock.getSkew(), 2e-6);
+    assertEquals(expected, clock.toHostNanos(device), 200_000L);
+    assertEquals(device, clock.toDeviceTime(expected), 2e-4);
+  }
+
+  @Test
+  public void testDeviceResetRestartsEstimation() {
+    // Given
+    final ClockEstimator clock = new ClockEstimator();
+    clock.update(50.0, 1_000_000_000L);
+    clock.update(51.0, 2_000_000_000L);
+
+    // When
+    clock.update(0.5, 3_000_000_000L);
+
+    // Then
+    assertEquals(3_000_000_000L, clock.toHostNanos(0.5));
+    assertEquals(0.0, clock.getSkew(), 0);
+  }
+
+  @Test
+  public void testGpsAndOutOfOrderGroupsKeepEstimation() {
+    // Given
+    final ClockEstimator clock = new ClockEstimator();
+    final double skew = 50e-6;
+    final long offset = 5_000_000_000L;
+
+    // When
+    for (int i = 0; i < 1000; i++) {
+      final double device = 100 + i * 0.01;
+      final long host = offset + Math.round(device * 1e9 * (1 + skew)) + 1_000_000L;
+      // gyro sampled last but sent first, then the euler angles and a UTC time of day from the GPS
+      clock.update(sample(UM7Attributes.Gyro.Processed.Time, device), host);
+      clock.update(sample(UM7Attributes.Euler.Time, device - 0.004), host + 100_000L);
+      clock.update(sample(UM7Attributes.Gps.Time, 40000 + i * 0.01), host + 200_000L);
+    }
+
+    // Then
+    final double device = 100 + 999 * 0.01;
+    assertEquals(skew, clock.getSkew(), 2e-6);
+    assertEquals(offset + Math.round(device * 1e9 * (1 + skew)) + 1_000_000L, clock.toHostNanos(device), 200_000L);
+  }
+
+  private static UM7DataSample sample(final String timeKey, final double time) {
+    final UM7DataSample sample = new UM7DataSample();
+    sample.getRawData().put(timeKey, (float) time);
+    return sample;
+  }
+
+  @Test
+  public void testPacketsCarryReceiveTime() throws Exception {
+    // Given
+    final EmulatedDevice device = new EmulatedDevice();
+    final DefaultUM7Client client = device.connect();
+    try {
+      final long before = System.nanoTime();
+
+      // When
+      device.send(ByteChannelTransportTest.binaryPacket(0b11000100, UM7Constants.Registers.DREG_HEALTH, new byte[4]));
+      final UM7BinaryPacket packet = client.readPacket(1.0f);
+
+      // Then
+      assertTrue(packet.foundpacket);
+      assertTrue(packet.receivedNanos - before >= 0);
+      assertFalse(System.nanoTime() - packet.receivedNanos < 0);
+    } finally {
+      client.disconnect();
+      device.stop();
+    }
+  }
+}
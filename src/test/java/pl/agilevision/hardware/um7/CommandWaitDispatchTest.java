@@ -0,0 +1,63 @@
+package pl.agilevision.hardware.um7;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import pl.agilevision.hardware.um7.impl.DefaultUM7;
+import pl.agilevision.hardware.um7.impl.DefaultUM7Client;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that broadcast data read while waiting for a command reply is not lost
+ */
+public class CommandWaitDispatchTest {
+
+  private static final byte[] HEALTH = {0, 0, 1, 0};
+
+  private EmulatedDevice device;
+  private DefaultUM7Client client;
+
+  @Before
+  public void setUp() throws Exception {
+    device = new EmulatedDevice();
+    client = device.connect();
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    client.disconnect();
+    device.stop();
+  }
+
+  @Test
+  public void testCallbacksSeeDataDuringCommandWait() throws Exception {
+    // Given
+    final AtomicInteger health = new AtomicInteger();
+    client.registerCallback(UM7Attributes.Health,
+        packet -> health.set((Integer) packet.getAttributes().get(UM7Attributes.Health.Value)));
+    device.send(ByteChannelTransportTest.binaryPacket(0b10000000, UM7Constants.Registers.DREG_HEALTH, HEALTH));
+
+    // When
+    client.readRegister(UM7Constants.Registers.CREG_COM_RATES1);
+
+    // Then
+    assertEquals(0x100, health.get());
+  }
+
+  @Test
+  public void testStateUpdatedDuringCommandWait() throws Exception {
+    // Given
+    final UM7 um7 = new DefaultUM7(client, new String[]{UM7Attributes.Health.Value});
+    device.send(ByteChannelTransportTest.binaryPacket(0b10000000, UM7Constants.Registers.DREG_HEALTH, HEALTH));
+
+    // When
+    assertTrue(um7.zeroGyros());
+
+    // Then
+    assertEquals(0x100, (int) um7.getState().getValue(UM7Attributes.Health.Value, Integer.class));
+  }
+}
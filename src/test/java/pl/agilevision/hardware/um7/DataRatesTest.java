@@ -0,0 +1,56 @@
+package pl.agilevision.hardware.um7;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import pl.agilevision.hardware.um7.data.attributes.ConfigurableRateAttribute;
+import pl.agilevision.hardware.um7.impl.DefaultUM7Client;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Set of tests for the coalesced rate configuration of {@link DefaultUM7Client}
+ */
+public class DataRatesTest {
+
+  private EmulatedDevice device;
+  private DefaultUM7Client client;
+
+  @Before
+  public void setUp() throws Exception {
+    device = new EmulatedDevice();
+    client = device.connect();
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    client.disconnect();
+    device.stop();
+  }
+
+  @Test
+  public void testOneRoundTripPerRegister() throws Exception {
+    // Given
+    device.setRegister(UM7Constants.Registers.CREG_COM_RATES1, 0x000000FF);
+    device.setRegister(UM7Constants.Registers.CREG_COM_RATES6, 0x00000000);
+    final Map<ConfigurableRateAttribute, Integer> rates = new HashMap<>();
+    rates.put(UM7Attributes.Gyro.Raw, 10);
+    rates.put(UM7Attributes.Accelerator.Raw, 20);
+    rates.put(UM7Attributes.Magnetometer.Raw, 30);
+    rates.put(UM7Attributes.Health, 5);
+    final int before = device.getRequestCount();
+
+    // When
+    final boolean result = client.setDataRates(rates);
+
+    // Then
+    assertTrue(result);
+    assertEquals(4, device.getRequestCount() - before);
+    assertEquals(0x140A1EFF, device.getRegister(UM7Constants.Registers.CREG_COM_RATES1));
+    assertEquals(0x00050000, device.getRegister(UM7Constants.Registers.CREG_COM_RATES6));
+  }
+}
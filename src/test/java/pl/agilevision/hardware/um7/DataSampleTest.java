@@ -0,0 +1,64 @@
+package pl.agilevision.hardware.um7;
+
+import org.junit.Test;
+import pl.agilevision.hardware.um7.data.AttributeRegistry;
+import pl.agilevision.hardware.um7.data.UM7DataSample;
+import pl.agilevision.hardware.um7.data.attributes.nmea.NmeaHealth;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Set of tests for the array backed {@link UM7DataSample}
+ */
+public class DataSampleTest {
+
+  @Test
+  public void testMapViewKeepsTypes() {
+    // Given
+    final Map<String, Object> data = new HashMap<>();
+    data.put(UM7Attributes.Euler.Roll, 12.5);
+    data.put(UM7Attributes.Health.Value, 7);
+    data.put(NmeaHealth.GpsOffline, true);
+    data.put("custom", "text");
+
+    // When
+    final UM7DataSample sample = new UM7DataSample(data);
+
+    // Then
+    assertEquals(data, sample.getRawData());
+    assertEquals(Double.valueOf(12.5), sample.getValue(UM7Attributes.Euler.Roll));
+    assertEquals(Integer.valueOf(7), sample.getValue(UM7Attributes.Health.Value, Integer.class));
+    assertEquals(Boolean.TRUE, sample.getValue(NmeaHealth.GpsOffline));
+    assertEquals("text", sample.getValue("custom"));
+    assertFalse(sample.hasValue(UM7Attributes.Euler.Pitch));
+    assertNull(sample.getValue(UM7Attributes.Euler.Pitch));
+  }
+
+  @Test
+  public void testUpdateAndMask() {
+    // Given
+    final UM7DataSample state = new UM7DataSample();
+    state.getRawData().put(UM7Attributes.Euler.Roll, 0);
+    state.getRawData().put(UM7Attributes.Euler.Pitch, 0);
+    final UM7DataSample sample = new UM7DataSample();
+    sample.setDouble(AttributeRegistry.id(UM7Attributes.Euler.Pitch), 3.0);
+    final long[] wanted = AttributeRegistry.mask(UM7Attributes.Euler.Pitch, UM7Attributes.Euler.Yaw);
+
+    // When
+    state.update(sample);
+
+    // Then
+    assertEquals(Integer.valueOf(0), state.getValue(UM7Attributes.Euler.Roll));
+    assertEquals(Double.valueOf(3.0), state.getValue(UM7Attributes.Euler.Pitch));
+    assertEquals(2, state.getRawData().size());
+    assertFalse(state.containsAll(wanted));
+    sample.setDouble(AttributeRegistry.id(UM7Attributes.Euler.Yaw), 1.0);
+    assertTrue(sample.containsAll(wanted));
+  }
+}
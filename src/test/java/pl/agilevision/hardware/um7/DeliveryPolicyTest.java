@@ -0,0 +1,104 @@
+package pl.agilevision.hardware.um7;
+
+import org.junit.Test;
+import pl.agilevision.hardware.um7.callback.CallbackRegistry;
+import pl.agilevision.hardware.um7.callback.DeliveryPolicy;
+import pl.agilevision.hardware.um7.callback.Subscription;
+import pl.agilevision.hardware.um7.data.UM7Packet;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Set of tests for the delivery policies of {@link Subscription}
+ */
+public class DeliveryPolicyTest {
+
+  /**
+   * Executor running tasks only when asked, so queues fill up deterministically
+   */
+  private static class ManualExecutor implements Executor {
+    private final List<Runnable> tasks = new ArrayList<>();
+
+    @Override
+    public void execute(final Runnable task) {
+      tasks.add(task);
+    }
+
+    void runAll() {
+      while (!tasks.isEmpty()) {
+        tasks.remove(0).run();
+      }
+    }
+  }
+
+  private static UM7Packet packet(final int n) {
+    final UM7Packet packet = new UM7Packet();
+    packet.getAttributes().put("n", n);
+    return packet;
+  }
+
+  @Test
+  public void testQueuedPolicies() {
+    // Given
+    final CallbackRegistry registry = new CallbackRegistry();
+    final ManualExecutor executor = new ManualExecutor();
+    registry.setExecutor(executor, 3);
+    final List<Object> all = new ArrayList<>();
+    final List<Object> latest = new ArrayList<>();
+    final List<Object> oldest = new ArrayList<>();
+    final Subscription allSubscription = registry.add(UM7Attributes.Euler, p -> all.add(p.getAttributes().get("n")));
+    final Subscription latestSubscription = registry.add(UM7Attributes.Euler,
+        p -> latest.add(p.getAttributes().get("n")), DeliveryPolicy.latest());
+    final Subscription oldestSubscription = registry.add(UM7Attributes.Euler,
+        p -> oldest.add(p.getAttributes().get("n")), DeliveryPolicy.dropOldest(2));
+
+    // When
+    for (int i = 0; i < 5; i++) {
+      registry.dispatch(UM7Attributes.Euler, packet(i));
+    }
+    final int depth = allSubscription.getQueueDepth();
+    executor.runAll();
+
+    // Then
+    assertEquals(3, depth);
+    assertEquals(Arrays.<Object>asList(0, 1, 2), all);
+    assertEquals(2, allSubscription.getDropped());
+    assertEquals(Arrays.<Object>asList(4), latest);
+    assertEquals(4, latestSubscription.getConflated());
+    assertEquals(Arrays.<Object>asList(3, 4), oldest);
+    assertEquals(3, oldestSubscription.getDropped());
+    assertEquals(2, oldestSubscription.getDelivered());
+    assertEquals(0, oldestSubscription.getQueueDepth());
+  }
+
+  @Test
+  public void testMaxRateAndUnsubscribe() throws Exception {
+    // Given
+    final CallbackRegistry registry = new CallbackRegistry();
+    final List<Object> received = new ArrayList<>();
+    final Subscription subscription = registry.add(UM7Attributes.Euler,
+        p -> received.add(p.getAttributes().get("n")), DeliveryPolicy.maxRate(10));
+
+    // When
+    registry.dispatch(UM7Attributes.Euler, packet(0));
+    registry.dispatch(UM7Attributes.Euler, packet(1));
+    Thread.sleep(120);
+    registry.dispatch(UM7Attributes.Euler, packet(2));
+    subscription.unsubscribe();
+    registry.dispatch(UM7Attributes.Euler, packet(3));
+
+    // Then
+    assertEquals(Arrays.<Object>asList(0, 2), received);
+    assertEquals(1, subscription.getConflated());
+    assertEquals(2, subscription.getDelivered());
+    assertFalse(registry.hasSubscribers(UM7Attributes.Euler));
+    assertTrue(subscription.toString().contains("MAX_RATE"));
+  }
+}
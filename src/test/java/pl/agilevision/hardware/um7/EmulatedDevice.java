@@ -0,0 +1,136 @@
+package pl.agilevision.hardware.um7;
+
+import pl.agilevision.hardware.um7.exceptions.DeviceConnectionException;
+import pl.agilevision.hardware.um7.framing.FrameDecoder;
+import pl.agilevision.hardware.um7.framing.FrameListener;
+import pl.agilevision.hardware.um7.impl.DefaultUM7Client;
+import pl.agilevision.hardware.um7.transport.ByteChannelTransport;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.Pipe;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Minimal UM7 emulator connected to a {@link DefaultUM7Client} through NIO pipes.
+ * Answers register reads and writes from an in-memory register file and acknowledges commands
+ */
+public class EmulatedDevice implements FrameListener, Runnable {
+
+  private final Pipe toHost;
+  private final Pipe toDevice;
+  private final Thread thread;
+  private final FrameDecoder decoder = new FrameDecoder();
+  private final Map<Integer, Integer> registers = new ConcurrentHashMap<>();
+  private final AtomicInteger requests = new AtomicInteger();
+  private volatile boolean running = true;
+  private volatile boolean muted;
+
+  public EmulatedDevice() throws IOException {
+    toHost = Pipe.open();
+    toDevice = Pipe.open();
+    toHost.source().configureBlocking(false);
+    thread = new Thread(this, "um7-emulator");
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  public DefaultUM7Client connect() throws DeviceConnectionException {
+    return new DefaultUM7Client("emulator", new ByteChannelTransport(toHost.source(), toDevice.sink()),
+        UM7Constants.Defaults.BAUD_RATE, 0.5f);
+  }
+
+  public void stop() {
+    running = false;
+    thread.interrupt();
+  }
+
+  /**
+   * Makes the device ignore requests, e.g. to provoke timeouts
+   */
+  public void setMuted(boolean muted) {
+    this.muted = muted;
+  }
+
+  public int getRegister(int address) {
+    return registers.getOrDefault(address, 0);
+  }
+
+  public void setRegister(int address, int value) {
+    registers.put(address, value);
+  }
+
+  /**
+   * Returns the number of requests received from the host
+   */
+  public int getRequestCount() {
+    return requests.get();
+  }
+
+  /**
+   * Sends a packet to the host as if the device broadcast it
+   */
+  public synchronized void send(byte[] packet) throws IOException {
+    final ByteBuffer buffer = ByteBuffer.wrap(packet);
+    while (buffer.hasRemaining()) {
+      toHost.sink().write(buffer);
+    }
+  }
+
+  @Override
+  public void run() {
+    final ByteBuffer buffer = ByteBuffer.allocate(1024);
+    try {
+      while (running) {
+        buffer.clear();
+        final int read = toDevice.source().read(buffer);
+        if (read < 0) {
+          return;
+        }
+        decoder.decode(buffer.array(), 0, read, this);
+      }
+    } catch (ClosedChannelException e) {
+      // host disconnected
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  @Override
+  public void onBinaryFrame(int packetType, int address, byte[] data, int offset, int length) {
+    requests.incrementAndGet();
+    if (muted) {
+      return;
+    }
+    final int hidden = packetType & 0b00000010;
+    final int registerAddress = address;
+    try {
+      if ((packetType & 0b10000000) != 0) {
+        for (int i = 0; i < length / 4; i++) {
+          registers.put(registerAddress + i, ByteBuffer.wrap(data, offset + i * 4, 4).getInt());
+        }
+        send(ByteChannelTransportTest.binaryPacket(hidden, address, null));
+      } else if (address >= UM7Constants.Commands.GET_FW_REVISION && address <= 0xFF) {
+        send(ByteChannelTransportTest.binaryPacket(hidden, address, null));
+      } else {
+        final int count = (packetType & 0b01000000) != 0 ? (packetType & 0b00111100) >> 2 : 1;
+        final ByteBuffer reply = ByteBuffer.allocate(count * 4);
+        for (int i = 0; i < count; i++) {
+          reply.putInt(getRegister(registerAddress + i));
+        }
+        final int replyType = 0b10000000 | hidden | ((packetType & 0b01000000) != 0 ? 0b01000000 | count << 2 : 0);
+        send(ByteChannelTransportTest.binaryPacket(replyType, address, reply.array()));
+      }
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  @Override
+  public void onNmeaFrame(byte[] sentence, int offset, int length) {
+    // the host never sends NMEA
+  }
+}
@@ -0,0 +1,171 @@
+package pl.agilevision.hardware.um7;
+
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import pl.agilevision.hardware.um7.data.UM7SampleFlyweight;
+import pl.agilevision.hardware.um7.data.attributes.Euler;
+import pl.agilevision.hardware.um7.impl.DefaultUM7Client;
+import pl.agilevision.hardware.um7.transport.UM7Transport;
+
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Set of tests for the allocation-free sample decoding
+ */
+public class FlyweightTest {
+
+  private static final int POSE_PACKET_TYPE = 0b11000000 | 9 << 2;
+
+  private DefaultUM7Client client;
+  private long samples;
+  private double rollSum;
+
+  @Before
+  public void setUp() throws Exception {
+    client = new DefaultUM7Client("loop", new LoopTransport(posePacket()), 115200, 1.0f);
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    client.disconnect();
+  }
+
+  @Test
+  public void testDecodesInPlace() {
+    // Given
+    final UM7SampleFlyweight sample = new UM7SampleFlyweight();
+    final byte[] data = posePayload();
+
+    // When
+    sample.wrap(UM7Constants.Registers.DREG_EULER_PHI_THETA, ByteBuffer.wrap(data));
+
+    // Then
+    assertTrue(sample.contains(UM7Attributes.Euler));
+    assertTrue(sample.contains(UM7Attributes.Position));
+    assertFalse(sample.contains(UM7Attributes.Velocity));
+    assertEquals(910 / 91.02222, sample.getDouble(Euler.Roll), 1e-9);
+    assertEquals(2.0, sample.getDouble(Euler.PitchRate), 1e-9);
+    assertEquals(2.5f, sample.getFloat(UM7Attributes.Position.Time), 0.0f);
+    assertTrue(Double.isNaN(sample.getDouble(UM7Attributes.Quat.A)));
+  }
+
+  @Test
+  public void testFailingCallbackDoesNotStopReading() throws Exception {
+    // Given
+    client.setFlyweightCallback(sample -> {
+      samples++;
+      throw new IllegalStateException("callback failure");
+    });
+
+    // When
+    client.readPacket(0.1f);
+    client.readPacket(0.1f);
+
+    // Then
+    assertTrue(samples > 1);
+  }
+
+  @Test
+  public void testSteadyStateDoesNotAllocate() throws Exception {
+    final java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    Assume.assumeTrue(threads instanceof com.sun.management.ThreadMXBean);
+    final com.sun.management.ThreadMXBean allocations = (com.sun.management.ThreadMXBean) threads;
+    Assume.assumeTrue(allocations.isThreadAllocatedMemorySupported());
+    allocations.setThreadAllocatedMemoryEnabled(true);
+
+    // Given
+    client.setFlyweightCallback(sample -> {
+      samples++;
+      rollSum += sample.getDouble(Euler.Roll);
+    });
+    for (int i = 0; i < 5; i++) {
+      client.readPacket(0.1f);
+    }
+    final long threadId = Thread.currentThread().getId();
+    samples = 0;
+
+    // When
+    final long before = allocations.getThreadAllocatedBytes(threadId);
+    client.readPacket(0.2f);
+    final long allocated = allocations.getThreadAllocatedBytes(threadId) - before;
+
+    // Then
+    assertTrue("too few samples: " + samples, samples > 1000);
+    // the only allocation is the timed out packet returned at the end
+    assertTrue("allocated " + allocated + " bytes for " + samples + " samples", allocated < 1024);
+    assertTrue(rollSum > 0);
+  }
+
+  private static byte[] posePayload() {
+    final ByteBuffer data = ByteBuffer.allocate(9 * 4);
+    data.putShort((short) 910).putShort((short) -1820).putShort((short) 2730).putShort((short) 0);
+    data.putShort((short) 16).putShort((short) 32).putShort((short) 48).putShort((short) 0);
+    data.putFloat(1.5f);
+    data.putFloat(10f).putFloat(20f).putFloat(30f).putFloat(2.5f);
+    return data.array();
+  }
+
+  private static byte[] posePacket() {
+    return ByteChannelTransportTest.binaryPacket(POSE_PACKET_TYPE, UM7Constants.Registers.DREG_EULER_PHI_THETA,
+        posePayload());
+  }
+
+  /**
+   * Transport endlessly repeating the same bytes and discarding writes
+   */
+  private static class LoopTransport implements UM7Transport {
+    private final byte[] stream;
+    private int position;
+
+    LoopTransport(final byte[] stream) {
+      this.stream = stream;
+    }
+
+    @Override
+    public void open() {
+    }
+
+    @Override
+    public void close() {
+    }
+
+    @Override
+    public boolean isOpen() {
+      return true;
+    }
+
+    @Override
+    public void setReadTimeout(int timeoutInMilliseconds) {
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) {
+      for (int i = 0; i < length; i++) {
+        buffer[offset + i] = stream[position];
+        position = (position + 1) % stream.length;
+      }
+      return length;
+    }
+
+    @Override
+    public int write(byte[] buffer, int offset, int length) {
+      return length;
+    }
+
+    @Override
+    public int bytesAvailable() {
+      return stream.length;
+    }
+
+    @Override
+    public void setBaudRate(int baudRate) {
+    }
+  }
+}
@@ -0,0 +1,99 @@
+package pl.agilevision.hardware.um7;
+
+import org.junit.Test;
+import pl.agilevision.hardware.um7.framing.FrameDecoder;
+import pl.agilevision.hardware.um7.framing.FrameListener;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Set of tests for the {@link FrameDecoder}
+ */
+public class FrameDecoderTest {
+
+  private static final String SENTENCE = "$PCHRA,105.015,20.32,20.32,20.32,20.32,*66";
+
+  private final List<String> frames = new ArrayList<>();
+
+  private final FrameListener listener = new FrameListener() {
+    @Override
+    public void onBinaryFrame(int packetType, int address, byte[] data, int offset, int length) {
+      frames.add(String.format("bin:%X:%s", address, Arrays.toString(Arrays.copyOfRange(data, offset, offset + length))));
+    }
+
+    @Override
+    public void onNmeaFrame(byte[] sentence, int offset, int length) {
+      frames.add(new String(sentence, offset, length, StandardCharsets.US_ASCII));
+    }
+  };
+
+  @Test
+  public void testDecodeByteByByte() throws IOException {
+    // Given
+    final byte[] stream = stream();
+    final FrameDecoder decoder = new FrameDecoder();
+
+    // When
+    for (int i = 0; i < stream.length; i++) {
+      decoder.decode(stream, i, 1, listener);
+    }
+
+    // Then
+    assertExpectedFrames();
+  }
+
+  @Test
+  public void testDecodeArbitrarySlices() throws IOException {
+    final byte[] stream = stream();
+    for (int slice = 2; slice < 20; slice++) {
+      frames.clear();
+      final FrameDecoder decoder = new FrameDecoder();
+      for (int i = 0; i < stream.length; i += slice) {
+        decoder.decode(stream, i, Math.min(slice, stream.length - i), listener);
+      }
+      assertExpectedFrames();
+    }
+  }
+
+  @Test
+  public void testResyncAfterCorruptedFrame() throws IOException {
+    // Given
+    final byte[] corrupted = ByteChannelTransportTest.binaryPacket(0b10000000, 0x55, new byte[]{1, 2, 3, 4});
+    corrupted[6] ^= 0x10;
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    out.write(corrupted);
+    out.write("$PCHRA,105.0".getBytes(StandardCharsets.US_ASCII)); // truncated sentence
+    out.write(stream());
+    final FrameDecoder decoder = new FrameDecoder();
+
+    // When
+    decoder.decode(out.toByteArray(), 0, out.size(), listener);
+
+    // Then
+    assertEquals(1, decoder.getChecksumErrors());
+    assertExpectedFrames();
+  }
+
+  private byte[] stream() throws IOException {
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    out.write("ssnsn$P$".getBytes(StandardCharsets.US_ASCII)); // line noise with partial markers
+    out.write(ByteChannelTransportTest.binaryPacket(0b10000000, 0x55, new byte[]{0, 0, 1, 0}));
+    out.write((SENTENCE + "\r\n").getBytes(StandardCharsets.US_ASCII));
+    out.write(ByteChannelTransportTest.binaryPacket(0b11001000, 0x6D, new byte[]{1, 2, 3, 4, 5, 6, 7, 8}));
+    return out.toByteArray();
+  }
+
+  private void assertExpectedFrames() {
+    assertEquals(Arrays.asList(
+        "bin:55:[0, 0, 1, 0]",
+        SENTENCE,
+        "bin:6D:[1, 2, 3, 4, 5, 6, 7, 8]"), frames);
+  }
+}
@@ -0,0 +1,110 @@
+package pl.agilevision.hardware.um7;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import pl.agilevision.hardware.um7.data.SampleHistory;
+import pl.agilevision.hardware.um7.data.UM7Packet;
+import pl.agilevision.hardware.um7.data.binary.UM7BinaryPacket;
+import pl.agilevision.hardware.um7.impl.DefaultUM7Client;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Set of tests for the lazy decoding mode of {@link DefaultUM7Client}
+ */
+public class LazyDecodingTest {
+
+  private EmulatedDevice device;
+  private DefaultUM7Client client;
+
+  @Before
+  public void setUp() throws Exception {
+    device = new EmulatedDevice();
+    client = device.connect();
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    client.disconnect();
+    device.stop();
+  }
+
+  private UM7Packet receive(final int start, final int registers) throws Exception {
+    device.send(ByteChannelTransportTest.binaryPacket(0b11000000 | registers << 2, start, new byte[registers * 4]));
+    final UM7BinaryPacket packet = client.readPacket(1.0f);
+    assertTrue(packet.foundpacket);
+    return client.parsePacket(packet);
+  }
+
+  @Test
+  public void testDecodesOnlyNeededGroups() throws Exception {
+    // Given
+    final List<UM7Packet> accel = new ArrayList<>();
+    client.setLazyDecoding(true);
+    client.registerCallback(UM7Attributes.Accelerator.Processed, accel::add);
+    client.addWantedKeys(UM7Attributes.Gyro.Processed.X);
+
+    // When
+    final UM7Packet processed = receive(UM7Constants.Registers.DREG_GYRO_PROC_X, 12);
+
+    // Then
+    assertEquals(1, accel.size());
+    assertTrue(processed.getAttributes().containsKey(UM7Attributes.Gyro.Processed.Y));
+    assertTrue(processed.getAttributes().containsKey(UM7Attributes.Accelerator.Processed.Z));
+    assertFalse(processed.getAttributes().containsKey(UM7Attributes.Magnetometer.Processed.X));
+  }
+
+  @Test
+  public void testSubscriptionChangeUpdatesGroups() throws Exception {
+    // Given
+    client.setLazyDecoding(true);
+    assertTrue(receive(UM7Constants.Registers.DREG_EULER_PHI_THETA, 5).getAttributes().isEmpty());
+
+    // When
+    client.registerCallback(UM7Attributes.Euler, packet -> { });
+
+    // Then
+    assertTrue(receive(UM7Constants.Registers.DREG_EULER_PHI_THETA, 5).getAttributes()
+        .containsKey(UM7Attributes.Euler.Roll));
+    client.setLazyDecoding(false);
+    assertTrue(receive(UM7Constants.Registers.DREG_QUAT_AB, 3).getAttributes().containsKey(UM7Attributes.Quat.A));
+  }
+
+  @Test
+  public void testWantedKeysAreCountedPerConsumer() throws Exception {
+    // Given
+    client.setLazyDecoding(true);
+    client.addWantedKeys(UM7Attributes.Euler.Roll, UM7Attributes.Quat.A);
+    client.addWantedKeys(UM7Attributes.Euler.Roll);
+
+    // When
+    client.removeWantedKeys(UM7Attributes.Euler.Roll, UM7Attributes.Quat.A);
+
+    // Then
+    assertTrue(receive(UM7Constants.Registers.DREG_EULER_PHI_THETA, 5).getAttributes()
+        .containsKey(UM7Attributes.Euler.Roll));
+    assertTrue(receive(UM7Constants.Registers.DREG_QUAT_AB, 3).getAttributes().isEmpty());
+  }
+
+  @Test
+  public void testTrackedHistoryGroupsAreDecoded() throws Exception {
+    // Given
+    client.setLazyDecoding(true);
+    final SampleHistory history = new SampleHistory(client);
+
+    // When
+    history.track(UM7Attributes.Quat, 8);
+    final UM7Packet tracked = receive(UM7Constants.Registers.DREG_QUAT_AB, 3);
+    history.untrack(UM7Attributes.Quat.A);
+
+    // Then
+    assertTrue(tracked.getAttributes().containsKey(UM7Attributes.Quat.D));
+    assertTrue(receive(UM7Constants.Registers.DREG_QUAT_AB, 3).getAttributes().isEmpty());
+  }
+}
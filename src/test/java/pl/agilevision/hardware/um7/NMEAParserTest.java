@@ -2,12 +2,20 @@ package pl.agilevision.hardware.um7;
 
 import org.junit.Test;
 import pl.agilevision.hardware.um7.data.UM7Packet;
+import pl.agilevision.hardware.um7.data.attributes.nmea.NmeaHealth;
+import pl.agilevision.hardware.um7.data.attributes.nmea.NmeaPose;
+import pl.agilevision.hardware.um7.data.nmea.NmeaHealthRecord;
+import pl.agilevision.hardware.um7.data.nmea.NmeaPoseRecord;
+import pl.agilevision.hardware.um7.data.nmea.NmeaRecord;
 import pl.agilevision.hardware.um7.data.parser.NMEAPacketParser;
 import pl.agilevision.hardware.um7.data.parser.PacketParser;
 
 import java.nio.charset.StandardCharsets;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 /**
@@ -160,4 +168,86 @@ public class NMEAParserTest {
 
     assertNotNull(nmeaPacket);
   }
+
+  @Test
+  public void testParseHealthRecord(){
+
+    // Given
+    final NMEAPacketParser nmeaParser = new NMEAPacketParser();
+    final byte[] data = "$PCHRH,105.015,05,11,1.5,0,0,0,0,0,0,0,0,0,*70".getBytes(
+        StandardCharsets.US_ASCII);
+
+    // When
+    final NmeaHealthRecord record = (NmeaHealthRecord) nmeaParser.parseRecord(data, 0, data.length);
+
+    // Then
+    assertEquals(105.015, record.getTime(), 0.0);
+    assertEquals(5, record.getSatsUsed());
+    assertEquals(11, record.getSatsInView());
+    assertEquals(1.5, record.getHdop(), 0.0);
+    assertFalse(record.isGpsOffline());
+    assertEquals(Integer.valueOf(5), parser.parse(data, null).getAttributes().get(NmeaHealth.SatsUsed));
+    assertEquals(Boolean.FALSE, parser.parse(data, null).getAttributes().get(NmeaHealth.GpsOffline));
+  }
+
+  @Test
+  public void testParsePoseRecordWithoutHeading(){
+
+    // Given
+    final NMEAPacketParser nmeaParser = new NMEAPacketParser();
+    final byte[] data = "$PCHRP,105.015,-501.234,-501.234,15.521,20.32,20.32,20.32,*46".getBytes(
+      StandardCharsets.US_ASCII);
+
+    // When
+    final NmeaPoseRecord record = (NmeaPoseRecord) nmeaParser.parseRecord(data, 0, data.length);
+
+    // Then
+    assertEquals(7, record.getFieldCount());
+    assertEquals(-501.234, record.getHomeNorth(), 0.0);
+    assertTrue(Double.isNaN(record.getHeading()));
+  }
+
+  @Test
+  public void testRejectCorruptedSentence(){
+
+    // Given
+    final byte[] corrupted = "$PCHRA,105.015,20.32,20.33,20.32,20.32,*66".getBytes(
+        StandardCharsets.US_ASCII);
+    final byte[] malformed = "$PCHRA,105.015,20.32,x,20.32,20.32,*33".getBytes(
+        StandardCharsets.US_ASCII);
+    final byte[] malformedFlag = "$PCHRH,105.015,05,11,1.5,0,10,0,0,0,0,0,0,0,*41".getBytes(
+        StandardCharsets.US_ASCII);
+
+    // Then
+    assertNull(parser.parse(corrupted, null));
+    assertNull(parser.parse(malformed, null));
+    assertNull(parser.parse(malformedFlag, null));
+  }
+
+  @Test
+  public void testLayoutDetectedOncePerConnection(){
+
+    // Given
+    final NMEAPacketParser nmeaParser = new NMEAPacketParser();
+    final byte[] shortPose = "$PCHRP,105.015,-501.234,-501.234,15.521,20.32,20.32,20.32,*46".getBytes(
+      StandardCharsets.US_ASCII);
+    final byte[] fullPose = "$PCHRP,105.015,-501.234,-501.234,15.521,20.32,20.32,20.32,20.32,*47".getBytes(
+      StandardCharsets.US_ASCII);
+    final byte[] truncated = "$PCHRP,105.015,-501.234,*59".getBytes(StandardCharsets.US_ASCII);
+
+    // When
+    final int shortFields = nmeaParser.parseRecord(shortPose, 0, shortPose.length).getFieldCount();
+    final NmeaRecord otherLayout = nmeaParser.parseRecord(fullPose, 0, fullPose.length);
+    nmeaParser.reset();
+    final int fullFields = nmeaParser.parseRecord(fullPose, 0, fullPose.length).getFieldCount();
+
+    // Then
+    assertEquals(7, shortFields);
+    assertNull(otherLayout);
+    assertEquals(8, fullFields);
+    assertNull(nmeaParser.parseRecord(truncated, 0, truncated.length));
+    nmeaParser.reset();
+    assertNull(nmeaParser.parseRecord(truncated, 0, truncated.length));
+    assertEquals(8, NmeaPose.parseFormat.length);
+  }
 }
@@ -0,0 +1,100 @@
+package pl.agilevision.hardware.um7;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import pl.agilevision.hardware.um7.data.UM7Profile;
+import pl.agilevision.hardware.um7.impl.DefaultUM7;
+import pl.agilevision.hardware.um7.impl.DefaultUM7Client;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.SortedMap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Set of tests for the device configuration profiles of {@link DefaultUM7}
+ */
+public class ProfileTest {
+
+  private EmulatedDevice device;
+  private DefaultUM7Client client;
+  private UM7 um7;
+
+  @Before
+  public void setUp() throws Exception {
+    device = new EmulatedDevice();
+    client = device.connect();
+    um7 = new DefaultUM7(client, new String[0]);
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    client.disconnect();
+    device.stop();
+  }
+
+  @Test
+  public void testStoreAndLoad() throws Exception {
+    // Given
+    device.setRegister(UM7Constants.Registers.CREG_MAG_BIAS_Z, 0xFFFFFFFF);
+    device.setRegister(UM7Constants.Registers.H_CREG_MAG_REF + 2, Float.floatToIntBits(0.5f));
+    final UM7Profile profile = um7.captureProfile();
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+    // When
+    profile.store(out);
+    final UM7Profile loaded = UM7Profile.load(new ByteArrayInputStream(out.toByteArray()));
+
+    // Then
+    assertEquals(27 + 9 + 9 + 9 + 3, loaded.getRegisters().size());
+    assertEquals(profile, loaded);
+  }
+
+  @Test
+  public void testApplyWritesOnlyChanges() throws Exception {
+    // Given
+    device.setRegister(UM7Constants.Registers.CREG_COM_SETTINGS, 0x50000000);
+    final UM7Profile profile = um7.captureProfile();
+    profile.put(UM7Constants.Registers.CREG_COM_SETTINGS, 0xB0000001);
+    profile.put(UM7Constants.Registers.CREG_COM_RATES3, 3);
+    profile.put(UM7Constants.Registers.CREG_COM_RATES4, 4);
+    profile.put(UM7Constants.Registers.H_CREG_GYRO_ALIGN1_1 + 2, Float.floatToIntBits(1.0f));
+
+    // When
+    final SortedMap<Integer, Integer> diff = um7.diffProfile(profile);
+    final int before = device.getRequestCount();
+    final boolean applied = um7.applyProfile(profile);
+
+    // Then
+    assertEquals(4, diff.size());
+    assertTrue(applied);
+    // 6 batch reads, 3 batch writes and the flash commit
+    assertEquals(10, device.getRequestCount() - before);
+    assertEquals(0x50000001, device.getRegister(UM7Constants.Registers.CREG_COM_SETTINGS));
+    assertEquals(3, device.getRegister(UM7Constants.Registers.CREG_COM_RATES3));
+    assertEquals(4, device.getRegister(UM7Constants.Registers.CREG_COM_RATES4));
+    assertEquals(Float.floatToIntBits(1.0f), device.getRegister(UM7Constants.Registers.H_CREG_GYRO_ALIGN1_1 + 2));
+    assertTrue(um7.diffProfile(profile).isEmpty());
+    assertFalse(client.isReaderRunning());
+  }
+
+  @Test
+  public void testApplyKeepsRunningReader() throws Exception {
+    // Given
+    final UM7Profile profile = um7.captureProfile();
+    profile.put(UM7Constants.Registers.CREG_COM_RATES3, 3);
+    client.startReader();
+
+    // When
+    final boolean applied = um7.applyProfile(profile);
+
+    // Then
+    assertTrue(applied);
+    assertTrue(client.isReaderRunning());
+    assertEquals(3, device.getRegister(UM7Constants.Registers.CREG_COM_RATES3));
+  }
+}
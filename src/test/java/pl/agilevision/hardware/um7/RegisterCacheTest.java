@@ -0,0 +1,76 @@
+package pl.agilevision.hardware.um7;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import pl.agilevision.hardware.um7.impl.DefaultUM7Client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Set of tests for the configuration register shadow of {@link DefaultUM7Client}
+ */
+public class RegisterCacheTest {
+
+  private EmulatedDevice device;
+  private DefaultUM7Client client;
+
+  @Before
+  public void setUp() throws Exception {
+    device = new EmulatedDevice();
+    client = device.connect();
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    client.disconnect();
+    device.stop();
+  }
+
+  @Test
+  public void testCachedRegisterIsNotReadAgain() throws Exception {
+    // Given
+    device.setRegister(UM7Constants.Registers.CREG_COM_RATES5, 0);
+    client.setDataRate(UM7Attributes.Euler, 10);
+    final int before = device.getRequestCount();
+
+    // When
+    client.setDataRate(UM7Attributes.Quat, 20);
+
+    // Then
+    assertEquals(1, device.getRequestCount() - before);
+    assertEquals(0x140A0000, device.getRegister(UM7Constants.Registers.CREG_COM_RATES5));
+  }
+
+  @Test
+  public void testInvalidate() throws Exception {
+    // Given
+    client.setDataRate(UM7Attributes.Euler, 10);
+    device.setRegister(UM7Constants.Registers.CREG_COM_RATES5, 0x00000005);
+    client.invalidateRegisterCache();
+    final int before = device.getRequestCount();
+
+    // When
+    client.setDataRate(UM7Attributes.Quat, 20);
+
+    // Then
+    assertEquals(2, device.getRequestCount() - before);
+    assertEquals(0x14000005, device.getRegister(UM7Constants.Registers.CREG_COM_RATES5));
+  }
+
+  @Test
+  public void testVerify() throws Exception {
+    // Given
+    assertTrue(client.refreshRegisterCache());
+    device.setRegister(UM7Constants.Registers.CREG_MISC_SETTINGS, 0x1);
+
+    // When
+    final boolean stale = client.verifyRegisterCache();
+
+    // Then
+    assertFalse(stale);
+    assertTrue(client.verifyRegisterCache());
+  }
+}
@@ -0,0 +1,69 @@
+package pl.agilevision.hardware.um7;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import pl.agilevision.hardware.um7.data.UM7RegisterMap;
+import pl.agilevision.hardware.um7.impl.DefaultUM7;
+import pl.agilevision.hardware.um7.impl.DefaultUM7Client;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Set of tests for the batch register range reads of {@link DefaultUM7Client}
+ */
+public class RegisterRangeTest {
+
+  private EmulatedDevice device;
+  private DefaultUM7Client client;
+
+  @Before
+  public void setUp() throws Exception {
+    device = new EmulatedDevice();
+    client = device.connect();
+    for (int address = 0; address <= UM7Constants.Registers.CREG_MAG_BIAS_Z; address++) {
+      device.setRegister(address, 0x100 + address);
+    }
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    client.disconnect();
+    device.stop();
+  }
+
+  @Test
+  public void testConfigurationSnapshot() throws Exception {
+    // Given
+    final UM7 um7 = new DefaultUM7(client, new String[0]);
+    final int before = device.getRequestCount();
+
+    // When
+    final UM7RegisterMap registers = um7.readConfiguration();
+
+    // Then
+    assertEquals(2, device.getRequestCount() - before);
+    assertEquals(27, registers.size());
+    for (int address = 0; address <= UM7Constants.Registers.CREG_MAG_BIAS_Z; address++) {
+      assertEquals(0x100 + address, registers.getInt(address));
+    }
+  }
+
+  @Test
+  public void testPipelinedRange() throws Exception {
+    // Given
+    device.setRegister(UM7Constants.Registers.CREG_MAG_BIAS_X, Float.floatToIntBits(1.5f));
+    client.startReader();
+    final int before = device.getRequestCount();
+
+    // When
+    final UM7RegisterMap registers = client.readRegisters(UM7Constants.Registers.CREG_MAG_CAL1_1,
+        UM7Constants.Registers.CREG_MAG_BIAS_Z);
+
+    // Then
+    assertEquals(1, device.getRequestCount() - before);
+    assertEquals(12, registers.size());
+    assertEquals(0x100 + UM7Constants.Registers.CREG_MAG_CAL1_1, registers.getInt(UM7Constants.Registers.CREG_MAG_CAL1_1));
+    assertEquals(1.5f, registers.getFloat(UM7Constants.Registers.CREG_MAG_BIAS_X), 0.0f);
+  }
+}
@@ -0,0 +1,119 @@
+package pl.agilevision.hardware.um7;
+
+import org.junit.Test;
+import pl.agilevision.hardware.um7.data.SampleHistory;
+import pl.agilevision.hardware.um7.data.TimeSeries;
+import pl.agilevision.hardware.um7.data.UM7DataSample;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Set of tests for {@link SampleHistory}
+ */
+public class SampleHistoryTest {
+
+  private static UM7DataSample accel(final double time, final double x) {
+    final UM7DataSample sample = new UM7DataSample();
+    sample.getRawData().put(UM7Attributes.Accelerator.Processed.X, x);
+    sample.getRawData().put(UM7Attributes.Accelerator.Processed.Time, (float) time);
+    return sample;
+  }
+
+  private static UM7DataSample gps(final double utcTime, final double latitude) {
+    final UM7DataSample sample = new UM7DataSample();
+    sample.getRawData().put(UM7Attributes.Gps.Latitude, (float) latitude);
+    sample.getRawData().put(UM7Attributes.Gps.Time, (float) utcTime);
+    return sample;
+  }
+
+  @Test
+  public void testLastRowsWrapAround() {
+    // Given
+    final SampleHistory history = new SampleHistory();
+    final TimeSeries series = history.track(UM7Attributes.Accelerator.Processed, 4);
+    final int x = series.column(UM7Attributes.Accelerator.Processed.X);
+
+    // When
+    for (int i = 0; i < 6; i++) {
+      history.record(accel(i * 0.5, i));
+    }
+    final TimeSeries.Window window = series.last(3);
+
+    // Then
+    assertSame(series, history.get(UM7Attributes.Accelerator.Processed.Z));
+    assertNull(history.get(UM7Attributes.Euler.Roll));
+    assertEquals(4, series.size());
+    assertEquals(6, series.getCount());
+    assertEquals(3, window.size());
+    assertEquals(3.0, window.get(x, 0), 0);
+    assertEquals(5.0, window.get(x, 2), 0);
+    assertEquals(2.5, window.getTime(2), 0);
+    assertTrue(Double.isNaN(window.get(series.column(UM7Attributes.Accelerator.Processed.Y), 0)));
+    assertEquals(4, series.last(10).size());
+    assertTrue(window.isValid());
+  }
+
+  @Test
+  public void testRowsBetweenDeviceTimes() {
+    // Given
+    final SampleHistory history = new SampleHistory();
+    final TimeSeries series = history.track(UM7Attributes.Accelerator.Processed.X, 8, true);
+    final int x = series.column(UM7Attributes.Accelerator.Processed.X);
+    for (int i = 0; i < 12; i++) {
+      history.record(accel(i * 0.5, i));
+    }
+
+    // When
+    final TimeSeries.Window window = series.between(3.0, 4.5);
+    final double[] values = new double[window.size()];
+    window.copy(x, values);
+
+    // Then
+    assertTrue(series.isDirect());
+    assertEquals(4, window.size());
+    assertEquals(6.0, values[0], 0);
+    assertEquals(9.0, values[3], 0);
+    assertEquals(0, series.between(10, 11).size());
+    assertEquals(8, series.between(0, 10).size());
+  }
+
+  @Test
+  public void testWindowInvalidatedByOverwrite() {
+    // Given
+    final SampleHistory history = new SampleHistory();
+    final TimeSeries series = history.track(UM7Attributes.Accelerator.Processed.X, 4);
+    history.record(accel(0, 0));
+    history.record(accel(1, 1));
+    final TimeSeries.Window window = series.last(2);
+
+    // When
+    for (int i = 2; i < 5; i++) {
+      history.record(accel(i, i));
+    }
+
+    // Then
+    assertFalse(window.isValid());
+  }
+
+  @Test
+  public void testGpsRowsStampedWithDeviceTime() {
+    // Given
+    final SampleHistory history = new SampleHistory();
+    final TimeSeries accel = history.track(UM7Attributes.Accelerator.Processed.X, 4);
+    final TimeSeries gps = history.track(UM7Attributes.Gps.Latitude, 4);
+
+    // When
+    history.record(accel(2.0, 1));
+    history.record(gps(40000.0, 50.0));
+    history.record(accel(2.5, 2));
+
+    // Then
+    assertEquals(2.0, gps.last(1).getTime(0), 0);
+    assertEquals(40000.0, gps.last(1).get(gps.column(UM7Attributes.Gps.Time), 0), 0);
+    assertEquals(2.5, accel.last(1).getTime(0), 0);
+  }
+}
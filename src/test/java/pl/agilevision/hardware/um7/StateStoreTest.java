@@ -0,0 +1,77 @@
+package pl.agilevision.hardware.um7;
+
+import org.junit.Test;
+import pl.agilevision.hardware.um7.data.AttributeRegistry;
+import pl.agilevision.hardware.um7.data.StateStore;
+import pl.agilevision.hardware.um7.data.UM7DataSample;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Set of tests for {@link StateStore}
+ */
+public class StateStoreTest {
+
+  @Test
+  public void testSnapshotKeepsTypes() {
+    // Given
+    final StateStore store = new StateStore();
+    final UM7DataSample sample = new UM7DataSample();
+    sample.getRawData().put(UM7Attributes.Health.Value, 0x100);
+    sample.getRawData().put(UM7Attributes.Euler.Roll, 1.5);
+
+    // When
+    store.update(sample);
+    final UM7DataSample snapshot = store.snapshot();
+
+    // Then
+    assertEquals(Integer.valueOf(0x100), snapshot.getValue(UM7Attributes.Health.Value));
+    assertEquals(Double.valueOf(1.5), snapshot.getValue(UM7Attributes.Euler.Roll));
+    assertFalse(snapshot.hasValue(UM7Attributes.Euler.Pitch));
+    assertTrue(Double.isNaN(store.get(UM7Attributes.Euler.Pitch)));
+    assertEquals(1, store.getUpdateCount(AttributeRegistry.id(UM7Attributes.Euler.Roll)));
+  }
+
+  @Test
+  public void testReadersSeeWholeGroups() throws Exception {
+    // Given
+    final StateStore store = new StateStore();
+    final int[] ids = {AttributeRegistry.id(UM7Attributes.Euler.Roll), AttributeRegistry.id(UM7Attributes.Euler.Pitch),
+        AttributeRegistry.id(UM7Attributes.Euler.Yaw)};
+    final UM7DataSample first = new UM7DataSample();
+    for (final int id : ids) {
+      first.setDouble(id, -1);
+    }
+    store.update(first);
+    final AtomicBoolean running = new AtomicBoolean(true);
+    final Thread writer = new Thread(() -> {
+      final UM7DataSample sample = new UM7DataSample();
+      for (int i = 0; running.get(); i++) {
+        for (final int id : ids) {
+          sample.setDouble(id, i);
+        }
+        store.update(sample);
+      }
+    });
+
+    // When
+    writer.start();
+    int torn = 0;
+    final double[] values = new double[ids.length];
+    for (int i = 0; i < 100000; i++) {
+      store.read(ids, values);
+      if (values[0] != values[1] || values[1] != values[2]) {
+        torn++;
+      }
+    }
+    running.set(false);
+    writer.join();
+
+    // Then
+    assertEquals(0, torn);
+  }
+}
@@ -0,0 +1,174 @@
+package pl.agilevision.hardware.um7;
+
+import org.junit.Test;
+import pl.agilevision.hardware.um7.data.UM7DataSample;
+import pl.agilevision.hardware.um7.data.join.JoinedRecord;
+import pl.agilevision.hardware.um7.data.join.StreamJoin;
+import pl.agilevision.hardware.um7.impl.DefaultUM7Client;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Set of tests for {@link StreamJoin}
+ */
+public class StreamJoinTest {
+
+  private final List<JoinedRecord> records = Collections.synchronizedList(new ArrayList<>());
+
+  private static UM7DataSample gyro(final double time, final double x) {
+    final UM7DataSample sample = new UM7DataSample();
+    sample.getRawData().put(UM7Attributes.Gyro.Processed.X, x);
+    sample.getRawData().put(UM7Attributes.Gyro.Processed.Time, time);
+    return sample;
+  }
+
+  private static UM7DataSample accel(final double time, final double x) {
+    final UM7DataSample sample = new UM7DataSample();
+    sample.getRawData().put(UM7Attributes.Accelerator.Processed.X, x);
+    sample.getRawData().put(UM7Attributes.Accelerator.Processed.Time, time);
+    return sample;
+  }
+
+  private static UM7DataSample quat(final double time, final double a, final double b, final double c,
+                                    final double d) {
+    final UM7DataSample sample = new UM7DataSample();
+    sample.getRawData().put(UM7Attributes.Quat.A, a);
+    sample.getRawData().put(UM7Attributes.Quat.B, b);
+    sample.getRawData().put(UM7Attributes.Quat.C, c);
+    sample.getRawData().put(UM7Attributes.Quat.D, d);
+    sample.getRawData().put(UM7Attributes.Quat.Time, time);
+    return sample;
+  }
+
+  private StreamJoin join(final StreamJoin.Mode mode) {
+    return new StreamJoin(UM7Attributes.Gyro.Processed.X, 0.15, record -> records.add(record.copy()))
+        .join(UM7Attributes.Accelerator.Processed.X, mode);
+  }
+
+  @Test
+  public void testLinearWaitsForLaterRow() {
+    // Given
+    final StreamJoin join = join(StreamJoin.Mode.LINEAR);
+
+    // When
+    join.offer(accel(0.9, 0));
+    join.offer(gyro(1.0, 5));
+    final int beforeLaterRow = records.size();
+    join.offer(accel(1.1, 2));
+
+    // Then
+    assertEquals(0, beforeLaterRow);
+    assertEquals(1, records.size());
+    assertEquals(1.0, records.get(0).getTime(), 0);
+    assertEquals(5.0, records.get(0).get(UM7Attributes.Gyro.Processed.X), 0);
+    assertEquals(1.0, records.get(0).get(UM7Attributes.Accelerator.Processed.X), 1e-9);
+  }
+
+  @Test
+  public void testNearestAndHold() {
+    // Given
+    final StreamJoin nearest = join(StreamJoin.Mode.NEAREST);
+    final StreamJoin hold = new StreamJoin(UM7Attributes.Gyro.Processed.X, 0.15, record -> records.add(record.copy()))
+        .join(UM7Attributes.Accelerator.Processed.X, StreamJoin.Mode.SAMPLE_AND_HOLD);
+
+    // When
+    for (final StreamJoin join : new StreamJoin[]{nearest, hold}) {
+      join.offer(accel(0.9, 0));
+      join.offer(gyro(1.0, 5));
+      join.offer(accel(1.05, 2));
+    }
+
+    // Then
+    assertEquals(2, records.size());
+    assertEquals(2.0, records.get(0).get(UM7Attributes.Accelerator.Processed.X), 0);
+    assertEquals(0.0, records.get(1).get(UM7Attributes.Accelerator.Processed.X), 0);
+  }
+
+  @Test
+  public void testSlerpOfQuaternions() {
+    // Given
+    final StreamJoin join = new StreamJoin(UM7Attributes.Gyro.Processed.X, 0.15, record -> records.add(record.copy()))
+        .join(UM7Attributes.Quat.A, StreamJoin.Mode.SLERP);
+
+    // When
+    join.offer(quat(0.9, 1, 0, 0, 0));
+    join.offer(gyro(1.0, 5));
+    join.offer(quat(1.1, 0, 0, 0, -1));
+
+    // Then
+    final double half = Math.sqrt(0.5);
+    assertEquals(1, records.size());
+    assertEquals(half, Math.abs(records.get(0).get(UM7Attributes.Quat.A)), 1e-9);
+    assertEquals(records.get(0).get(UM7Attributes.Quat.A), -records.get(0).get(UM7Attributes.Quat.D), 1e-9);
+    assertEquals(0.0, records.get(0).get(UM7Attributes.Quat.B), 1e-9);
+  }
+
+  @Test
+  public void testSubscribedJoinFedByDispatchingReader() throws Exception {
+    // Given
+    final EmulatedDevice device = new EmulatedDevice();
+    final DefaultUM7Client client = device.connect();
+    final ExecutorService executor = Executors.newFixedThreadPool(2);
+    final CountDownLatch emitted = new CountDownLatch(1);
+    final StreamJoin join = new StreamJoin(UM7Attributes.Gyro.Processed.X, 0.15, record -> {
+      records.add(record.copy());
+      emitted.countDown();
+    }).join(UM7Attributes.Accelerator.Processed.X, StreamJoin.Mode.LINEAR);
+    join.subscribe(client);
+    client.setCallbackExecutor(executor, 16);
+    client.startReader(true);
+    try {
+      // When
+      device.send(processed(UM7Constants.Registers.DREG_ACCEL_PROC_X, 0.9, 1));
+      device.send(processed(UM7Constants.Registers.DREG_GYRO_PROC_X, 1.0, 5));
+      device.send(processed(UM7Constants.Registers.DREG_ACCEL_PROC_X, 1.1, 3));
+
+      // Then
+      assertTrue(emitted.await(1, TimeUnit.SECONDS));
+      assertEquals(1.0, records.get(0).getTime(), 1e-6);
+      assertEquals(2.0, records.get(0).get(UM7Attributes.Accelerator.Processed.X), 1e-6);
+    } finally {
+      client.disconnect();
+      device.stop();
+      executor.shutdown();
+    }
+  }
+
+  private static byte[] processed(final int start, final double time, final double x) {
+    final ByteBuffer data = ByteBuffer.allocate(16);
+    data.putFloat((float) x).putFloat(0).putFloat(0).putFloat((float) time);
+    return ByteChannelTransportTest.binaryPacket(0b11000000 | 4 << 2, start, data.array());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testGpsTimeNotJoined() {
+    // When
+    join(StreamJoin.Mode.NEAREST).join(UM7Attributes.Gps.Latitude, StreamJoin.Mode.SAMPLE_AND_HOLD);
+  }
+
+  @Test
+  public void testTickDroppedOutsideTolerance() {
+    // Given
+    final StreamJoin join = join(StreamJoin.Mode.LINEAR);
+
+    // When
+    join.offer(accel(0.5, 0));
+    join.offer(gyro(1.0, 5));
+    join.offer(gyro(1.2, 5));
+    join.flush();
+
+    // Then
+    assertEquals(0, records.size());
+    assertEquals(2, join.getDropped());
+  }
+}
@@ -0,0 +1,102 @@
+package pl.agilevision.hardware.um7;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import pl.agilevision.hardware.um7.data.binary.UM7BinaryPacket;
+import pl.agilevision.hardware.um7.data.sample.EulerSample;
+import pl.agilevision.hardware.um7.data.sample.HealthStatus;
+import pl.agilevision.hardware.um7.data.sample.ImuSensor;
+import pl.agilevision.hardware.um7.data.sample.ProcessedImuSample;
+import pl.agilevision.hardware.um7.data.sample.SatelliteTable;
+import pl.agilevision.hardware.um7.impl.DefaultUM7Client;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Set of tests for the typed sample callbacks of {@link DefaultUM7Client}
+ */
+public class TypedSampleTest {
+
+  private EmulatedDevice device;
+  private DefaultUM7Client client;
+
+  @Before
+  public void setUp() throws Exception {
+    device = new EmulatedDevice();
+    client = device.connect();
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    client.disconnect();
+    device.stop();
+  }
+
+  @Test
+  public void testTypedCallbacks() throws Exception {
+    // Given
+    final List<EulerSample> euler = new ArrayList<>();
+    final List<ProcessedImuSample> imu = new ArrayList<>();
+    final List<HealthStatus> health = new ArrayList<>();
+    final List<SatelliteTable> satellites = new ArrayList<>();
+    client.registerCallback(EulerSample.class, euler::add);
+    client.registerCallback(ProcessedImuSample.class, imu::add);
+    client.registerCallback(HealthStatus.class, health::add);
+    client.registerCallback(SatelliteTable.class, satellites::add);
+
+    final ByteBuffer pose = ByteBuffer.allocate(5 * 4);
+    pose.putShort((short) 910).putShort((short) -1820).putShort((short) 2730).putShort((short) 0);
+    pose.putShort((short) 16).putShort((short) 32).putShort((short) 48).putShort((short) 0);
+    pose.putFloat(1.5f);
+    final ByteBuffer processed = ByteBuffer.allocate(12 * 4);
+    for (int i = 0; i < 12; i++) {
+      processed.putFloat(i);
+    }
+    final ByteBuffer sats = ByteBuffer.allocate(6 * 4);
+    sats.put((byte) 200).put((byte) 45).put((byte) 7).put((byte) 30);
+
+    // When
+    device.send(ByteChannelTransportTest.binaryPacket(0b11000000 | 5 << 2,
+        UM7Constants.Registers.DREG_EULER_PHI_THETA, pose.array()));
+    device.send(ByteChannelTransportTest.binaryPacket(0b11000000 | 12 << 2,
+        UM7Constants.Registers.DREG_GYRO_PROC_X, processed.array()));
+    device.send(ByteChannelTransportTest.binaryPacket(0b10000000, UM7Constants.Registers.DREG_HEALTH,
+        ByteBuffer.allocate(4).putInt(3 << 26 | 12 << 16 | UM7Constants.Health.HEALTH_MAG).array()));
+    device.send(ByteChannelTransportTest.binaryPacket(0b11000000 | 6 << 2,
+        UM7Constants.Registers.DREG_GPS_SAT_1_2, sats.array()));
+    for (int i = 0; i < 4; i++) {
+      final UM7BinaryPacket packet = client.readPacket(1.0f);
+      assertTrue(packet.foundpacket);
+      client.parsePacket(packet);
+    }
+
+    // Then
+    assertEquals(1, euler.size());
+    assertEquals(2.0, euler.get(0).getPitchRate(), 1e-9);
+    assertEquals(1.5f, euler.get(0).getTime(), 0.0f);
+
+    assertEquals(3, imu.size());
+    assertEquals(ImuSensor.ACCELEROMETER, imu.get(1).getSensor());
+    assertEquals(5.0f, imu.get(1).getY(), 0.0f);
+
+    assertEquals(1, health.size());
+    assertEquals(3, health.get(0).getSatellitesUsed());
+    assertEquals(1.2f, health.get(0).getHdop(), 1e-6f);
+    assertFalse(health.get(0).isHealthy());
+
+    assertEquals(200, satellites.get(0).getId(0));
+    assertEquals(30, satellites.get(0).getSnr(1));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testUnsupportedType() {
+    client.registerCallback(String.class, sample -> { });
+  }
+}